@@ -0,0 +1,168 @@
+package com.github.methylene.sym.bench;
+
+import com.github.methylene.sym.Permutation;
+import com.github.methylene.sym.Rankings;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Apply a permutation to arrays of every element type.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApplyBenchmark {
+
+  @Param({"10", "200", "1000", "20000", "50000", "100000", "10000000", "100000000"})
+  public int size;
+
+  /* whether the permutation is stored with the fewest bits per entry, see Permutation.compact() */
+  @Param({"false", "true"})
+  public boolean compact;
+
+  @Param({"RANDOM", "NEARLY_SORTED", "REVERSED", "DUPLICATES"})
+  public Shape shape;
+
+  Permutation permutation;
+  byte[] bytes;
+  short[] shorts;
+  int[] ints;
+  long[] longs;
+  float[] floats;
+  double[] doubles;
+  char[] chars;
+  boolean[] booleans;
+  Integer[] objects;
+  int[] intsTo;
+  long[] longsTo;
+  Integer[] objectsTo;
+  int[] ranking;
+
+  @Setup
+  public void setup() {
+    permutation = shape.permutation(size);
+    if (compact)
+      permutation = permutation.compact();
+    ints = shape.ints(size);
+    longs = Shape.longs(ints);
+    doubles = Shape.doubles(ints);
+    bytes = new byte[size];
+    shorts = new short[size];
+    floats = new float[size];
+    chars = new char[size];
+    booleans = new boolean[size];
+    objects = new Integer[size];
+    for (int i = 0; i < size; i++) {
+      bytes[i] = (byte) ints[i];
+      shorts[i] = (short) ints[i];
+      floats[i] = ints[i];
+      chars[i] = (char) ints[i];
+      booleans[i] = (ints[i] & 1) == 0;
+      objects[i] = ints[i];
+    }
+    intsTo = new int[size];
+    longsTo = new long[size];
+    objectsTo = new Integer[size];
+    ranking = permutation.getRanking();
+  }
+
+  @Benchmark
+  public int[] applyInverseInts() {
+    return permutation.applyInverse(ints);
+  }
+
+  @Benchmark
+  public int[] applyInverseIntsTo() {
+    permutation.applyInverseTo(ints, intsTo);
+    return intsTo;
+  }
+
+  /* the previous way to undo a permutation, which computes the inverse first */
+  @Benchmark
+  public int[] invertAndApplyInts() {
+    return Rankings.apply(Rankings.invert(ranking), ints);
+  }
+
+  @Benchmark
+  public byte[] applyBytes() {
+    return permutation.apply(bytes);
+  }
+
+  @Benchmark
+  public short[] applyShorts() {
+    return permutation.apply(shorts);
+  }
+
+  @Benchmark
+  public int[] applyInts() {
+    return permutation.apply(ints);
+  }
+
+  @Benchmark
+  public long[] applyLongs() {
+    return permutation.apply(longs);
+  }
+
+  @Benchmark
+  public float[] applyFloats() {
+    return permutation.apply(floats);
+  }
+
+  @Benchmark
+  public double[] applyDoubles() {
+    return permutation.apply(doubles);
+  }
+
+  @Benchmark
+  public char[] applyChars() {
+    return permutation.apply(chars);
+  }
+
+  @Benchmark
+  public boolean[] applyBooleans() {
+    return permutation.apply(booleans);
+  }
+
+  @Benchmark
+  public Integer[] applyObjects() {
+    return permutation.apply(objects);
+  }
+
+  @Benchmark
+  public int[] applyIntsParallel() {
+    return permutation.applyParallel(ints);
+  }
+
+  @Benchmark
+  public long[] applyLongsParallel() {
+    return permutation.applyParallel(longs);
+  }
+
+  @Benchmark
+  public Integer[] applyObjectsParallel() {
+    return permutation.applyParallel(objects);
+  }
+
+  @Benchmark
+  public int[] applyIntsTo() {
+    permutation.applyTo(ints, intsTo);
+    return intsTo;
+  }
+
+  @Benchmark
+  public long[] applyLongsTo() {
+    permutation.applyTo(longs, longsTo);
+    return longsTo;
+  }
+
+  @Benchmark
+  public Integer[] applyObjectsTo() {
+    permutation.applyTo(objects, objectsTo);
+    return objectsTo;
+  }
+
+}
@@ -0,0 +1,56 @@
+package com.github.methylene.sym.bench;
+
+import com.github.methylene.sym.ApplyEngine;
+import com.github.methylene.sym.Permutation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the ways of applying a permutation, on arrays of 4 and 8 byte elements.
+ * If caching is enabled, the inverse that is used by {@link ApplyEngine#GATHER} is computed in the first
+ * warmup iteration. Otherwise it is computed by every call, which is the cost of a gather on a fresh permutation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApplyEngineBenchmark {
+
+  @Param({"10000", "100000", "1000000", "10000000", "30000000"})
+  public int size;
+
+  @Param({"RANDOM", "NEARLY_SORTED"})
+  public Shape shape;
+
+  @Param({"SCATTER", "GATHER", "BLOCKED", "CYCLES"})
+  public ApplyEngine engine;
+
+  @Param({"true", "false"})
+  public boolean caching;
+
+  Permutation permutation;
+  int[] ints;
+  long[] longs;
+
+  @Setup
+  public void setup() {
+    Permutation.setCaching(caching);
+    permutation = shape.permutation(size);
+    ints = shape.ints(size);
+    longs = Shape.longs(ints);
+  }
+
+  @Benchmark
+  public int[] applyInts() {
+    return permutation.apply(ints, engine);
+  }
+
+  @Benchmark
+  public long[] applyLongs() {
+    return permutation.apply(longs, engine);
+  }
+
+}
@@ -0,0 +1,148 @@
+package com.github.methylene.sym.bench;
+
+import com.github.methylene.sym.CycleStats;
+import com.github.methylene.sym.Cycles;
+import com.github.methylene.sym.Permutation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Apply the cycle based version of a permutation in place.
+ * Each invocation alternates between {@code clobber} and {@code unclobber}, so that the input does not
+ * drift away from its initial state.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CyclesBenchmark {
+
+  @Param({"10", "1000", "100000", "10000000", "100000000"})
+  public int size;
+
+  @Param({"RANDOM", "NEARLY_SORTED", "REVERSED", "DUPLICATES"})
+  public Shape shape;
+
+  Permutation permutation;
+  Cycles cycles;
+  int[] ints;
+  Object[] objects;
+  int next;
+
+  /* the cycles as separate arrays, for the swap based baseline */
+  int[][] arrays;
+
+  @Setup
+  public void setup() {
+    permutation = shape.permutation(size);
+    cycles = permutation.toCycles();
+    ints = shape.ints(size);
+    objects = new Object[size];
+    for (int i = 0; i < size; i++)
+      objects[i] = ints[i];
+    arrays = new int[cycles.numCycles()][];
+    for (int c = 0; c < arrays.length; c++)
+      arrays[c] = cycles.getCycle(c);
+  }
+
+  @Benchmark
+  public int[] clobberInts() {
+    cycles.clobber(ints);
+    cycles.unclobber(ints);
+    return ints;
+  }
+
+  @Benchmark
+  public Object[] clobberObjects() {
+    cycles.clobber(objects);
+    cycles.unclobber(objects);
+    return objects;
+  }
+
+  /* the previous implementation, which rotates each cycle with a chain of swaps */
+  @Benchmark
+  public int[] clobberIntsSwaps() {
+    for (int[] cycle : arrays) {
+      for (int j = cycle.length - 2; j >= 0; j--) {
+        int temp = ints[cycle[j + 1]];
+        ints[cycle[j + 1]] = ints[cycle[j]];
+        ints[cycle[j]] = temp;
+      }
+    }
+    for (int[] cycle : arrays) {
+      for (int j = 0; j < cycle.length - 1; j++) {
+        int temp = ints[cycle[j + 1]];
+        ints[cycle[j + 1]] = ints[cycle[j]];
+        ints[cycle[j]] = temp;
+      }
+    }
+    return ints;
+  }
+
+  @Benchmark
+  public Object[] clobberObjectsSwaps() {
+    for (int[] cycle : arrays) {
+      for (int j = cycle.length - 2; j >= 0; j--) {
+        Object temp = objects[cycle[j + 1]];
+        objects[cycle[j + 1]] = objects[cycle[j]];
+        objects[cycle[j]] = temp;
+      }
+    }
+    for (int[] cycle : arrays) {
+      for (int j = 0; j < cycle.length - 1; j++) {
+        Object temp = objects[cycle[j + 1]];
+        objects[cycle[j + 1]] = objects[cycle[j]];
+        objects[cycle[j]] = temp;
+      }
+    }
+    return objects;
+  }
+
+  /* the index of the cycles is built in the first warmup iteration */
+  @Benchmark
+  public int applyIndex() {
+    next = cycles.apply(next);
+    if (next == 0)
+      next = (size - 1) / 2;
+    return next;
+  }
+
+  /* disables caching in the forks of the benchmarks that use it, so that the work is not skipped */
+  @State(Scope.Benchmark)
+  public static class Uncached {
+
+    @Setup
+    public void setup() {
+      Permutation.setCaching(false);
+    }
+
+    @TearDown
+    public void tearDown() {
+      Permutation.setCaching(true);
+    }
+  }
+
+  @Benchmark
+  public Cycles toCycles(Uncached uncached) {
+    return permutation.toCycles();
+  }
+
+  @Benchmark
+  public Cycles toCyclesParallel(Uncached uncached) {
+    return permutation.toCyclesParallel();
+  }
+
+  @Benchmark
+  public Cycles toCyclesCached() {
+    return permutation.toCycles();
+  }
+
+  @Benchmark
+  public CycleStats cycleStats() {
+    return permutation.cycleStats();
+  }
+
+}
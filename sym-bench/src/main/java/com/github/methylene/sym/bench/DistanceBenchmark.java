@@ -0,0 +1,76 @@
+package com.github.methylene.sym.bench;
+
+import com.github.methylene.sym.Permutation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compute distances between two permutations.
+ * The second permutation is the first one composed with a random permutation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistanceBenchmark {
+
+  @Param({"1000000", "10000000", "100000000"})
+  public int size;
+
+  @Param({"RANDOM", "NEARLY_SORTED", "REVERSED", "DUPLICATES"})
+  public Shape shape;
+
+  Permutation p;
+  Permutation q;
+
+  @Setup
+  public void setup() {
+    p = shape.permutation(size);
+    q = p.compose(Shape.RANDOM.permutation(size));
+  }
+
+  @Benchmark
+  public long inversions() {
+    return p.inversions();
+  }
+
+  @Benchmark
+  public long inversionsParallel() {
+    return p.inversionsParallel(ForkJoinPool.commonPool());
+  }
+
+  @Benchmark
+  public long kendallTau() {
+    return p.kendallTau(q);
+  }
+
+  @Benchmark
+  public long kendallTauParallel() {
+    return p.kendallTauParallel(q, ForkJoinPool.commonPool());
+  }
+
+  @Benchmark
+  public int cayleyDistance() {
+    return p.cayleyDistance(q);
+  }
+
+  @Benchmark
+  public int ulamDistance() {
+    return p.ulamDistance(q);
+  }
+
+  @Benchmark
+  public int hammingDistance() {
+    return p.hammingDistance(q);
+  }
+
+  @Benchmark
+  public long spearmanFootrule() {
+    return p.spearmanFootrule(q);
+  }
+
+}
@@ -0,0 +1,38 @@
+package com.github.methylene.sym.bench;
+
+import com.github.methylene.sym.Permutation;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compute the order of a permutation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderBenchmark {
+
+  @Param({"10", "1000", "100000", "10000000", "100000000"})
+  public int size;
+
+  @Param({"RANDOM", "NEARLY_SORTED", "REVERSED", "DUPLICATES"})
+  public Shape shape;
+
+  Permutation permutation;
+
+  @Setup
+  public void setup() {
+    permutation = shape.permutation(size);
+  }
+
+  @Benchmark
+  public BigInteger bigOrder() {
+    return permutation.bigOrder();
+  }
+
+}
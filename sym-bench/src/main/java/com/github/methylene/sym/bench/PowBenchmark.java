@@ -0,0 +1,48 @@
+package com.github.methylene.sym.bench;
+
+import com.github.methylene.sym.Cycles;
+import com.github.methylene.sym.Permutation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Raise a permutation to a power.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PowBenchmark {
+
+  @Param({"10", "1000", "100000", "10000000", "100000000"})
+  public int size;
+
+  @Param({"RANDOM", "NEARLY_SORTED", "REVERSED", "DUPLICATES"})
+  public Shape shape;
+
+  @Param({"2", "-3", "100", "1000000007"})
+  public long exponent;
+
+  Permutation permutation;
+  Cycles cycles;
+
+  @Setup
+  public void setup() {
+    permutation = shape.permutation(size);
+    cycles = permutation.toCycles();
+  }
+
+  @Benchmark
+  public Permutation pow() {
+    return permutation.pow(exponent);
+  }
+
+  @Benchmark
+  public Cycles cyclesPow() {
+    return cycles.pow(exponent);
+  }
+
+}
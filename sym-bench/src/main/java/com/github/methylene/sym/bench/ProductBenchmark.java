@@ -0,0 +1,70 @@
+package com.github.methylene.sym.bench;
+
+import com.github.methylene.sym.Permutation;
+import com.github.methylene.sym.PermutationExpression;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Multiply a list of permutations: one factor at a time, in a single fused pass, or in parallel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductBenchmark {
+
+  @Param({"10", "1000", "100000", "10000000"})
+  public int size;
+
+  @Param({"RANDOM", "NEARLY_SORTED", "REVERSED", "DUPLICATES"})
+  public Shape shape;
+
+  @Param({"2", "8", "32", "1024"})
+  public int factors;
+
+  List<Permutation> permutations;
+  PermutationExpression expression;
+  int next;
+
+  @Setup
+  public void setup() {
+    permutations = new ArrayList<>();
+    for (int k = 0; k < factors; k++)
+      permutations.add(k % 2 == 0 ? shape.permutation(size) : Permutation.random(size));
+    expression = PermutationExpression.product(permutations);
+  }
+
+  /* the previous implementation of Permutation.product */
+  @Benchmark
+  public Permutation composeEach() {
+    Permutation result = Permutation.identity();
+    for (Permutation permutation : permutations)
+      result = result.compose(permutation);
+    return result;
+  }
+
+  @Benchmark
+  public Permutation product() {
+    return Permutation.product(permutations);
+  }
+
+  @Benchmark
+  public Permutation parallelProduct() {
+    return Permutation.parallelProduct(permutations);
+  }
+
+  @Benchmark
+  public int applyIndex() {
+    next = expression.apply(next);
+    if (next == 0)
+      next = (size - 1) / 2;
+    return next;
+  }
+
+}
@@ -0,0 +1,50 @@
+package com.github.methylene.sym.bench;
+
+import com.github.methylene.sym.Rankings;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Invert and compose rankings.
+ * The in place inversion alternates between the ranking and its inverse, which have the same shape.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RankingsBenchmark {
+
+  @Param({"10", "1000", "100000", "10000000", "100000000"})
+  public int size;
+
+  @Param({"RANDOM", "NEARLY_SORTED", "REVERSED", "DUPLICATES"})
+  public Shape shape;
+
+  int[] ranking;
+  int[] other;
+
+  @Setup
+  public void setup() {
+    ranking = shape.permutation(size).getRanking();
+    other = Shape.RANDOM.permutation(size).getRanking();
+  }
+
+  @Benchmark
+  public int[] invert() {
+    return Rankings.invert(ranking);
+  }
+
+  @Benchmark
+  public int[] invertInPlace() {
+    return Rankings.invertInPlace(ranking);
+  }
+
+  @Benchmark
+  public int[] comp() {
+    return Rankings.comp(ranking, other);
+  }
+
+}
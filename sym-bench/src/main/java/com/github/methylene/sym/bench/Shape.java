@@ -0,0 +1,124 @@
+package com.github.methylene.sym.bench;
+
+import com.github.methylene.sym.Permutation;
+
+import java.util.Random;
+
+/**
+ * The shape of the input data of a benchmark.
+ * Benchmarks that operate on a permutation use the permutation that sorts data of the given shape,
+ * so that for example {@code REVERSED} yields the reversing permutation.
+ */
+public enum Shape {
+
+  /** Distinct numbers in random order */
+  RANDOM {
+    @Override
+    public int[] ints(int size, Random random) {
+      int[] a = range(size);
+      for (int i = size - 1; i > 0; i--)
+        swap(a, i, random.nextInt(i + 1));
+      return a;
+    }
+  },
+
+  /** Distinct numbers in ascending order, where about one percent of neighbours have been swapped */
+  NEARLY_SORTED {
+    @Override
+    public int[] ints(int size, Random random) {
+      int[] a = range(size);
+      if (size < 2)
+        return a;
+      for (int k = 0; k < Math.max(1, size / 100); k++) {
+        int i = random.nextInt(size - 1);
+        swap(a, i, i + 1);
+      }
+      return a;
+    }
+  },
+
+  /** Distinct numbers in descending order */
+  REVERSED {
+    @Override
+    public int[] ints(int size, Random random) {
+      int[] a = new int[size];
+      for (int i = 0; i < size; i++)
+        a[i] = size - i - 1;
+      return a;
+    }
+  },
+
+  /** Random numbers from a small range, so that each number appears many times */
+  DUPLICATES {
+    @Override
+    public int[] ints(int size, Random random) {
+      int[] a = new int[size];
+      for (int i = 0; i < size; i++)
+        a[i] = random.nextInt(DISTINCT_DUPLICATES);
+      return a;
+    }
+  };
+
+  /** The number of distinct values in {@link #DUPLICATES} data */
+  static final int DISTINCT_DUPLICATES = 16;
+
+  /** Seed used by all benchmarks, so that runs can be reproduced */
+  static final long SEED = 20150301L;
+
+  /**
+   * Generate data of this shape.
+   *
+   * @param size   the length of the result
+   * @param random a source of randomness
+   * @return an array of length {@code size}
+   */
+  public abstract int[] ints(int size, Random random);
+
+  /**
+   * Generate data of this shape, using the fixed benchmark seed.
+   *
+   * @param size the length of the result
+   * @return an array of length {@code size}
+   */
+  public int[] ints(int size) {
+    return ints(size, new Random(SEED));
+  }
+
+  /**
+   * Get the permutation that sorts data of this shape.
+   *
+   * @param size the length of the data
+   * @return a permutation of length {@code size} or less
+   */
+  public Permutation permutation(int size) {
+    return Permutation.sorting(ints(size));
+  }
+
+  static long[] longs(int[] a) {
+    long[] result = new long[a.length];
+    for (int i = 0; i < a.length; i++)
+      result[i] = ((long) a[i] << 32) | ((a[i] * 0x9e3779b9) & 0xffffffffL);
+    return result;
+  }
+
+  static double[] doubles(int[] a) {
+    double[] result = new double[a.length];
+    for (int i = 0; i < a.length; i++)
+      result[i] = a[i] + 0.5;
+    return result;
+  }
+
+  private static int[] range(int size) {
+    int[] a = new int[size];
+    for (int i = 0; i < size; i++)
+      a[i] = i;
+    return a;
+  }
+
+  private static void swap(int[] a, int i, int j) {
+    int temp = a[i];
+    a[i] = a[j];
+    a[j] = temp;
+  }
+
+}
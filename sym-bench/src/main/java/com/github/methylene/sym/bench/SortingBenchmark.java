@@ -0,0 +1,76 @@
+package com.github.methylene.sym.bench;
+
+import com.github.methylene.sym.Rankings;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compute the ranking that sorts an array.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortingBenchmark {
+
+  @Param({"10", "1000", "100000", "10000000", "100000000"})
+  public int size;
+
+  @Param({"RANDOM", "NEARLY_SORTED", "REVERSED", "DUPLICATES"})
+  public Shape shape;
+
+  int[] ints;
+  long[] longs;
+  double[] doubles;
+  String[] strings;
+
+  @Setup
+  public void setup() {
+    ints = shape.ints(size);
+    longs = Shape.longs(ints);
+    doubles = Shape.doubles(ints);
+    strings = new String[size];
+    for (int i = 0; i < size; i++)
+      strings[i] = Integer.toString(ints[i]);
+  }
+
+  @Benchmark
+  public int[] sortingInts() {
+    return Rankings.sorting(ints);
+  }
+
+  @Benchmark
+  public int[] sortingLongs() {
+    return Rankings.sorting(longs);
+  }
+
+  @Benchmark
+  public int[] sortingDoubles() {
+    return Rankings.sorting(doubles);
+  }
+
+  @Benchmark
+  public int[] sortingStrings() {
+    return Rankings.sorting(strings);
+  }
+
+  @Benchmark
+  public int[] sortingIntsParallel() {
+    return Rankings.sortingParallel(ints, ForkJoinPool.commonPool());
+  }
+
+  @Benchmark
+  public int[] sortingLongsParallel() {
+    return Rankings.sortingParallel(longs, ForkJoinPool.commonPool());
+  }
+
+  @Benchmark
+  public int[] sortingDoublesParallel() {
+    return Rankings.sortingParallel(doubles, ForkJoinPool.commonPool());
+  }
+
+}
@@ -0,0 +1,38 @@
+package com.github.methylene.sym.bench;
+
+import com.github.methylene.sym.Rankings;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enumerate all permutations of a given length.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SymmetricGroupBenchmark {
+
+  @Param({"6", "8", "10"})
+  public int n;
+
+  @Benchmark
+  public void symmetricGroup(Blackhole blackhole) {
+    Rankings.symmetricGroup(n).forEach(blackhole::consume);
+  }
+
+  @Benchmark
+  public void symmetricGroupParallel(Blackhole blackhole) {
+    Rankings.symmetricGroup(n).parallel().forEach(blackhole::consume);
+  }
+
+  @Benchmark
+  public void forEachPermutation(Blackhole blackhole) {
+    Rankings.forEachPermutation(n, blackhole::consume);
+  }
+
+}
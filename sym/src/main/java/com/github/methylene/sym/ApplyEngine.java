@@ -0,0 +1,62 @@
+package com.github.methylene.sym;
+
+/**
+ * The ways in which a {@link Permutation} can be applied to an array.
+ * They all produce the same result, but have different memory access patterns.
+ * <p/>
+ * A scatter is the default. On arrays that do not fit in the cache, a gather through the inverse can be faster,
+ * because its writes are sequential, but computing the inverse first costs more than the gather saves.
+ * The gather is therefore only selected by default if the permutation already keeps its inverse,
+ * for example because {@link Permutation#invert()} has been called.
+ *
+ * @see Permutation#apply(int[], ApplyEngine)
+ */
+public enum ApplyEngine {
+
+  /**
+   * Move each element to its destination: {@code result[ranking[i]] = input[i]}.
+   */
+  SCATTER,
+
+  /**
+   * Fetch each element from its source: {@code result[j] = input[inverse[j]]}.
+   * The inverse is computed if the permutation does not keep it yet, and then cached by the permutation.
+   */
+  GATHER,
+
+  /**
+   * Scatter in two passes: first partition the elements by destination block, then scatter each partition.
+   * The writes of the second pass stay within a block. This needs two temporary arrays.
+   */
+  BLOCKED,
+
+  /**
+   * Copy the input, and then move the elements along the cycles of the permutation, in place.
+   */
+  CYCLES;
+
+  /**
+   * Arrays of at least this length do not fit in the cache, so that {@link #GATHER} may be faster than
+   * {@link #SCATTER}.
+   */
+  static final int LARGE = 1 << 20;
+
+  /**
+   * Choose an engine. These choices are based on timings of the cases in {@code ApplyEngineBenchmark}.
+   * On arrays of {@code 2^20} and more elements, a gather through an inverse that had already been computed
+   * was about as fast as a scatter for 4 byte elements, and up to 1.6 times as fast for 8 byte elements.
+   * A gather that had to compute the inverse first was about twice as slow as a scatter, and the blocked
+   * scatter was slower than the plain scatter at every size, so neither of them is selected.
+   *
+   * @param length        the length of the permutation
+   * @param elementBytes  the size of an array element in bytes
+   * @param inverseCached whether the permutation already keeps its inverse
+   * @return an engine
+   */
+  static ApplyEngine select(int length, int elementBytes, boolean inverseCached) {
+    if (length < LARGE || elementBytes < 4 || !inverseCached)
+      return SCATTER;
+    return GATHER;
+  }
+
+}
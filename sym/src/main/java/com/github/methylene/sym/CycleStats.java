@@ -0,0 +1,207 @@
+package com.github.methylene.sym;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Statistics about the cycles of a permutation: its cycle type, and everything that follows from it.
+ * Fixed points count as cycles of length {@code 1}.
+ * <p/>
+ * Two permutations of the same length have equal statistics if and only if they are conjugate.
+ * Instances are immutable.
+ *
+ * @see Permutation#cycleStats()
+ */
+public final class CycleStats {
+
+  private final int length;
+
+  /* counts[k] is the number of cycles of length k, counts[0] is 0; the last entry is not 0, unless length is 0 */
+  private final int[] counts;
+
+  private final int numCycles;
+
+  private CycleStats(int length, int[] counts, int numCycles) {
+    this.length = length;
+    this.counts = counts;
+    this.numCycles = numCycles;
+  }
+
+  /**
+   * Compute the statistics in a single pass, with a bitset to remember the visited indexes.
+   * The ranking is read through the store, so a compact or mapped ranking is not decoded.
+   *
+   * @param store the ranking of a permutation
+   * @param n     the length of the permutation, which is not less than {@code store.length()};
+   *              the indexes from {@code store.length()} to {@code n} are fixed points
+   * @return the statistics of the ranking
+   */
+  static CycleStats of(RankingStore store, int n) {
+    int size = store.length();
+    long[] visited = new long[(size + 63) >>> 6];
+    int[] counts = new int[Math.min(n, 8) + 1];
+    int moved = 0;
+    int numCycles = 0;
+    for (int i = 0; i < size; i++) {
+      if ((visited[i >>> 6] & (1L << i)) != 0 || store.get(i) == i)
+        continue;
+      int length = 0;
+      int j = i;
+      do {
+        visited[j >>> 6] |= 1L << j;
+        j = store.get(j);
+        length++;
+      } while (j != i);
+      if (length >= counts.length)
+        counts = Arrays.copyOf(counts, Math.max(2 * counts.length, length + 1));
+      counts[length]++;
+      moved += length;
+      numCycles++;
+    }
+    int fixed = n - moved;
+    if (fixed > 0)
+      counts[1] = fixed;
+    int longest = counts.length - 1;
+    while (longest > 0 && counts[longest] == 0)
+      longest--;
+    return new CycleStats(n, Arrays.copyOf(counts, longest + 1), numCycles + fixed);
+  }
+
+  /**
+   * @return the length of the permutation
+   */
+  public int length() {
+    return length;
+  }
+
+  /**
+   * Get the number of cycles of a given length.
+   *
+   * @param k a number
+   * @return the number of cycles of length {@code k}
+   */
+  public int count(int k) {
+    return k > 0 && k < counts.length ? counts[k] : 0;
+  }
+
+  /**
+   * Get the cycle type.
+   *
+   * @return an array {@code a} such that {@code a[k]} is the number of cycles of length {@code k},
+   * of length {@code longestCycle() + 1}
+   */
+  public int[] cycleType() {
+    return counts.clone();
+  }
+
+  /**
+   * @return the number of cycles, including the fixed points
+   */
+  public int numCycles() {
+    return numCycles;
+  }
+
+  /**
+   * @return the number of cycles of length greater than {@code 1}
+   * @see Cycles#numCycles()
+   */
+  public int numNontrivialCycles() {
+    return numCycles - count(1);
+  }
+
+  /**
+   * @return the number of fixed points
+   */
+  public int fixedPoints() {
+    return count(1);
+  }
+
+  /**
+   * @return the length of the longest cycle, or {@code 0} if the length of the permutation is {@code 0}
+   */
+  public int longestCycle() {
+    return counts.length - 1;
+  }
+
+  /**
+   * Calculate the <a href="http://en.wikipedia.org/wiki/Parity_of_a_permutation">signature</a>.
+   * A cycle of length {@code k} is a product of {@code k - 1} transpositions.
+   *
+   * @return {@code 1} if the permutation is even, {@code -1} otherwise
+   */
+  public int signature() {
+    return (length - numCycles) % 2 == 0 ? 1 : -1;
+  }
+
+  /**
+   * @return true if the signature is {@code 1}
+   */
+  public boolean isEven() {
+    return signature() == 1;
+  }
+
+  /**
+   * Calculate the order, which is the least common multiple of the cycle lengths.
+   *
+   * @return the order of the permutation
+   * @throws java.lang.ArithmeticException if the order does not fit in a {@code long}
+   * @see Permutation#order()
+   */
+  public long order() {
+    return CycleUtil.lcm(distinctLengths());
+  }
+
+  /**
+   * Calculate the order, which is the least common multiple of the cycle lengths.
+   *
+   * @return the order of the permutation
+   * @see Permutation#bigOrder()
+   */
+  public BigInteger bigOrder() {
+    return CycleUtil.bigLcm(distinctLengths());
+  }
+
+  private int[] distinctLengths() {
+    int distinct = 0;
+    for (int k = 2; k < counts.length; k++)
+      if (counts[k] != 0)
+        distinct++;
+    int[] result = new int[distinct];
+    for (int k = 2, m = 0; k < counts.length; k++)
+      if (counts[k] != 0)
+        result[m++] = k;
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o)
+      return true;
+    if (!(o instanceof CycleStats))
+      return false;
+    CycleStats other = (CycleStats) o;
+    return length == other.length && Arrays.equals(counts, other.counts);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * length + Arrays.hashCode(counts);
+  }
+
+  /**
+   * @return the cycle type in exponential notation, for example {@code 1^2 3^1} for a 3-cycle of length 5
+   */
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    for (int k = 1; k < counts.length; k++) {
+      if (counts[k] == 0)
+        continue;
+      if (sb.length() > 0)
+        sb.append(' ');
+      sb.append(k).append('^').append(counts[k]);
+    }
+    return sb.length() == 0 ? "()" : sb.toString();
+  }
+
+}
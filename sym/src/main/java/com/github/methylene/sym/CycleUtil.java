@@ -4,7 +4,11 @@ import static com.github.methylene.sym.ArrayUtil.duplicateFailure;
 import static com.github.methylene.sym.ArrayUtil.indexOf;
 import static com.github.methylene.sym.ArrayUtil.negativeFailure;
 
+import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * A collection of methods that return cycles or operate on cycles.
@@ -13,6 +17,14 @@ public final class CycleUtil {
 
   private CycleUtil() {}
 
+  /**
+   * Rankings shorter than this are never decomposed into cycles in parallel.
+   */
+  public static final int PARALLEL_CYCLES_THRESHOLD = 1 << 16;
+
+  /* in the parallel decomposition, cycles longer than this are walked sequentially */
+  static final int SHORT_CYCLE = 1 << 10;
+
   /**
    * Get the indexes that are moved by the input cycle.
    *
@@ -85,6 +97,78 @@ public final class CycleUtil {
     return length;
   }
 
+  /**
+   * Find the distinct lengths of the nontrivial cycles in the input ranking.
+   * Each cycle is walked once, and a bitset is used to remember the indexes that have been visited.
+   * This method does not check if the input is indeed a valid ranking and will have unexpected results otherwise.
+   *
+   * @param ranking a ranking
+   * @return the distinct cycle lengths greater than {@code 1}, in ascending order
+   */
+  public static int[] cycleLengths(int[] ranking) {
+    long[] visited = new long[(ranking.length + 63) >>> 6];
+    boolean[] seen = new boolean[ranking.length + 1];
+    int distinct = 0;
+    for (int i = 0; i < ranking.length; i += 1) {
+      if ((visited[i >>> 6] & (1L << i)) != 0 || ranking[i] == i)
+        continue;
+      int length = 0;
+      int j = i;
+      do {
+        visited[j >>> 6] |= 1L << j;
+        j = ranking[j];
+        length++;
+      } while (j != i);
+      if (!seen[length]) {
+        seen[length] = true;
+        distinct++;
+      }
+    }
+    int[] result = new int[distinct];
+    for (int length = 2, k = 0; k < distinct; length++)
+      if (seen[length])
+        result[k++] = length;
+    return result;
+  }
+
+  /**
+   * Calculate the least common multiple of the input numbers.
+   *
+   * @param numbers an array of positive numbers
+   * @return the least common multiple, or {@code 1} if the input is empty
+   * @throws java.lang.ArithmeticException if the result does not fit in a {@code long}
+   */
+  public static long lcm(int[] numbers) {
+    long result = 1;
+    for (int n : numbers)
+      result = Math.multiplyExact(result / gcd(result, n), n);
+    return result;
+  }
+
+  /**
+   * Calculate the least common multiple of the input numbers.
+   *
+   * @param numbers an array of positive numbers
+   * @return the least common multiple, or {@code 1} if the input is empty
+   */
+  public static BigInteger bigLcm(int[] numbers) {
+    BigInteger result = BigInteger.ONE;
+    for (int n : numbers) {
+      BigInteger b = BigInteger.valueOf(n);
+      result = result.divide(result.gcd(b)).multiply(b);
+    }
+    return result;
+  }
+
+  static long gcd(long a, long b) {
+    while (b != 0) {
+      long r = a % b;
+      a = b;
+      b = r;
+    }
+    return a;
+  }
+
   /**
    * Calculate the orbit of an index.
    * This method does not check if the input is indeed a valid ranking and will have unexpected results otherwise.
@@ -109,53 +193,165 @@ public final class CycleUtil {
 
   /**
    * Check if this ranking has at most a single orbit.
+   * The length of the first nontrivial orbit is compared to the number of indexes that are moved.
    * This method does not check if the input is indeed a valid ranking and will have unexpected results otherwise.
    *
    * @param ranking a ranking
    * @return true if the input is a cycle
    */
   public static boolean isCyclicRanking(int[] ranking) {
-    int[] candidate = null;
+    int moved = 0;
+    int first = -1;
     for (int i = 0; i < ranking.length; i += 1) {
       if (ranking[i] != i) {
-        if (candidate == null) {
-          candidate = orbit(ranking, i);
-          Arrays.sort(candidate);
-        } else {
-          if (Arrays.binarySearch(candidate, i) < 0) {
-            return false;
-          }
-        }
+        if (first < 0)
+          first = i;
+        moved++;
       }
     }
-    return true;
+    return first < 0 || order(ranking, first) == moved;
   }
 
   /**
    * Find all nontrivial cycles in the input ranking.
+   * Each cycle is walked once, starting at its least element, and a bitset is used to remember the indexes
+   * that have been visited. This takes {@code O(n)} time.
    * This method does not check if the input is indeed a valid ranking and will have unexpected results otherwise.
    *
    * @param ranking a ranking
-   * @return an array of all nontrivial orbits in the input ranking
+   * @return an array of all nontrivial orbits in the input ranking, ordered by their least element
    */
   public static int[][] toOrbits(int[] ranking) {
-    int[][] orbits = new int[ranking.length / 2][];
-    boolean[] done = new boolean[ranking.length];
-    int cnt = 0;
-    outer:
+    RankingStore store = new RankingStore.Ints(ranking);
+    long[] visited = new long[(ranking.length + 63) >>> 6];
+    int[] buffer = new int[ranking.length];
+    List<int[]> orbits = new ArrayList<>();
     for (int i = 0; i < ranking.length; i += 1) {
-      if (!done[i] && ranking[i] != i) {
-        int[] candidate = orbit(ranking, i);
-        for (int k : candidate)
-          done[k] = true;
-        for (int j = 0; j < cnt; j++)
-          if (orbits[j].length == candidate.length
-              && indexOf(orbits[j], candidate[0]) >= 0)
-            continue outer;
-        orbits[cnt++] = candidate;
+      if ((visited[i >>> 6] & (1L << i)) != 0 || ranking[i] == i)
+        continue;
+      orbits.add(Arrays.copyOf(buffer, walk(store, i, visited, buffer, 0)));
+    }
+    return orbits.toArray(new int[orbits.size()][]);
+  }
+
+  /**
+   * Find all nontrivial cycles in the input ranking, and store them in a flat array.
+   * This returns the same cycles as {@link #toOrbits(int[])}, in the same order.
+   *
+   * @param ranking a ranking
+   * @return the cycles of the input ranking
+   */
+  static Cycles toCycles(int[] ranking) {
+    return toCycles(new RankingStore.Ints(ranking));
+  }
+
+  /**
+   * Find all nontrivial cycles in a stored ranking, which is read as it is stored.
+   *
+   * @param store a ranking
+   * @return the cycles of the ranking
+   * @see #toCycles(int[])
+   */
+  static Cycles toCycles(RankingStore store) {
+    int n = store.length();
+    long[] visited = new long[(n + 63) >>> 6];
+    int[] flat = new int[n];
+    int[] offsets = new int[n / 2 + 1];
+    int size = 0;
+    int count = 0;
+    for (int i = 0; i < n; i += 1) {
+      if ((visited[i >>> 6] & (1L << i)) != 0 || store.get(i) == i)
+        continue;
+      size = walk(store, i, visited, flat, size);
+      offsets[++count] = size;
+    }
+    return Cycles.create(Arrays.copyOf(flat, size), Arrays.copyOf(offsets, count + 1));
+  }
+
+  /* write the cycle of i to out, starting at pos, and mark its elements as visited; returns the end position */
+  private static int walk(RankingStore store, int i, long[] visited, int[] out, int pos) {
+    int j = i;
+    do {
+      visited[j >>> 6] |= 1L << j;
+      out[pos++] = j;
+      j = store.get(j);
+    } while (j != i);
+    return pos;
+  }
+
+  /**
+   * Parallel version of {@link #toCycles(RankingStore)}, which returns the same cycles.
+   * <p/>
+   * Every index walks its own cycle, until it either comes back, or finds a smaller index, or has taken
+   * {@link #SHORT_CYCLE} steps. Only the least index of a short cycle comes back, so that each short cycle is
+   * found exactly once, and no bitset is needed. This is done in parallel. The long cycles are then walked
+   * sequentially, starting at the indexes that took too many steps.
+   * Permutations that consist of short cycles, such as involutions, are handled entirely in parallel.
+   *
+   * @param store a ranking
+   * @param pool the pool to run in
+   * @return the cycles of the ranking
+   */
+  static Cycles toCyclesParallel(RankingStore store, ForkJoinPool pool) {
+    int n = store.length();
+    if (n < PARALLEL_CYCLES_THRESHOLD || pool.getParallelism() == 1)
+      return toCycles(store);
+    int chunks = ParallelUtil.chunks(pool, n);
+    int[][] found = new int[chunks][];
+    int[] sizes = new int[chunks];
+    ParallelUtil.forEachChunk(pool, chunks, c -> {
+      // a short cycle is stored as its length followed by its elements, a long cycle as ~i
+      int[] out = new int[SHORT_CYCLE + 2];
+      int size = 0;
+      for (int i = ParallelUtil.start(n, chunks, c); i < ParallelUtil.start(n, chunks, c + 1); i++) {
+        if (store.get(i) == i)
+          continue;
+        if (out.length < size + SHORT_CYCLE + 2)
+          out = Arrays.copyOf(out, Math.max(2 * out.length, size + SHORT_CYCLE + 2));
+        int start = size + 1;
+        int pos = start;
+        out[pos++] = i;
+        int j = store.get(i);
+        while (j > i && pos - start <= SHORT_CYCLE) {
+          out[pos++] = j;
+          j = store.get(j);
+        }
+        if (j == i) {
+          out[size] = pos - start;
+          size = pos;
+        } else if (j > i) {
+          out[size++] = ~i;
+        }
+      }
+      found[c] = out;
+      sizes[c] = size;
+    });
+    long[] visited = new long[(n + 63) >>> 6];
+    int[] flat = new int[n];
+    int[] offsets = new int[n / 2 + 1];
+    int size = 0;
+    int count = 0;
+    for (int c = 0; c < chunks; c++) {
+      int[] out = found[c];
+      for (int k = 0; k < sizes[c]; ) {
+        int v = out[k];
+        if (v < 0) {
+          int i = ~v;
+          if ((visited[i >>> 6] & (1L << i)) == 0) {
+            size = walk(store, i, visited, flat, size);
+            offsets[++count] = size;
+          }
+          k++;
+        } else {
+          System.arraycopy(out, k + 1, flat, size, v);
+          size += v;
+          offsets[++count] = size;
+          k += v + 1;
+        }
       }
+      found[c] = null;
     }
-    return orbits.length == cnt ? orbits : Arrays.copyOf(orbits, cnt);
+    return Cycles.create(Arrays.copyOf(flat, size), Arrays.copyOf(offsets, count + 1));
   }
 
 }
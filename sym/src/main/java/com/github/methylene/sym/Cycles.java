@@ -3,10 +3,13 @@ package com.github.methylene.sym;
 import static com.github.methylene.sym.ArrayUtil.checkLength;
 
 import java.io.Serializable;
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.IntUnaryOperator;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -21,23 +24,39 @@ import java.util.stream.Stream;
  * </p>
  * <p/>
  * <p>
- * Applying it to a single index is {@code O(n)} whereas {@link Permutation} does this in constant time.
+ * The {@code clobber} methods rotate each cycle in place: one element is saved, and the others are shifted
+ * along the cycle, so that each element is read and written once.
+ * </p>
+ * <p/>
+ * <p>
+ * Applying it to a single index takes constant time, but the first such call builds an index of the cycles,
+ * which takes {@code O(n)} time and memory, and is then kept, even if caching is disabled.
+ * Instances that are only used for {@code clobber} never build it.
  * </p>
  *
  * @see Permutation#toCycles()
  */
 public final class Cycles implements Serializable {
 
-  private static final long serialVersionUID = 1L;
+  private static final long serialVersionUID = 2L;
 
-  private static final Cycles IDENTITY = new Cycles(Permutation.Orbits.EMPTY, 0);
+  private static final Cycles IDENTITY = new Cycles(new int[0], new int[1], 0);
 
   private final int length;
-  private final int[][] cycles;
 
-  private Cycles(Permutation.Orbits orbits, int length) {
+  /* the concatenated cycles, so that there is no array object per cycle */
+  private final int[] flat;
+
+  /* cycle c occupies flat[offsets[c], offsets[c + 1]) */
+  private final int[] offsets;
+
+  /* built when it is first needed by a point lookup */
+  private transient volatile Index index;
+
+  private Cycles(int[] flat, int[] offsets, int length) {
+    this.flat = flat;
+    this.offsets = offsets;
     this.length = length;
-    this.cycles = orbits.orbits;
   }
 
   /**
@@ -50,19 +69,19 @@ public final class Cycles implements Serializable {
   }
 
   /**
-   * Define a new operation as a list of cycles.
+   * Define a new operation from concatenated cycles.
    *
-   * @param orbits a list of cycles
+   * @param flat    the concatenated cycles, which are not copied
+   * @param offsets the start of each cycle in {@code flat}, followed by {@code flat.length}
    * @return the operation defined by the input
    */
-  static Cycles create(Permutation.Orbits orbits) {
-    if (orbits.orbits.length == 0)
+  static Cycles create(int[] flat, int[] offsets) {
+    if (flat.length == 0)
       return IDENTITY;
     int maxIndex = 0;
-    for (int[] orbit : orbits.orbits)
-      for (int i : orbit)
-        maxIndex = Math.max(maxIndex, i);
-    return new Cycles(orbits, maxIndex + 1);
+    for (int i : flat)
+      maxIndex = Math.max(maxIndex, i);
+    return new Cycles(flat, offsets, maxIndex + 1);
   }
 
   /**
@@ -73,12 +92,13 @@ public final class Cycles implements Serializable {
    */
   public void clobber(int[] array) {
     checkLength(length, array.length);
-    for (int[] cycle : cycles) {
-      for (int j = cycle.length - 2; j >= 0; j--) {
-        int temp = array[cycle[j + 1]];
-        array[cycle[j + 1]] = array[cycle[j]];
-        array[cycle[j]] = temp;
-      }
+    for (int c = offsets.length - 2; c >= 0; c--) {
+      int from = offsets[c];
+      int j = offsets[c + 1] - 1;
+      int temp = array[flat[j]];
+      for (; j > from; j--)
+        array[flat[j]] = array[flat[j - 1]];
+      array[flat[from]] = temp;
     }
   }
 
@@ -90,12 +110,13 @@ public final class Cycles implements Serializable {
    */
   public void unclobber(int[] array) {
     checkLength(length, array.length);
-    for (int[] cycle : cycles) {
-      for (int j = 0; j < cycle.length - 1; j++) {
-        int temp = array[cycle[j + 1]];
-        array[cycle[j + 1]] = array[cycle[j]];
-        array[cycle[j]] = temp;
-      }
+    for (int c = 0; c < offsets.length - 1; c++) {
+      int j = offsets[c];
+      int to = offsets[c + 1] - 1;
+      int temp = array[flat[j]];
+      for (; j < to; j++)
+        array[flat[j]] = array[flat[j + 1]];
+      array[flat[to]] = temp;
     }
   }
 
@@ -107,12 +128,13 @@ public final class Cycles implements Serializable {
    */
   public void clobber(byte[] array) {
     checkLength(length, array.length);
-    for (int[] cycle : cycles) {
-      for (int j = cycle.length - 2; j >= 0; j--) {
-        byte temp = array[cycle[j + 1]];
-        array[cycle[j + 1]] = array[cycle[j]];
-        array[cycle[j]] = temp;
-      }
+    for (int c = offsets.length - 2; c >= 0; c--) {
+      int from = offsets[c];
+      int j = offsets[c + 1] - 1;
+      byte temp = array[flat[j]];
+      for (; j > from; j--)
+        array[flat[j]] = array[flat[j - 1]];
+      array[flat[from]] = temp;
     }
   }
 
@@ -124,12 +146,13 @@ public final class Cycles implements Serializable {
    */
   public void unclobber(byte[] array) {
     checkLength(length, array.length);
-    for (int[] cycle : cycles) {
-      for (int j = 0; j < cycle.length - 1; j++) {
-        byte temp = array[cycle[j + 1]];
-        array[cycle[j + 1]] = array[cycle[j]];
-        array[cycle[j]] = temp;
-      }
+    for (int c = 0; c < offsets.length - 1; c++) {
+      int j = offsets[c];
+      int to = offsets[c + 1] - 1;
+      byte temp = array[flat[j]];
+      for (; j < to; j++)
+        array[flat[j]] = array[flat[j + 1]];
+      array[flat[to]] = temp;
     }
   }
 
@@ -141,12 +164,13 @@ public final class Cycles implements Serializable {
    */
   public void clobber(char[] array) {
     checkLength(length, array.length);
-    for (int[] cycle : cycles) {
-      for (int j = cycle.length - 2; j >= 0; j--) {
-        char temp = array[cycle[j + 1]];
-        array[cycle[j + 1]] = array[cycle[j]];
-        array[cycle[j]] = temp;
-      }
+    for (int c = offsets.length - 2; c >= 0; c--) {
+      int from = offsets[c];
+      int j = offsets[c + 1] - 1;
+      char temp = array[flat[j]];
+      for (; j > from; j--)
+        array[flat[j]] = array[flat[j - 1]];
+      array[flat[from]] = temp;
     }
   }
 
@@ -158,12 +182,13 @@ public final class Cycles implements Serializable {
    */
   public void unclobber(char[] array) {
     checkLength(length, array.length);
-    for (int[] cycle : cycles) {
-      for (int j = 0; j < cycle.length - 1; j++) {
-        char temp = array[cycle[j + 1]];
-        array[cycle[j + 1]] = array[cycle[j]];
-        array[cycle[j]] = temp;
-      }
+    for (int c = 0; c < offsets.length - 1; c++) {
+      int j = offsets[c];
+      int to = offsets[c + 1] - 1;
+      char temp = array[flat[j]];
+      for (; j < to; j++)
+        array[flat[j]] = array[flat[j + 1]];
+      array[flat[to]] = temp;
     }
   }
 
@@ -175,12 +200,13 @@ public final class Cycles implements Serializable {
    */
   public void clobber(short[] array) {
     checkLength(length, array.length);
-    for (int[] cycle : cycles) {
-      for (int j = cycle.length - 2; j >= 0; j--) {
-        short temp = array[cycle[j + 1]];
-        array[cycle[j + 1]] = array[cycle[j]];
-        array[cycle[j]] = temp;
-      }
+    for (int c = offsets.length - 2; c >= 0; c--) {
+      int from = offsets[c];
+      int j = offsets[c + 1] - 1;
+      short temp = array[flat[j]];
+      for (; j > from; j--)
+        array[flat[j]] = array[flat[j - 1]];
+      array[flat[from]] = temp;
     }
   }
 
@@ -192,12 +218,13 @@ public final class Cycles implements Serializable {
    */
   public void unclobber(short[] array) {
     checkLength(length, array.length);
-    for (int[] cycle : cycles) {
-      for (int j = 0; j < cycle.length - 1; j++) {
-        short temp = array[cycle[j + 1]];
-        array[cycle[j + 1]] = array[cycle[j]];
-        array[cycle[j]] = temp;
-      }
+    for (int c = 0; c < offsets.length - 1; c++) {
+      int j = offsets[c];
+      int to = offsets[c + 1] - 1;
+      short temp = array[flat[j]];
+      for (; j < to; j++)
+        array[flat[j]] = array[flat[j + 1]];
+      array[flat[to]] = temp;
     }
   }
 
@@ -209,12 +236,13 @@ public final class Cycles implements Serializable {
    */
   public void clobber(float[] array) {
     checkLength(length, array.length);
-    for (int[] cycle : cycles) {
-      for (int j = cycle.length - 2; j >= 0; j--) {
-        float temp = array[cycle[j + 1]];
-        array[cycle[j + 1]] = array[cycle[j]];
-        array[cycle[j]] = temp;
-      }
+    for (int c = offsets.length - 2; c >= 0; c--) {
+      int from = offsets[c];
+      int j = offsets[c + 1] - 1;
+      float temp = array[flat[j]];
+      for (; j > from; j--)
+        array[flat[j]] = array[flat[j - 1]];
+      array[flat[from]] = temp;
     }
   }
 
@@ -226,12 +254,13 @@ public final class Cycles implements Serializable {
    */
   public void unclobber(float[] array) {
     checkLength(length, array.length);
-    for (int[] cycle : cycles) {
-      for (int j = 0; j < cycle.length - 1; j++) {
-        float temp = array[cycle[j + 1]];
-        array[cycle[j + 1]] = array[cycle[j]];
-        array[cycle[j]] = temp;
-      }
+    for (int c = 0; c < offsets.length - 1; c++) {
+      int j = offsets[c];
+      int to = offsets[c + 1] - 1;
+      float temp = array[flat[j]];
+      for (; j < to; j++)
+        array[flat[j]] = array[flat[j + 1]];
+      array[flat[to]] = temp;
     }
   }
 
@@ -243,12 +272,13 @@ public final class Cycles implements Serializable {
    */
   public void clobber(double[] array) {
     checkLength(length, array.length);
-    for (int[] cycle : cycles) {
-      for (int j = cycle.length - 2; j >= 0; j--) {
-        double temp = array[cycle[j + 1]];
-        array[cycle[j + 1]] = array[cycle[j]];
-        array[cycle[j]] = temp;
-      }
+    for (int c = offsets.length - 2; c >= 0; c--) {
+      int from = offsets[c];
+      int j = offsets[c + 1] - 1;
+      double temp = array[flat[j]];
+      for (; j > from; j--)
+        array[flat[j]] = array[flat[j - 1]];
+      array[flat[from]] = temp;
     }
   }
 
@@ -260,12 +290,13 @@ public final class Cycles implements Serializable {
    */
   public void unclobber(double[] array) {
     checkLength(length, array.length);
-    for (int[] cycle : cycles) {
-      for (int j = 0; j < cycle.length - 1; j++) {
-        double temp = array[cycle[j + 1]];
-        array[cycle[j + 1]] = array[cycle[j]];
-        array[cycle[j]] = temp;
-      }
+    for (int c = 0; c < offsets.length - 1; c++) {
+      int j = offsets[c];
+      int to = offsets[c + 1] - 1;
+      double temp = array[flat[j]];
+      for (; j < to; j++)
+        array[flat[j]] = array[flat[j + 1]];
+      array[flat[to]] = temp;
     }
   }
 
@@ -277,12 +308,13 @@ public final class Cycles implements Serializable {
    */
   public void clobber(long[] array) {
     checkLength(length, array.length);
-    for (int[] cycle : cycles) {
-      for (int j = cycle.length - 2; j >= 0; j--) {
-        long temp = array[cycle[j + 1]];
-        array[cycle[j + 1]] = array[cycle[j]];
-        array[cycle[j]] = temp;
-      }
+    for (int c = offsets.length - 2; c >= 0; c--) {
+      int from = offsets[c];
+      int j = offsets[c + 1] - 1;
+      long temp = array[flat[j]];
+      for (; j > from; j--)
+        array[flat[j]] = array[flat[j - 1]];
+      array[flat[from]] = temp;
     }
   }
 
@@ -294,12 +326,13 @@ public final class Cycles implements Serializable {
    */
   public void unclobber(long[] array) {
     checkLength(length, array.length);
-    for (int[] cycle : cycles) {
-      for (int j = 0; j < cycle.length - 1; j++) {
-        long temp = array[cycle[j + 1]];
-        array[cycle[j + 1]] = array[cycle[j]];
-        array[cycle[j]] = temp;
-      }
+    for (int c = 0; c < offsets.length - 1; c++) {
+      int j = offsets[c];
+      int to = offsets[c + 1] - 1;
+      long temp = array[flat[j]];
+      for (; j < to; j++)
+        array[flat[j]] = array[flat[j + 1]];
+      array[flat[to]] = temp;
     }
   }
 
@@ -311,12 +344,13 @@ public final class Cycles implements Serializable {
    */
   public void clobber(Object[] array) {
     checkLength(length, array.length);
-    for (int[] cycle : cycles) {
-      for (int j = cycle.length - 2; j >= 0; j--) {
-        Object temp = array[cycle[j + 1]];
-        array[cycle[j + 1]] = array[cycle[j]];
-        array[cycle[j]] = temp;
-      }
+    for (int c = offsets.length - 2; c >= 0; c--) {
+      int from = offsets[c];
+      int j = offsets[c + 1] - 1;
+      Object temp = array[flat[j]];
+      for (; j > from; j--)
+        array[flat[j]] = array[flat[j - 1]];
+      array[flat[from]] = temp;
     }
   }
 
@@ -328,12 +362,13 @@ public final class Cycles implements Serializable {
    */
   public void unclobber(Object[] array) {
     checkLength(length, array.length);
-    for (int[] cycle : cycles) {
-      for (int j = 0; j < cycle.length - 1; j++) {
-        Object temp = array[cycle[j + 1]];
-        array[cycle[j + 1]] = array[cycle[j]];
-        array[cycle[j]] = temp;
-      }
+    for (int c = 0; c < offsets.length - 1; c++) {
+      int j = offsets[c];
+      int to = offsets[c + 1] - 1;
+      Object temp = array[flat[j]];
+      for (; j < to; j++)
+        array[flat[j]] = array[flat[j + 1]];
+      array[flat[to]] = temp;
     }
   }
 
@@ -347,12 +382,13 @@ public final class Cycles implements Serializable {
    */
   public <E> void clobber(List<E> list) {
     checkLength(length, list.size());
-    for (int[] cycle : cycles) {
-      for (int j = cycle.length - 2; j >= 0; j--) {
-        E temp = list.get(cycle[j + 1]);
-        list.set(cycle[j + 1], list.get(cycle[j]));
-        list.set(cycle[j], temp);
-      }
+    for (int c = offsets.length - 2; c >= 0; c--) {
+      int from = offsets[c];
+      int j = offsets[c + 1] - 1;
+      E temp = list.get(flat[j]);
+      for (; j > from; j--)
+        list.set(flat[j], list.get(flat[j - 1]));
+      list.set(flat[from], temp);
     }
   }
 
@@ -366,12 +402,13 @@ public final class Cycles implements Serializable {
    */
   public <E> void unclobber(List<E> list) {
     checkLength(length, list.size());
-    for (int[] cycle : cycles) {
-      for (int j = 0; j < cycle.length - 1; j++) {
-        E temp = list.get(cycle[j + 1]);
-        list.set(cycle[j + 1], list.get(cycle[j]));
-        list.set(cycle[j], temp);
-      }
+    for (int c = 0; c < offsets.length - 1; c++) {
+      int j = offsets[c];
+      int to = offsets[c + 1] - 1;
+      E temp = list.get(flat[j]);
+      for (; j < to; j++)
+        list.set(flat[j], list.get(flat[j + 1]));
+      list.set(flat[to], temp);
     }
   }
 
@@ -494,28 +531,92 @@ public final class Cycles implements Serializable {
 
   /**
    * Move an index. This method will not fail if the input is negative, but just return it unchanged.
+   * This takes constant time, after the index of the cycles has been built.
    *
    * @param n a number
    * @return the moved index
    */
   public int apply(int n) {
-    for (int[] cycle : cycles)
-      for (int j = cycle.length - 2; j >= 0; j--)
-        n = n == cycle[j] ? cycle[j + 1] : n == cycle[j + 1] ? cycle[j] : n;
-    return n;
+    if (n < 0 || n >= length)
+      return n;
+    Index index = index();
+    int p = index.position[n];
+    if (p < 0)
+      return n;
+    int c = index.cycle[n];
+    return flat[p + 1 == offsets[c + 1] ? offsets[c] : p + 1];
   }
 
   /**
    * Move an index back. This method will not fail if the input is negative, but just return it unchanged.
+   * This takes constant time, after the index of the cycles has been built.
    *
    * @param n a number
    * @return the moved index
    */
   public int unApply(int n) {
-    for (int[] cycle : cycles)
-      for (int j = 0; j < cycle.length - 1; j++)
-        n = n == cycle[j] ? cycle[j + 1] : n == cycle[j + 1] ? cycle[j] : n;
-    return n;
+    if (n < 0 || n >= length)
+      return n;
+    Index index = index();
+    int p = index.position[n];
+    if (p < 0)
+      return n;
+    int c = index.cycle[n];
+    return flat[p == offsets[c] ? offsets[c + 1] - 1 : p - 1];
+  }
+
+  /**
+   * Get the length of the cycle that contains an index.
+   * This takes constant time, after the index of the cycles has been built.
+   *
+   * @param n a number
+   * @return the length of the cycle that contains {@code n}, or {@code 1} if {@code n} is a fixed point
+   */
+  public int orbitLength(int n) {
+    if (n < 0 || n >= length)
+      return 1;
+    Index index = index();
+    if (index.position[n] < 0)
+      return 1;
+    int c = index.cycle[n];
+    return offsets[c + 1] - offsets[c];
+  }
+
+  /*
+   * racy, but every thread builds an equal index; it is kept even if caching is disabled,
+   * because only point lookups build it, and without it every lookup would allocate two arrays
+   */
+  private Index index() {
+    Index result = index;
+    if (result == null) {
+      result = new Index(flat, offsets, length);
+      index = result;
+    }
+    return result;
+  }
+
+  /**
+   * The position of each index in the flattened cycles.
+   */
+  private static final class Index {
+
+    /* the position of each index in flat, or -1 for fixed points */
+    private final int[] position;
+
+    /* the number of the cycle that contains each index; undefined for fixed points */
+    private final int[] cycle;
+
+    private Index(int[] flat, int[] offsets, int length) {
+      this.position = new int[length];
+      this.cycle = new int[length];
+      Arrays.fill(position, -1);
+      for (int c = 0; c < offsets.length - 1; c++) {
+        for (int p = offsets[c]; p < offsets[c + 1]; p++) {
+          position[flat[p]] = p;
+          cycle[flat[p]] = c;
+        }
+      }
+    }
   }
 
   /**
@@ -529,6 +630,55 @@ public final class Cycles implements Serializable {
     return Permutation.define(ranking);
   }
 
+  /**
+   * Raise this operation to the {@code k}th power, without going through a ranking.
+   * A cycle of length {@code L} splits into {@code gcd(L, k)} cycles of length {@code L / gcd(L, k)}.
+   * The result can be applied in place, see the {@code clobber} methods.
+   *
+   * @param k any number
+   * @return the {@code k}th power of this operation
+   */
+  public Cycles pow(final long k) {
+    return pow(length -> (int) Math.floorMod(k, (long) length));
+  }
+
+  /**
+   * Raise this operation to the {@code k}th power, without going through a ranking.
+   *
+   * @param k any number
+   * @return the {@code k}th power of this operation
+   * @see #pow(long)
+   */
+  public Cycles pow(final BigInteger k) {
+    if (k.bitLength() < 64)
+      return pow(k.longValue());
+    return pow(length -> k.mod(BigInteger.valueOf(length)).intValue());
+  }
+
+  private Cycles pow(IntUnaryOperator shift) {
+    int[] newFlat = new int[flat.length];
+    int[] newOffsets = new int[flat.length / 2 + 1];
+    int size = 0;
+    int count = 0;
+    for (int c = 0; c < offsets.length - 1; c++) {
+      int from = offsets[c];
+      int length = offsets[c + 1] - from;
+      int s = shift.applyAsInt(length);
+      if (s == 0)
+        continue;
+      int parts = (int) CycleUtil.gcd(length, s);
+      int newLength = length / parts;
+      if (newLength == 1)
+        continue;
+      for (int start = 0; start < parts; start++) {
+        for (int m = 0, j = start; m < newLength; m++, j = (j + s) % length)
+          newFlat[size++] = flat[from + j];
+        newOffsets[++count] = size;
+      }
+    }
+    return create(Arrays.copyOf(newFlat, size), Arrays.copyOf(newOffsets, count + 1));
+  }
+
   /**
    * Composing with another permutation creates a new operation.
    *
@@ -571,11 +721,11 @@ public final class Cycles implements Serializable {
 
   @Override
   public String toString() {
-    if (cycles.length == 0)
+    if (flat.length == 0)
       return "()";
-    List<String> s = Arrays.stream(cycles).map(a ->
+    List<String> s = IntStream.range(0, numCycles()).mapToObj(c ->
         "(" + String.join(" ",
-            Arrays.stream(a).mapToObj(Integer::toString).collect(Collectors.toList()))
+            Arrays.stream(flat, offsets[c], offsets[c + 1]).mapToObj(Integer::toString).collect(Collectors.toList()))
             + ")").collect(Collectors.toList());
     return String.join(" ", s);
   }
@@ -596,7 +746,7 @@ public final class Cycles implements Serializable {
    * @return the number of cycles
    */
   public int numCycles() {
-    return cycles.length;
+    return offsets.length - 1;
   }
 
   /**
@@ -606,7 +756,7 @@ public final class Cycles implements Serializable {
    * @throws java.lang.ArrayIndexOutOfBoundsException if the {@code n}th cycle does not exist
    */
   public int cycleLength(int n) {
-    return cycles[n].length;
+    return offsets[n + 1] - offsets[n];
   }
 
   /**
@@ -616,7 +766,7 @@ public final class Cycles implements Serializable {
    * @throws java.lang.ArrayIndexOutOfBoundsException if the {@code n}th cycle does not exist
    */
   public int[] getCycle(int n) {
-    return Arrays.copyOf(cycles[n], cycles[n].length);
+    return Arrays.copyOfRange(flat, offsets[n], offsets[n + 1]);
   }
 
   /**
@@ -626,7 +776,9 @@ public final class Cycles implements Serializable {
    * @throws java.lang.ArrayIndexOutOfBoundsException if the {@code m}th element of the {@code n}th cycle does not exist
    */
   public int getCycleElement(int n, int m) {
-    return cycles[n][m];
+    if (m < 0 || m >= cycleLength(n))
+      throw new ArrayIndexOutOfBoundsException(m);
+    return flat[offsets[n] + m];
   }
 
   /**
@@ -636,8 +788,8 @@ public final class Cycles implements Serializable {
    */
   public int signature() {
     boolean even = true;
-    for (int[] cycle : cycles)
-      if (cycle.length % 2 == 0)
+    for (int c = 0; c < offsets.length - 1; c++)
+      if ((offsets[c + 1] - offsets[c]) % 2 == 0)
         even = !even;
     return even ? 1 : -1;
   }
@@ -0,0 +1,182 @@
+package com.github.methylene.sym;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Count the inversions of a ranking with a merge sort.
+ * Runs in {@code O(n log n)}. The parallel version also merges in parallel, by splitting the
+ * longer of two sorted runs at its middle and the other one at the matching position.
+ */
+final class Inversions {
+
+  private Inversions() {}
+
+  /* runs of at most this length are sorted by insertion */
+  private static final int INSERTION_THRESHOLD = 32;
+
+  static long count(int[] ranking) {
+    int n = ranking.length;
+    if (n < 2)
+      return 0;
+    return sort(ranking.clone(), new int[n], 0, n, false);
+  }
+
+  static long countParallel(int[] ranking, ForkJoinPool pool) {
+    int n = ranking.length;
+    if (n <= ParallelUtil.MIN_CHUNK_SIZE || pool.getParallelism() == 1)
+      return count(ranking);
+    return pool.invoke(new SortTask(ranking.clone(), new int[n], 0, n, false));
+  }
+
+  /**
+   * Sort {@code a[from, to)} and count its inversions.
+   * The sorted run ends up in {@code buf} if {@code toBuf} is true, and in {@code a} otherwise.
+   * The other array is used as scratch space.
+   */
+  private static long sort(int[] a, int[] buf, int from, int to, boolean toBuf) {
+    if (to - from <= INSERTION_THRESHOLD) {
+      long count = insertionSort(a, from, to);
+      if (toBuf)
+        System.arraycopy(a, from, buf, from, to - from);
+      return count;
+    }
+    int mid = (from + to) >>> 1;
+    long count = sort(a, buf, from, mid, !toBuf) + sort(a, buf, mid, to, !toBuf);
+    int[] src = toBuf ? a : buf;
+    int[] dst = toBuf ? buf : a;
+    return count + merge(src, from, mid, mid, to, dst, from);
+  }
+
+  private static long insertionSort(int[] a, int from, int to) {
+    long count = 0;
+    for (int i = from + 1; i < to; i++) {
+      int x = a[i];
+      int j = i - 1;
+      while (j >= from && a[j] > x) {
+        a[j + 1] = a[j];
+        j--;
+      }
+      count += i - 1 - j;
+      a[j + 1] = x;
+    }
+    return count;
+  }
+
+  /**
+   * Merge the sorted runs {@code src[lo1, hi1)} and {@code src[lo2, hi2)} into {@code dst}, starting at {@code out}.
+   * @return the number of pairs where an element of the second run is less than an element of the first run
+   */
+  private static long merge(int[] src, int lo1, int hi1, int lo2, int hi2, int[] dst, int out) {
+    long count = 0;
+    int i = lo1;
+    int j = lo2;
+    while (i < hi1 && j < hi2) {
+      if (src[j] < src[i]) {
+        count += hi1 - i;
+        dst[out++] = src[j++];
+      } else {
+        dst[out++] = src[i++];
+      }
+    }
+    if (i < hi1)
+      System.arraycopy(src, i, dst, out, hi1 - i);
+    else if (j < hi2)
+      System.arraycopy(src, j, dst, out, hi2 - j);
+    return count;
+  }
+
+  /* first index in a[from, to) that is not less than key */
+  private static int lowerBound(int[] a, int from, int to, int key) {
+    while (from < to) {
+      int mid = (from + to) >>> 1;
+      if (a[mid] < key)
+        from = mid + 1;
+      else
+        to = mid;
+    }
+    return from;
+  }
+
+  private static final class SortTask extends RecursiveTask<Long> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int[] a;
+    private final int[] buf;
+    private final int from;
+    private final int to;
+    private final boolean toBuf;
+
+    private SortTask(int[] a, int[] buf, int from, int to, boolean toBuf) {
+      this.a = a;
+      this.buf = buf;
+      this.from = from;
+      this.to = to;
+      this.toBuf = toBuf;
+    }
+
+    @Override
+    protected Long compute() {
+      if (to - from <= ParallelUtil.MIN_CHUNK_SIZE)
+        return sort(a, buf, from, to, toBuf);
+      int mid = (from + to) >>> 1;
+      SortTask left = new SortTask(a, buf, from, mid, !toBuf);
+      left.fork();
+      long count = new SortTask(a, buf, mid, to, !toBuf).compute() + left.join();
+      int[] src = toBuf ? a : buf;
+      int[] dst = toBuf ? buf : a;
+      return count + new MergeTask(src, from, mid, mid, to, dst, from).compute();
+    }
+  }
+
+  /*
+   * Split the longer run at its middle element x, and the other run at the position of x.
+   * Every element of the lower second part is less than every element of the upper first part,
+   * and no other pair across the two halves is an inversion.
+   */
+  private static final class MergeTask extends RecursiveTask<Long> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int[] src;
+    private final int lo1;
+    private final int hi1;
+    private final int lo2;
+    private final int hi2;
+    private final int[] dst;
+    private final int out;
+
+    private MergeTask(int[] src, int lo1, int hi1, int lo2, int hi2, int[] dst, int out) {
+      this.src = src;
+      this.lo1 = lo1;
+      this.hi1 = hi1;
+      this.lo2 = lo2;
+      this.hi2 = hi2;
+      this.dst = dst;
+      this.out = out;
+    }
+
+    @Override
+    protected Long compute() {
+      int n1 = hi1 - lo1;
+      int n2 = hi2 - lo2;
+      if (n1 + n2 <= ParallelUtil.MIN_CHUNK_SIZE || n1 == 0 || n2 == 0)
+        return merge(src, lo1, hi1, lo2, hi2, dst, out);
+      int mid1;
+      int mid2;
+      if (n1 >= n2) {
+        mid1 = (lo1 + hi1) >>> 1;
+        mid2 = lowerBound(src, lo2, hi2, src[mid1]);
+      } else {
+        mid2 = (lo2 + hi2) >>> 1;
+        mid1 = lowerBound(src, lo1, hi1, src[mid2]);
+      }
+      MergeTask lower = new MergeTask(src, lo1, mid1, lo2, mid2, dst, out);
+      lower.fork();
+      long upper = new MergeTask(src, mid1, hi1, mid2, hi2, dst, out + (mid1 - lo1) + (mid2 - lo2)).compute();
+      return upper + lower.join() + (long) (mid2 - lo2) * (hi1 - mid1);
+    }
+  }
+
+}
@@ -0,0 +1,317 @@
+package com.github.methylene.sym;
+
+import static com.github.methylene.sym.ArrayUtil.checkLength;
+import static com.github.methylene.sym.ArrayUtil.negativeFailure;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * A permutation whose ranking is stored outside of the java heap, in direct byte buffers.
+ * This is meant for very long permutations, which would otherwise put a lot of pressure on the garbage collector.
+ * <p/>
+ * The memory is released by {@link #close()}; after that, all methods except {@code close} and
+ * {@link #isClosed()} throw an {@link IllegalStateException}. An instance must not be closed while
+ * another thread is using it. Apart from this, instances are immutable and can be shared between threads.
+ *
+ * @see Permutation
+ */
+public final class OffHeapPermutation implements AutoCloseable {
+
+  /* the ranking is split into buffers of 2^CHUNK_BITS ints, because a single buffer can hold at most 2 GB */
+  private static final int CHUNK_BITS = 28;
+
+  private static final Consumer<ByteBuffer> FREE = freeFunction();
+
+  private final int length;
+  private final int chunkBits;
+  private final int chunkMask;
+  private final ByteBuffer[] buffers;
+  private final IntBuffer[] chunks;
+  private volatile boolean closed;
+
+  private OffHeapPermutation(int length, int chunkBits) {
+    if (length < 0)
+      negativeFailure();
+    this.length = length;
+    this.chunkBits = chunkBits;
+    this.chunkMask = (1 << chunkBits) - 1;
+    int count = (int) (((long) length + chunkMask) >>> chunkBits);
+    this.buffers = new ByteBuffer[count];
+    this.chunks = new IntBuffer[count];
+    for (int c = 0; c < count; c++) {
+      int size = Math.min(1 << chunkBits, length - (c << chunkBits));
+      buffers[c] = ByteBuffer.allocateDirect(size * 4).order(ByteOrder.nativeOrder());
+      chunks[c] = buffers[c].asIntBuffer();
+    }
+  }
+
+
+  /**
+   * Copy a permutation to off-heap memory.
+   *
+   * @param permutation a permutation
+   * @return an off-heap permutation of length {@code permutation.length()}
+   */
+  public static OffHeapPermutation copyOf(Permutation permutation) {
+    return copyOf(permutation.getRanking());
+  }
+
+  /**
+   * Copy a ranking to off-heap memory.
+   *
+   * @param ranking a ranking
+   * @return an off-heap permutation of length {@code ranking.length}
+   * @throws java.lang.IllegalArgumentException if the input is not a ranking
+   */
+  public static OffHeapPermutation copyOf(int[] ranking) {
+    return copyOf(ranking, CHUNK_BITS);
+  }
+
+  /* small chunks are used to test the chunk boundaries */
+  static OffHeapPermutation copyOf(int[] ranking, int chunkBits) {
+    Rankings.checkRanking(ranking);
+    OffHeapPermutation result = new OffHeapPermutation(ranking.length, chunkBits);
+    for (int c = 0; c < result.chunks.length; c++)
+      result.chunks[c].duplicate().put(ranking, c << result.chunkBits, result.chunks[c].capacity());
+    return result;
+  }
+
+  /**
+   * Create the identity of given length in off-heap memory.
+   *
+   * @param length a non-negative number
+   * @return the identity of length {@code length}
+   */
+  public static OffHeapPermutation identity(int length) {
+    OffHeapPermutation result = new OffHeapPermutation(length, CHUNK_BITS);
+    for (int i = 0; i < length; i++)
+      result.set(i, i);
+    return result;
+  }
+
+  /**
+   * Create a random permutation in off-heap memory, without allocating its ranking on the heap.
+   *
+   * @param length a non-negative number
+   * @param random a source of randomness
+   * @return a random permutation of length {@code length}
+   */
+  public static OffHeapPermutation random(int length, Random random) {
+    OffHeapPermutation result = identity(length);
+    for (int i = length - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      int tmp = result.get(i);
+      result.set(i, result.get(j));
+      result.set(j, tmp);
+    }
+    return result;
+  }
+
+  private int get(int i) {
+    return chunks[i >>> chunkBits].get(i & chunkMask);
+  }
+
+  private void set(int i, int value) {
+    chunks[i >>> chunkBits].put(i & chunkMask, value);
+  }
+
+  private void checkOpen() {
+    if (closed)
+      throw new IllegalStateException("closed");
+  }
+
+  /**
+   * @return the length of this permutation
+   */
+  public int length() {
+    checkOpen();
+    return length;
+  }
+
+  /**
+   * Move an index.
+   *
+   * @param i a non negative number
+   * @return the moved index
+   * @see Permutation#apply(int)
+   */
+  public int apply(int i) {
+    checkOpen();
+    if (i < 0)
+      negativeFailure();
+    if (i >= length)
+      return i;
+    return get(i);
+  }
+
+  /**
+   * Rearrange an array. This method does not modify its input array.
+   *
+   * @param input an array of length not less than {@code this.length()}
+   * @return the result of applying this permutation to {@code input}
+   * @throws java.lang.IllegalArgumentException if {@code input.length < this.length()}
+   * @see Permutation#apply(int[])
+   */
+  public int[] apply(int[] input) {
+    checkOpen();
+    checkLength(length, input.length);
+    int[] result = new int[input.length];
+    for (int i = 0; i < length; i++)
+      result[get(i)] = input[i];
+    System.arraycopy(input, length, result, length, input.length - length);
+    return result;
+  }
+
+  /**
+   * Rearrange an array. This method does not modify its input array.
+   *
+   * @param input an array of length not less than {@code this.length()}
+   * @return the result of applying this permutation to {@code input}
+   * @throws java.lang.IllegalArgumentException if {@code input.length < this.length()}
+   * @see Permutation#apply(long[])
+   */
+  public long[] apply(long[] input) {
+    checkOpen();
+    checkLength(length, input.length);
+    long[] result = new long[input.length];
+    for (int i = 0; i < length; i++)
+      result[get(i)] = input[i];
+    System.arraycopy(input, length, result, length, input.length - length);
+    return result;
+  }
+
+  /**
+   * Invert this permutation. The result is allocated off-heap, and must be closed separately.
+   *
+   * @return the inverse of this permutation
+   * @see Permutation#invert()
+   */
+  public OffHeapPermutation invert() {
+    checkOpen();
+    OffHeapPermutation result = new OffHeapPermutation(length, chunkBits);
+    for (int i = 0; i < length; i++)
+      result.set(get(i), i);
+    return result;
+  }
+
+  /**
+   * Permutation composition. The result is allocated off-heap, and must be closed separately.
+   * If the lengths differ, the shorter permutation is padded with fixed points.
+   *
+   * @param other a permutation
+   * @return the product of this instance and {@code other}
+   * @see Permutation#compose(Permutation)
+   */
+  public OffHeapPermutation compose(OffHeapPermutation other) {
+    checkOpen();
+    other.checkOpen();
+    OffHeapPermutation result = new OffHeapPermutation(Math.max(length, other.length), chunkBits);
+    for (int i = 0; i < result.length; i++) {
+      int j = i < other.length ? other.get(i) : i;
+      result.set(i, j < length ? get(j) : j);
+    }
+    return result;
+  }
+
+  /**
+   * Decompose this permutation into cycles. The cycles are stored on the heap.
+   *
+   * @return the cycle decomposition of this permutation
+   * @see Permutation#toCycles()
+   */
+  public Cycles toCycles() {
+    checkOpen();
+    long[] visited = new long[(int) (((long) length + 63) >>> 6)];
+    int[] flat = new int[length];
+    int[] offsets = new int[length / 2 + 1];
+    int size = 0;
+    int count = 0;
+    for (int i = 0; i < length; i++) {
+      if ((visited[i >>> 6] & (1L << i)) != 0 || get(i) == i)
+        continue;
+      int j = i;
+      do {
+        visited[j >>> 6] |= 1L << j;
+        flat[size++] = j;
+        j = get(j);
+      } while (j != i);
+      offsets[++count] = size;
+    }
+    return Cycles.create(Arrays.copyOf(flat, size), Arrays.copyOf(offsets, count + 1));
+  }
+
+  /**
+   * Copy this permutation to the heap.
+   *
+   * @return an equivalent permutation
+   */
+  public Permutation toPermutation() {
+    checkOpen();
+    int[] ranking = new int[length];
+    for (int c = 0; c < chunks.length; c++)
+      chunks[c].duplicate().get(ranking, c << chunkBits, chunks[c].capacity());
+    return Permutation.define(ranking);
+  }
+
+  public boolean isClosed() {
+    return closed;
+  }
+
+  /**
+   * Release the off-heap memory. Calling this more than once has no effect.
+   */
+  @Override
+  public synchronized void close() {
+    if (closed)
+      return;
+    closed = true;
+    for (int c = 0; c < buffers.length; c++) {
+      chunks[c] = null;
+      FREE.accept(buffers[c]);
+      buffers[c] = null;
+    }
+  }
+
+  /*
+   * Direct buffers are normally freed when they are garbage collected. There is no public api to free them
+   * earlier: Java 9 and later have Unsafe.invokeCleaner, and Java 8 has the cleaner of the buffer itself.
+   * If neither is accessible, the buffers are simply left to the garbage collector.
+   */
+  private static Consumer<ByteBuffer> freeFunction() {
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+      Field field = unsafeClass.getDeclaredField("theUnsafe");
+      field.setAccessible(true);
+      Object unsafe = field.get(null);
+      return buffer -> {
+        try {
+          invokeCleaner.invoke(unsafe, buffer);
+        } catch (ReflectiveOperationException e) {
+          // left to the garbage collector
+        }
+      };
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      // not Java 9 or later
+    }
+    return buffer -> {
+      try {
+        Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+        cleanerMethod.setAccessible(true);
+        Object cleaner = cleanerMethod.invoke(buffer);
+        if (cleaner != null)
+          cleaner.getClass().getMethod("clean").invoke(cleaner);
+      } catch (ReflectiveOperationException | RuntimeException e) {
+        // left to the garbage collector
+      }
+    };
+  }
+
+}
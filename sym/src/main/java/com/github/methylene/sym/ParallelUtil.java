@@ -0,0 +1,85 @@
+package com.github.methylene.sym;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Helpers for splitting array operations into chunks that run on a {@link ForkJoinPool}.
+ */
+final class ParallelUtil {
+
+  private ParallelUtil() {}
+
+  /**
+   * Chunks are not made smaller than this, because the overhead of a task would dominate.
+   */
+  static final int MIN_CHUNK_SIZE = 1 << 13;
+
+  /**
+   * Decide how many chunks an array of the given length should be split into.
+   * There are a few more chunks than threads, so that the load can be balanced.
+   *
+   * @param pool a pool
+   * @param n    the length of an array
+   * @return a positive number
+   */
+  static int chunks(ForkJoinPool pool, int n) {
+    int byLength = n / MIN_CHUNK_SIZE;
+    return Math.max(1, Math.min(byLength, pool.getParallelism() * 4));
+  }
+
+  /**
+   * Get the start of a chunk. Chunk {@code c} covers the indexes from {@code start(n, chunks, c)}
+   * (inclusive) to {@code start(n, chunks, c + 1)} (exclusive).
+   *
+   * @param n      the length of the array
+   * @param chunks the number of chunks
+   * @param c      a chunk number, between {@code 0} and {@code chunks} (inclusive)
+   * @return the first index of chunk {@code c}
+   */
+  static int start(int n, int chunks, int c) {
+    return (int) ((long) n * c / chunks);
+  }
+
+  /**
+   * Run an action for each chunk number between {@code 0} (inclusive) and {@code chunks} (exclusive),
+   * and wait until all of them have completed.
+   *
+   * @param pool   the pool to run the actions in
+   * @param chunks the number of chunks
+   * @param action an action that takes a chunk number
+   */
+  static void forEachChunk(ForkJoinPool pool, int chunks, IntConsumer action) {
+    if (chunks == 1)
+      action.accept(0);
+    else
+      pool.invoke(new ChunkAction(0, chunks, action));
+  }
+
+  private static final class ChunkAction extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int from;
+    private final int to;
+    private final IntConsumer action;
+
+    private ChunkAction(int from, int to, IntConsumer action) {
+      this.from = from;
+      this.to = to;
+      this.action = action;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from == 1) {
+        action.accept(from);
+      } else {
+        int mid = (from + to) >>> 1;
+        invokeAll(new ChunkAction(from, mid, action), new ChunkAction(mid, to, action));
+      }
+    }
+  }
+
+}
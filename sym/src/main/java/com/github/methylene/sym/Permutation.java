@@ -1,7 +1,15 @@
 package com.github.methylene.sym;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.math.BigInteger;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Stream;
 
 import static com.github.methylene.sym.ArrayUtil.checkLength;
@@ -12,6 +20,9 @@ import static com.github.methylene.sym.ArrayUtil.negativeFailure;
  * <p/>
  * Instances of this class are immutable, and none of the apply methods modify the input.
  * The toCycles method can be used to obtain the destructive version of an instance.
+ * <p/>
+ * The hash code, the inverse and the cycles are computed when they are first needed, and then kept,
+ * unless caching has been disabled with {@link #setCaching(boolean)}.
  *
  * @see #toCycles
  */
@@ -19,18 +30,103 @@ public final class Permutation implements Comparable<Permutation>, Serializable
 
   private static final long serialVersionUID = 1L;
 
+  /* the serialized form is the ranking, which is validated when it is read */
+  private static final ObjectStreamField[] serialPersistentFields = {
+      new ObjectStreamField("ranking", int[].class)
+  };
+
   /*
-   *  An array of N integers where each of the integers between 0 and N-1 appear exactly once.
-   *  This array is never modified, and no code outside of this class can have a reference to it.
+   *  A ranking of N integers where each of the integers between 0 and N-1 appear exactly once,
+   *  stored in as few bits per entry as possible.
+   *  The store is never modified, and no code outside of this class can have a reference to it.
    *  Because of this, Permutation instances are effectively immutable.
+   *  The store is only assigned in a constructor or in readObject.
+   */
+  private transient RankingStore store;
+
+  /*
+   * Caches, which are written without locking. Any thread that finds a cache empty computes an equal value.
+   * This is safe for the hash, which is an int, and for the cycles, whose fields are final. The inverse is volatile,
+   * so that a thread that sees it also sees that its own inverse is this instance.
    */
-  private final int[] ranking;
+  private transient int hash;
+  private transient volatile Permutation inverse;
+  private transient Cycles cycles;
+
+  private static volatile boolean caching = !"false".equals(System.getProperty("com.github.methylene.sym.caching"));
 
   private static final Permutation IDENTITY = new Permutation(new int[0], false);
 
   private Permutation(int[] ranking, boolean validate) {
     ranking = Rankings.trim(ranking);
-    this.ranking = validate ? Rankings.checkRanking(ranking) : ranking;
+    this.store = RankingStore.of(validate ? Rankings.checkRanking(ranking) : ranking);
+  }
+
+  private Permutation(RankingStore store) {
+    this.store = store;
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    ObjectOutputStream.PutField fields = out.putFields();
+    fields.put("ranking", store.toArray());
+    out.writeFields();
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    int[] ranking = (int[]) in.readFields().get("ranking", null);
+    if (ranking == null)
+      throw new InvalidObjectException("ranking is missing");
+    try {
+      this.store = RankingStore.of(Rankings.trim(Rankings.checkRanking(ranking)));
+    } catch (IllegalArgumentException e) {
+      InvalidObjectException failure = new InvalidObjectException(e.getMessage());
+      failure.initCause(e);
+      throw failure;
+    }
+  }
+
+  /* the ranking of this permutation, which must not be modified; a compact store decodes a temporary copy */
+  private int[] ranking() {
+    return store.array();
+  }
+
+  /* the store, which must not be modified */
+  RankingStore store() {
+    return store;
+  }
+
+  /* a permutation with the given ranking, which is neither validated nor copied */
+  static Permutation trusted(int[] ranking) {
+    return define(ranking, false);
+  }
+
+  /* the inverse of the ranking, which must not be modified */
+  private int[] inverseRanking() {
+    return invert().ranking();
+  }
+
+  /* the inverse is only used if it is already there, because computing it costs more than the gather saves */
+  private ApplyEngine engine(int elementBytes) {
+    return ApplyEngine.select(store.length(), elementBytes, inverse != null);
+  }
+
+  /**
+   * Enable or disable the caching of hash codes, inverses and cycles, for all instances.
+   * Caching is enabled by default, unless the system property {@code com.github.methylene.sym.caching}
+   * is {@code false}. Disabling it saves memory, but values that have already been cached are kept.
+   *
+   * @param enabled whether values should be cached from now on
+   */
+  public static void setCaching(boolean enabled) {
+    caching = enabled;
+  }
+
+  /**
+   * @return true if hash codes, inverses and cycles are cached
+   * @see #setCaching(boolean)
+   */
+  public static boolean isCaching() {
+    return caching;
   }
 
   public static Permutation define() {
@@ -105,12 +201,41 @@ public final class Permutation implements Comparable<Permutation>, Serializable
     int[] trimmed = Rankings.trim(ranking);
     if (trimmed.length == 0)
       return IDENTITY;
-    if (copy && ranking == trimmed) {
+    // short rankings are copied into a compact store anyway
+    if (copy && ranking == trimmed && trimmed.length > RankingStore.MAX_CHAR_LENGTH) {
       trimmed = Arrays.copyOf(trimmed, trimmed.length);
     }
     return new Permutation(trimmed, validate);
   }
 
+  /**
+   * Map a file that was created by {@link #write(Path)}. The file is neither read nor copied:
+   * {@link #apply(int)} and the array {@code apply} methods read straight from the mapping,
+   * and pages of the file are loaded when they are first accessed.
+   * Other methods may copy the ranking to the heap.
+   * <p/>
+   * The content of the file is not validated, and it must not be modified while the permutation is in use.
+   *
+   * @param path a file
+   * @return the permutation that is stored in the file
+   * @throws java.io.IOException if the file cannot be read, or was not created by {@link #write(Path)}
+   */
+  public static Permutation map(Path path) throws IOException {
+    RankingStore store = PermutationFile.map(path);
+    return store.length() == 0 ? IDENTITY : new Permutation(store);
+  }
+
+  /**
+   * Write this permutation to a file, which can later be mapped by {@link #map(Path)}.
+   * An existing file is overwritten.
+   *
+   * @param path a file
+   * @throws java.io.IOException if the file cannot be written
+   */
+  public void write(Path path) throws IOException {
+    PermutationFile.write(ranking(), path);
+  }
+
   /**
    * Creates a new <a href="http://en.wikipedia.org/wiki/Cyclic_permutation">cycle</a>.
    * A single number {@code n} creates the identity of length {@code n + 1}.
@@ -170,9 +295,11 @@ public final class Permutation implements Comparable<Permutation>, Serializable
   public Permutation compose(Permutation other) {
     if (this.isIdentity())
       return other;
-    if (other.ranking.length == 0)
+    if (other.store.length() == 0)
       return this;
-    return define(Rankings.comp(this.ranking, other.ranking), false);
+    int[] result = other.store.toArray(Math.max(store.length(), other.store.length()));
+    store.composeInto(result, 0);
+    return define(result, false);
   }
 
   /**
@@ -183,26 +310,109 @@ public final class Permutation implements Comparable<Permutation>, Serializable
    * @see #compose
    */
   public static Permutation product(Permutation... permutations) {
-    Permutation result = identity();
-    for (Permutation permutation : permutations)
-      result = result.compose(permutation);
-    return result;
+    return PermutationExpression.product(permutations).evaluate();
   }
 
   /**
    * Take the product of the given permutations. If the input is empty, a permutation of length {@code 0} is returned.
+   * The product is computed in a single pass, without intermediate products.
    *
    * @param permutations an iterable of permutations
    * @return the product of the input
    * @see #compose
+   * @see PermutationExpression#evaluate()
    */
   public static Permutation product(Iterable<Permutation> permutations) {
-    Permutation result = identity();
-    for (Permutation permutation : permutations)
-      result = result.compose(permutation);
+    return PermutationExpression.product(permutations).evaluate();
+  }
+
+  /**
+   * Parallel version of {@link #product(Iterable)}, which returns the same result. Uses the common pool.
+   *
+   * @param permutations a list of permutations
+   * @return the product of the input
+   * @see #parallelProduct(List, ForkJoinPool)
+   */
+  public static Permutation parallelProduct(List<Permutation> permutations) {
+    return parallelProduct(permutations, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Parallel version of {@link #product(Iterable)}, which returns the same result.
+   * <p/>
+   * The list is split into runs of consecutive factors. The product of each run is computed in parallel,
+   * in a buffer of its own. The buffers are then multiplied in pairs, in a balanced tree, and each product
+   * overwrites one of its two factors, so that no buffers are allocated above the runs.
+   *
+   * @param permutations a list of permutations
+   * @param pool the pool to run in
+   * @return the product of the input
+   */
+  public static Permutation parallelProduct(List<Permutation> permutations, ForkJoinPool pool) {
+    Permutation[] factors = permutations.toArray(new Permutation[permutations.size()]);
+    long work = 0;
+    for (Permutation factor : factors)
+      work += factor.length();
+    int runs = Math.min(factors.length, ParallelUtil.chunks(pool, (int) Math.min(work, Integer.MAX_VALUE)));
+    if (runs <= 1 || pool.getParallelism() == 1)
+      return product(factors);
+    int[][] buffers = new int[runs][];
+    ParallelUtil.forEachChunk(pool, runs, c ->
+        buffers[c] = runProduct(factors, ParallelUtil.start(factors.length, runs, c),
+            ParallelUtil.start(factors.length, runs, c + 1)));
+    for (int step = 1; step < runs; step *= 2) {
+      int width = step;
+      int pairs = (runs - step + 2 * step - 1) / (2 * step);
+      ParallelUtil.forEachChunk(pool, pairs, c -> {
+        int left = 2 * width * c;
+        buffers[left] = compInPlace(buffers[left], buffers[left + width]);
+        buffers[left + width] = null;
+      });
+    }
+    return define(buffers[0], false);
+  }
+
+  /*
+   * The product of factors[from] to factors[to - 1]. It is composed from left to right,
+   * so that each factor only sweeps its own length.
+   */
+  private static int[] runProduct(Permutation[] factors, int from, int to) {
+    int length = 0;
+    for (int k = from; k < to; k++)
+      length = Math.max(length, factors[k].length());
+    int[] result = ArrayUtil.range(length);
+    int[] scratch = new int[length];
+    for (int k = from; k < to; k++)
+      factors[k].store.composeRight(result, 0, scratch);
     return result;
   }
 
+  /*
+   * The product of two rankings, which overwrites one of them. Since rhs is a ranking, only the first
+   * rhs.length entries of lhs are read, so they can be written once all of them have been read.
+   */
+  private static int[] compInPlace(int[] lhs, int[] rhs) {
+    if (rhs.length >= lhs.length) {
+      for (int i = 0; i < rhs.length; i++)
+        if (rhs[i] < lhs.length)
+          rhs[i] = lhs[rhs[i]];
+      return rhs;
+    }
+    for (int i = 0; i < rhs.length; i++)
+      rhs[i] = lhs[rhs[i]];
+    System.arraycopy(rhs, 0, lhs, 0, rhs.length);
+    return lhs;
+  }
+
+  /**
+   * Start a lazy expression. The operations of the expression are only recorded, until it is evaluated.
+   *
+   * @return an expression that evaluates to this permutation
+   */
+  public PermutationExpression lazy() {
+    return PermutationExpression.of(this);
+  }
+
 
   /**
    * Raise this permutation to the {@code n}th power.
@@ -220,17 +430,42 @@ public final class Permutation implements Comparable<Permutation>, Serializable
    *
    * @param n any integer
    * @return the {@code n}th power of this permutation
+   * @see #pow(long)
    */
   public Permutation pow(int n) {
+    return pow((long) n);
+  }
+
+  /**
+   * Raise this permutation to the {@code n}th power.
+   * Each cycle is walked once, so this takes linear time, regardless of the size of {@code n}.
+   *
+   * @param n any number
+   * @return the {@code n}th power of this permutation
+   * @see #pow(int)
+   */
+  public Permutation pow(long n) {
     if (n == 0)
       return identity();
-    if (this.ranking.length == 0)
+    if (this.store.length() == 0 || n == 1)
       return this;
-    Permutation seed = n < 0 ? invert() : this;
-    Permutation result = seed;
-    for (int i = 1; i < Math.abs(n); i += 1)
-      result = result.compose(seed);
-    return result;
+    return define(Rankings.pow(ranking(), n), false);
+  }
+
+  /**
+   * Raise this permutation to the {@code n}th power.
+   * Each cycle is walked once, so this takes linear time, regardless of the size of {@code n}.
+   *
+   * @param n any number
+   * @return the {@code n}th power of this permutation
+   * @see #pow(int)
+   */
+  public Permutation pow(BigInteger n) {
+    if (n.signum() == 0)
+      return identity();
+    if (this.store.length() == 0)
+      return this;
+    return define(Rankings.pow(ranking(), n), false);
   }
 
   /**
@@ -238,15 +473,26 @@ public final class Permutation implements Comparable<Permutation>, Serializable
    * <pre><code>
    *   this.compose(this.inverse).isIdentity();
    * </code></pre>
+   * <p>The inverse is cached, and linked back to this instance, so that {@code this.invert().invert() == this}.</p>
    *
    * @return the inverse of this permutation
    * @see #compose
    * @see #isIdentity
    */
   public Permutation invert() {
-    if (this.ranking.length == 0)
+    if (this.store.length() == 0)
       return this;
-    return define(Rankings.invert(ranking), false);
+    Permutation result = inverse;
+    if (result == null) {
+      int[] inverted = new int[store.length()];
+      store.invertInto(inverted);
+      result = define(inverted, false);
+      if (caching) {
+        result.inverse = this;
+        inverse = result;
+      }
+    }
+    return result;
   }
 
   /**
@@ -283,7 +529,7 @@ public final class Permutation implements Comparable<Permutation>, Serializable
    * @throws java.lang.IllegalArgumentException if {@code i < 0} or {@code i >= this.length}.
    */
   public int[] orbit(int i) {
-    return CycleUtil.orbit(ranking, i);
+    return CycleUtil.orbit(ranking(), i);
   }
 
   /**
@@ -292,20 +538,221 @@ public final class Permutation implements Comparable<Permutation>, Serializable
    * <pre><code>
    *   this.pow(n).isIdentity();
    * </code></pre>
+   * <p>It is the least common multiple of the cycle lengths, which is computed in a single pass.</p>
    *
    * @return the order of this permutation
-   * @throws java.lang.IllegalArgumentException if {@code pos < 0} or {@code pos >= this.length}
+   * @throws java.lang.ArithmeticException if the order does not fit in a {@code long}
+   * @see #bigOrder
    * @see #isIdentity
    * @see #pow
    */
-  public int order() {
-    int i = 1;
-    Permutation p = this;
-    while (p.ranking.length != 0) {
-      i += 1;
-      p = p.compose(this);
-    }
-    return i;
+  public long order() {
+    return cycleStats().order();
+  }
+
+  /**
+   * Calculate the order of this permutation. Unlike {@link #order()}, this method does not fail
+   * if the order is very large.
+   *
+   * @return the order of this permutation
+   * @see #order
+   */
+  public BigInteger bigOrder() {
+    return cycleStats().bigOrder();
+  }
+
+  /**
+   * Compute the cycle type of this permutation, and the statistics that follow from it, in a single pass.
+   * This is cheaper than {@link #toCycles()}, because the cycles are not stored.
+   *
+   * @return the cycle statistics of this permutation
+   */
+  public CycleStats cycleStats() {
+    return CycleStats.of(store, store.length());
+  }
+
+  /**
+   * Compute the cycle statistics of this permutation, as a permutation of length {@code n}.
+   * The indexes from {@code this.length()} to {@code n} are counted as fixed points.
+   *
+   * @param n a number that is not less than {@code this.length()}
+   * @return the cycle statistics of this permutation
+   * @throws java.lang.IllegalArgumentException if {@code n < this.length()}
+   */
+  public CycleStats cycleStats(int n) {
+    if (n < store.length())
+      throw new IllegalArgumentException("n is less than length: " + n);
+    return CycleStats.of(store, n);
+  }
+
+  /**
+   * Count the inversions of this permutation, which are the pairs {@code i < j} such that
+   * {@code apply(i) > apply(j)}. Runs in {@code O(n log n)}.
+   *
+   * @return the number of inversions
+   * @see #kendallTau(Permutation)
+   */
+  public long inversions() {
+    return Rankings.inversions(ranking());
+  }
+
+  /**
+   * Parallel version of {@link #inversions()}.
+   *
+   * @param pool the pool to run in
+   * @return the number of inversions
+   */
+  public long inversionsParallel(ForkJoinPool pool) {
+    return Rankings.inversionsParallel(ranking(), pool);
+  }
+
+  /**
+   * Compute the Kendall tau distance to another permutation, which is the number of pairs
+   * {@code i, j} such that {@code this.apply(i) < this.apply(j)} and {@code other.apply(i) > other.apply(j)}.
+   * Runs in {@code O(n log n)}.
+   *
+   * @param other a permutation
+   * @return the Kendall tau distance
+   * @see #inversions()
+   */
+  public long kendallTau(Permutation other) {
+    return Rankings.kendallTau(ranking(), other.ranking());
+  }
+
+  /**
+   * Parallel version of {@link #kendallTau(Permutation)}.
+   *
+   * @param other a permutation
+   * @param pool the pool to run in
+   * @return the Kendall tau distance
+   */
+  public long kendallTauParallel(Permutation other, ForkJoinPool pool) {
+    return Rankings.kendallTauParallel(ranking(), other.ranking(), pool);
+  }
+
+  /**
+   * Compute the Cayley distance to another permutation, which is the least number of transpositions
+   * that turn one into the other.
+   *
+   * @param other a permutation
+   * @return the Cayley distance
+   * @see Rankings#cayleyDistance(int[], int[])
+   */
+  public int cayleyDistance(Permutation other) {
+    return Rankings.cayleyDistance(ranking(), other.ranking());
+  }
+
+  /**
+   * Compute the Ulam distance to another permutation, which is the least number of moves that turn
+   * one into the other, where a move takes out one element and inserts it elsewhere.
+   *
+   * @param other a permutation
+   * @return the Ulam distance
+   * @see Rankings#ulamDistance(int[], int[])
+   */
+  public int ulamDistance(Permutation other) {
+    return Rankings.ulamDistance(ranking(), other.ranking());
+  }
+
+  /**
+   * Compute the Hamming distance to another permutation, which is the number of indexes {@code i}
+   * such that {@code this.apply(i) != other.apply(i)}.
+   *
+   * @param other a permutation
+   * @return the Hamming distance
+   */
+  public int hammingDistance(Permutation other) {
+    return Rankings.hammingDistance(ranking(), other.ranking());
+  }
+
+  /**
+   * Compute the Spearman footrule distance to another permutation, which is the sum of
+   * {@code |this.apply(i) - other.apply(i)|} over all indexes {@code i}.
+   *
+   * @param other a permutation
+   * @return the footrule distance
+   */
+  public long spearmanFootrule(Permutation other) {
+    return Rankings.spearmanFootrule(ranking(), other.ranking());
+  }
+
+  /**
+   * Calculate the lexicographic rank of this permutation among all permutations of length {@code n}.
+   * Since permutations are not distinguished by trailing fixed points, the rank depends on {@code n}.
+   *
+   * @param n a number that is not less than {@code this.length()}
+   * @return the lexicographic rank of this permutation in the symmetric group of degree {@code n}
+   * @throws java.lang.IllegalArgumentException if {@code n < this.length()}
+   * @throws java.lang.ArithmeticException if the rank does not fit in a {@code long}
+   * @see #unrank(int, long)
+   * @see #symmetricGroup(int)
+   */
+  public long rank(int n) {
+    return Rankings.rank(padding(n));
+  }
+
+  /**
+   * Calculate the lexicographic rank of this permutation among all permutations of length {@code this.length()}.
+   *
+   * @return the lexicographic rank of this permutation
+   * @throws java.lang.ArithmeticException if the rank does not fit in a {@code long}
+   * @see #rank(int)
+   */
+  public long rank() {
+    return Rankings.rank(ranking());
+  }
+
+  /**
+   * Calculate the lexicographic rank of this permutation among all permutations of length {@code n}.
+   * Unlike {@link #rank(int)}, this method does not fail if the rank is very large.
+   *
+   * @param n a number that is not less than {@code this.length()}
+   * @return the lexicographic rank of this permutation in the symmetric group of degree {@code n}
+   * @throws java.lang.IllegalArgumentException if {@code n < this.length()}
+   * @see #unrank(int, BigInteger)
+   */
+  public BigInteger bigRank(int n) {
+    return Rankings.bigRank(padding(n));
+  }
+
+  /**
+   * Calculate the lexicographic rank of this permutation among all permutations of length {@code this.length()}.
+   *
+   * @return the lexicographic rank of this permutation
+   * @see #bigRank(int)
+   */
+  public BigInteger bigRank() {
+    return Rankings.bigRank(ranking());
+  }
+
+  /**
+   * Find the permutation that has the given lexicographic rank among all permutations of length {@code n}.
+   *
+   * @param n a non-negative number
+   * @param rank a number between {@code 0} (inclusive) and {@code n!} (exclusive)
+   * @return a permutation {@code p} such that {@code p.rank(n) == rank}
+   * @throws java.lang.IllegalArgumentException if {@code n} is negative or {@code rank} is out of range
+   */
+  public static Permutation unrank(int n, long rank) {
+    return define(Rankings.unrank(n, rank), false);
+  }
+
+  /**
+   * Find the permutation that has the given lexicographic rank among all permutations of length {@code n}.
+   *
+   * @param n a non-negative number
+   * @param rank a number between {@code 0} (inclusive) and {@code n!} (exclusive)
+   * @return a permutation {@code p} such that {@code p.bigRank(n).equals(rank)}
+   * @throws java.lang.IllegalArgumentException if {@code n} is negative or {@code rank} is out of range
+   */
+  public static Permutation unrank(int n, BigInteger rank) {
+    return define(Rankings.unrank(n, rank), false);
+  }
+
+  private int[] padding(int n) {
+    if (n < store.length())
+      throw new IllegalArgumentException("n is less than length: " + n);
+    return store.toArray(n);
   }
 
   /**
@@ -316,7 +763,7 @@ public final class Permutation implements Comparable<Permutation>, Serializable
    * @see #orbit
    */
   public boolean isCycle() {
-    return CycleUtil.isCyclicRanking(ranking);
+    return CycleUtil.isCyclicRanking(ranking());
   }
 
   /**
@@ -325,9 +772,45 @@ public final class Permutation implements Comparable<Permutation>, Serializable
    * @return a cycle based version of this operation
    */
   public Cycles toCycles() {
-    if (this.ranking.length == 0)
+    if (this.store.length() == 0)
+      return Cycles.identity();
+    Cycles result = cycles;
+    if (result == null) {
+      result = CycleUtil.toCycles(store);
+      if (caching)
+        cycles = result;
+    }
+    return result;
+  }
+
+  /**
+   * Parallel version of {@link #toCycles()}, which returns the same result.
+   * Uses the common pool.
+   *
+   * @return a cycle based version of this operation
+   */
+  public Cycles toCyclesParallel() {
+    return toCyclesParallel(ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Parallel version of {@link #toCycles()}, which returns the same result.
+   * Short cycles are found in parallel, long cycles are walked sequentially.
+   *
+   * @param pool the pool to run in
+   * @return a cycle based version of this operation
+   * @see CycleUtil#PARALLEL_CYCLES_THRESHOLD
+   */
+  public Cycles toCyclesParallel(ForkJoinPool pool) {
+    if (this.store.length() == 0)
       return Cycles.identity();
-    return Cycles.create(new Orbits(CycleUtil.toOrbits(ranking)));
+    Cycles result = cycles;
+    if (result == null) {
+      result = CycleUtil.toCyclesParallel(store, pool);
+      if (caching)
+        cycles = result;
+    }
+    return result;
   }
 
 
@@ -358,12 +841,12 @@ public final class Permutation implements Comparable<Permutation>, Serializable
    * @see #reverse
    */
   public boolean reverses(int n) {
-    if (ranking.length < n)
+    if (store.length() < n)
       return false;
     if (n < 0)
       negativeFailure();
     for (int i = 0; i < n; i += 1)
-      if (ranking[i] != ranking.length - i - 1)
+      if (store.get(i) != store.length() - i - 1)
         return false;
     return true;
   }
@@ -380,9 +863,14 @@ public final class Permutation implements Comparable<Permutation>, Serializable
    * @throws java.lang.IllegalArgumentException if n is negative
    */
   public Permutation shift(int n) {
-    if (ranking.length == 0 && n == 0)
+    if (store.length() == 0 && n == 0)
       return this;
-    return define(Rankings.shift(n, ranking), false);
+    if (n < 0)
+      negativeFailure();
+    int[] shifted = ArrayUtil.range(n + store.length());
+    for (int i = 0; i < store.length(); i++)
+      shifted[n + i] = n + store.get(i);
+    return define(shifted, false);
   }
 
   /**
@@ -391,10 +879,10 @@ public final class Permutation implements Comparable<Permutation>, Serializable
    * @return a cycle in this permutation or {@code null} if there are no cycles because this is the identity
    */
   public int[] findCycle() {
-    if (ranking.length == 0)
+    if (store.length() == 0)
       return null;
-    for (int i = 0; i < ranking.length; i++)
-      if (ranking[i] != i)
+    for (int i = 0; i < store.length(); i++)
+      if (store.get(i) != i)
         return orbit(i);
     throw new IllegalStateException(); // we'll never get here
   }
@@ -405,7 +893,7 @@ public final class Permutation implements Comparable<Permutation>, Serializable
    * @return true if this is the identity
    */
   public boolean isIdentity() {
-    return ranking.length == 0;
+    return store.length() == 0;
   }
 
   /**
@@ -416,7 +904,7 @@ public final class Permutation implements Comparable<Permutation>, Serializable
    */
 
   public int length() {
-    return ranking.length;
+    return store.length();
   }
 
   /**
@@ -426,7 +914,13 @@ public final class Permutation implements Comparable<Permutation>, Serializable
    */
   @Override
   public String toString() {
-    return Arrays.toString(ranking);
+    StringBuilder sb = new StringBuilder("[");
+    for (int i = 0; i < store.length(); i++) {
+      if (i > 0)
+        sb.append(", ");
+      sb.append(store.get(i));
+    }
+    return sb.append(']').toString();
   }
 
   /**
@@ -442,12 +936,21 @@ public final class Permutation implements Comparable<Permutation>, Serializable
       return true;
     if (other == null || getClass() != other.getClass())
       return false;
-    return Arrays.equals(ranking, ((Permutation) other).ranking);
+    Permutation that = (Permutation) other;
+    if (hash != 0 && that.hash != 0 && hash != that.hash)
+      return false;
+    return store.contentEquals(that.store);
   }
 
   @Override
   public int hashCode() {
-    return Arrays.hashCode(ranking);
+    int result = hash;
+    if (result == 0) {
+      result = store.contentHashCode();
+      if (caching)
+        hash = result;
+    }
+    return result;
   }
 
   /**
@@ -462,10 +965,14 @@ public final class Permutation implements Comparable<Permutation>, Serializable
   public int compareTo(Permutation other) {
     if (this == other)
       return 0;
-    for (int i = 0; i < Math.min(this.ranking.length, other.ranking.length); i += 1)
-      if (this.ranking[i] != other.ranking[i])
-        return this.ranking[i] - other.ranking[i];
-    return other.ranking.length - this.ranking.length;
+    int length = Math.min(this.store.length(), other.store.length());
+    for (int i = 0; i < length; i += 1) {
+      int a = this.store.get(i);
+      int b = other.store.get(i);
+      if (a != b)
+        return a - b;
+    }
+    return other.store.length() - this.store.length();
   }
 
   /**
@@ -474,7 +981,22 @@ public final class Permutation implements Comparable<Permutation>, Serializable
    * @return a copy of the ranking
    */
   public int[] getRanking() {
-    return Arrays.copyOf(ranking, ranking.length);
+    return store.toArray();
+  }
+
+  /**
+   * Get an equal permutation whose ranking is stored in as few bits per entry as possible, for example
+   * 6 bits for a permutation of 52 cards. This is meant for holding very many short permutations in memory:
+   * applying the result is slower, because every entry has to be decoded.
+   * Permutations that are computed from the result, such as its inverse, are not compact,
+   * and neither is a deserialized copy of the result.
+   *
+   * @return a permutation that is equal to this one
+   */
+  public Permutation compact() {
+    if (store.length() == 0)
+      return this;
+    return new Permutation(RankingStore.packed(store.toArray()));
   }
 
   /**
@@ -492,9 +1014,9 @@ public final class Permutation implements Comparable<Permutation>, Serializable
   public int apply(int i) {
     if (i < 0)
       negativeFailure();
-    if (i >= ranking.length)
+    if (i >= store.length())
       return i;
-    return ranking[i];
+    return store.get(i);
   }
 
   /* ============== apply to arrays ============== */
@@ -510,9 +1032,9 @@ public final class Permutation implements Comparable<Permutation>, Serializable
    * @see Cycles#apply(Object[])
    */
   public <T> T[] apply(T[] input) {
-    if (this.ranking.length == 0)
+    if (this.store.length() == 0)
       return input;
-    return Rankings.apply(ranking, input);
+    return apply(input, engine(4));
   }
 
   /**
@@ -525,9 +1047,9 @@ public final class Permutation implements Comparable<Permutation>, Serializable
    * @see #apply(int)
    */
   public byte[] apply(byte[] input) {
-    if (this.ranking.length == 0)
+    if (this.store.length() == 0)
       return input;
-    return Rankings.apply(ranking, input);
+    return store.apply(input);
   }
 
   /**
@@ -540,9 +1062,9 @@ public final class Permutation implements Comparable<Permutation>, Serializable
    * @see #apply(int)
    */
   public short[] apply(short[] input) {
-    if (this.ranking.length == 0)
+    if (this.store.length() == 0)
       return input;
-    return Rankings.apply(ranking, input);
+    return store.apply(input);
   }
 
   /**
@@ -555,9 +1077,9 @@ public final class Permutation implements Comparable<Permutation>, Serializable
    * @see #apply(int)
    */
   public int[] apply(int[] input) {
-    if (this.ranking.length == 0)
+    if (this.store.length() == 0)
       return input;
-    return Rankings.apply(ranking, input);
+    return apply(input, engine(4));
   }
 
   /**
@@ -570,9 +1092,9 @@ public final class Permutation implements Comparable<Permutation>, Serializable
    * @see #apply(int)
    */
   public long[] apply(long[] input) {
-    if (this.ranking.length == 0)
+    if (this.store.length() == 0)
       return input;
-    return Rankings.apply(ranking, input);
+    return apply(input, engine(8));
   }
 
   /**
@@ -585,9 +1107,9 @@ public final class Permutation implements Comparable<Permutation>, Serializable
    * @see #apply(int)
    */
   public float[] apply(float[] input) {
-    if (this.ranking.length == 0)
+    if (this.store.length() == 0)
       return input;
-    return Rankings.apply(ranking, input);
+    return store.apply(input);
   }
 
   /**
@@ -600,9 +1122,9 @@ public final class Permutation implements Comparable<Permutation>, Serializable
    * @see Cycles#clobber(double[])
    */
   public double[] apply(double[] input) {
-    if (this.ranking.length == 0)
+    if (this.store.length() == 0)
       return input;
-    return Rankings.apply(ranking, input);
+    return apply(input, engine(8));
   }
 
   /**
@@ -614,9 +1136,9 @@ public final class Permutation implements Comparable<Permutation>, Serializable
    * @see #apply(int)
    */
   public boolean[] apply(boolean[] input) {
-    if (this.ranking.length == 0)
+    if (this.store.length() == 0)
       return input;
-    return Rankings.apply(ranking, input);
+    return store.apply(input);
   }
 
   /**
@@ -629,9 +1151,9 @@ public final class Permutation implements Comparable<Permutation>, Serializable
    * @see #apply(int)
    */
   public char[] apply(char[] input) {
-    if (this.ranking.length == 0)
+    if (this.store.length() == 0)
       return input;
-    return Rankings.apply(ranking, input);
+    return store.apply(input);
   }
 
   /**
@@ -643,7 +1165,7 @@ public final class Permutation implements Comparable<Permutation>, Serializable
    * @see #apply(int)
    */
   public String apply(String s) {
-    if (this.ranking.length == 0)
+    if (this.store.length() == 0)
       return s;
     char[] dst = new char[s.length()];
     s.getChars(0, s.length(), dst, 0);
@@ -660,34 +1182,959 @@ public final class Permutation implements Comparable<Permutation>, Serializable
    * @see #apply(int)
    */
   public <E> List<E> apply(List<E> input) {
-    if (ranking.length == 0)
+    if (store.length() == 0)
       return input;
     int length = input.size();
-    checkLength(ranking.length, length);
-    return Rankings.apply(ranking, input);
+    checkLength(store.length(), length);
+    return Rankings.apply(ranking(), input);
   }
 
-  public static Permutation sorting(byte[] input) {
-    return define(Rankings.sorting(input), false);
-  }
+  /* ============== apply with a given engine ============== */
 
-  public static Permutation sorting(short[] input) {
-    return define(Rankings.sorting(input), false);
+  /**
+   * Rearrange an array, using the given engine. All engines return the same result as {@link #apply(Object[])},
+   * which chooses an engine based on the length of this permutation, and on whether its inverse is cached.
+   * The {@link ApplyEngine#GATHER GATHER} engine computes the inverse of this permutation when it is first used,
+   * and keeps it for later calls.
+   *
+   * @param input  an array of length not less than {@code this.length()}
+   * @param engine how to move the elements
+   * @return the result of applying this permutation to {@code input}
+   * @throws java.lang.IllegalArgumentException if {@code input.length < this.length()}
+   */
+  public <T> T[] apply(T[] input, ApplyEngine engine) {
+    if (this.store.length() == 0)
+      return input;
+    switch (engine) {
+      case GATHER:
+        return Rankings.gather(inverseRanking(), input);
+      case BLOCKED:
+        return Rankings.applyBlocked(ranking(), input);
+      case CYCLES:
+        return toCycles().apply(input);
+      default:
+        return store.apply(input);
+    }
   }
 
-  public static Permutation sorting(long[] input) {
-    return define(Rankings.sorting(input), false);
+  /**
+   * Rearrange an array, using the given engine.
+   *
+   * @param input  an array of length not less than {@code this.length()}
+   * @param engine how to move the elements
+   * @return the result of applying this permutation to {@code input}
+   * @throws java.lang.IllegalArgumentException if {@code input.length < this.length()}
+   * @see #apply(Object[], ApplyEngine)
+   */
+  public int[] apply(int[] input, ApplyEngine engine) {
+    if (this.store.length() == 0)
+      return input;
+    switch (engine) {
+      case GATHER:
+        return Rankings.gather(inverseRanking(), input);
+      case BLOCKED:
+        return Rankings.applyBlocked(ranking(), input);
+      case CYCLES:
+        return toCycles().apply(input);
+      default:
+        return store.apply(input);
+    }
   }
 
-  public static Permutation sorting(float[] input) {
-    return define(Rankings.sorting(input), false);
+  /**
+   * Rearrange an array, using the given engine.
+   *
+   * @param input  an array of length not less than {@code this.length()}
+   * @param engine how to move the elements
+   * @return the result of applying this permutation to {@code input}
+   * @throws java.lang.IllegalArgumentException if {@code input.length < this.length()}
+   * @see #apply(Object[], ApplyEngine)
+   */
+  public long[] apply(long[] input, ApplyEngine engine) {
+    if (this.store.length() == 0)
+      return input;
+    switch (engine) {
+      case GATHER:
+        return Rankings.gather(inverseRanking(), input);
+      case BLOCKED:
+        return Rankings.applyBlocked(ranking(), input);
+      case CYCLES:
+        return toCycles().apply(input);
+      default:
+        return store.apply(input);
+    }
   }
 
-  public static Permutation sorting(double[] input) {
-    return define(Rankings.sorting(input), false);
+  /**
+   * Rearrange an array, using the given engine.
+   *
+   * @param input  an array of length not less than {@code this.length()}
+   * @param engine how to move the elements
+   * @return the result of applying this permutation to {@code input}
+   * @throws java.lang.IllegalArgumentException if {@code input.length < this.length()}
+   * @see #apply(Object[], ApplyEngine)
+   */
+  public double[] apply(double[] input, ApplyEngine engine) {
+    if (this.store.length() == 0)
+      return input;
+    switch (engine) {
+      case GATHER:
+        return Rankings.gather(inverseRanking(), input);
+      case BLOCKED:
+        return Rankings.applyBlocked(ranking(), input);
+      case CYCLES:
+        return toCycles().apply(input);
+      default:
+        return store.apply(input);
+    }
   }
 
-  public static final class SortingBuilder<E> {
+  /* ============== apply into a given array ============== */
+
+  /**
+   * Rearrange an array into a given array. This returns the same result as {@link #apply(Object[])},
+   * but writes it to {@code dst} instead of a new array. It does not allocate anything,
+   * so it can be used with reused buffers.
+   *
+   * @param src an array of length not less than {@code this.length()}, which is not modified
+   * @param dst an array of length not less than {@code src.length}, which must not be {@code src}
+   * @throws java.lang.IllegalArgumentException if {@code src.length < this.length()}, or if {@code src == dst}
+   * @throws java.lang.ArrayIndexOutOfBoundsException if {@code dst.length < src.length}
+   * @throws java.lang.ArrayStoreException if an element of {@code src} can not be stored in {@code dst}
+   */
+  public void applyTo(Object[] src, Object[] dst) {
+    store.applyTo(src, 0, dst, 0, src.length);
+  }
+
+  /**
+   * Rearrange a range of an array into a range of another array. The element at {@code srcPos + i} is moved
+   * to {@code dstPos + apply(i)}, for {@code i < length}. This does not allocate anything.
+   *
+   * @param src    the source array, which is not modified
+   * @param srcPos the start of the range in {@code src}
+   * @param dst    the destination array
+   * @param dstPos the start of the range in {@code dst}
+   * @param length the length of both ranges, which must not be less than {@code this.length()}
+   * @throws java.lang.IllegalArgumentException if {@code length < this.length()}, or if the ranges overlap
+   * @throws java.lang.ArrayIndexOutOfBoundsException if a range is out of bounds
+   * @throws java.lang.ArrayStoreException if an element of {@code src} can not be stored in {@code dst}
+   */
+  public void applyTo(Object[] src, int srcPos, Object[] dst, int dstPos, int length) {
+    store.applyTo(src, srcPos, dst, dstPos, length);
+  }
+
+  /**
+   * Rearrange an array into a given array.
+   *
+   * @param src an array of length not less than {@code this.length()}, which is not modified
+   * @param dst an array of length not less than {@code src.length}, which must not be {@code src}
+   * @throws java.lang.IllegalArgumentException if {@code src.length < this.length()}, or if {@code src == dst}
+   * @throws java.lang.ArrayIndexOutOfBoundsException if {@code dst.length < src.length}
+   * @see #applyTo(Object[], Object[])
+   */
+  public void applyTo(byte[] src, byte[] dst) {
+    store.applyTo(src, 0, dst, 0, src.length);
+  }
+
+  /**
+   * Rearrange a range of an array into a range of another array.
+   *
+   * @param src    the source array, which is not modified
+   * @param srcPos the start of the range in {@code src}
+   * @param dst    the destination array
+   * @param dstPos the start of the range in {@code dst}
+   * @param length the length of both ranges, which must not be less than {@code this.length()}
+   * @throws java.lang.IllegalArgumentException if {@code length < this.length()}, or if the ranges overlap
+   * @throws java.lang.ArrayIndexOutOfBoundsException if a range is out of bounds
+   * @see #applyTo(Object[], int, Object[], int, int)
+   */
+  public void applyTo(byte[] src, int srcPos, byte[] dst, int dstPos, int length) {
+    store.applyTo(src, srcPos, dst, dstPos, length);
+  }
+
+  /**
+   * Rearrange an array into a given array.
+   *
+   * @param src an array of length not less than {@code this.length()}, which is not modified
+   * @param dst an array of length not less than {@code src.length}, which must not be {@code src}
+   * @throws java.lang.IllegalArgumentException if {@code src.length < this.length()}, or if {@code src == dst}
+   * @throws java.lang.ArrayIndexOutOfBoundsException if {@code dst.length < src.length}
+   * @see #applyTo(Object[], Object[])
+   */
+  public void applyTo(short[] src, short[] dst) {
+    store.applyTo(src, 0, dst, 0, src.length);
+  }
+
+  /**
+   * Rearrange a range of an array into a range of another array.
+   *
+   * @param src    the source array, which is not modified
+   * @param srcPos the start of the range in {@code src}
+   * @param dst    the destination array
+   * @param dstPos the start of the range in {@code dst}
+   * @param length the length of both ranges, which must not be less than {@code this.length()}
+   * @throws java.lang.IllegalArgumentException if {@code length < this.length()}, or if the ranges overlap
+   * @throws java.lang.ArrayIndexOutOfBoundsException if a range is out of bounds
+   * @see #applyTo(Object[], int, Object[], int, int)
+   */
+  public void applyTo(short[] src, int srcPos, short[] dst, int dstPos, int length) {
+    store.applyTo(src, srcPos, dst, dstPos, length);
+  }
+
+  /**
+   * Rearrange an array into a given array.
+   *
+   * @param src an array of length not less than {@code this.length()}, which is not modified
+   * @param dst an array of length not less than {@code src.length}, which must not be {@code src}
+   * @throws java.lang.IllegalArgumentException if {@code src.length < this.length()}, or if {@code src == dst}
+   * @throws java.lang.ArrayIndexOutOfBoundsException if {@code dst.length < src.length}
+   * @see #applyTo(Object[], Object[])
+   */
+  public void applyTo(int[] src, int[] dst) {
+    store.applyTo(src, 0, dst, 0, src.length);
+  }
+
+  /**
+   * Rearrange a range of an array into a range of another array.
+   *
+   * @param src    the source array, which is not modified
+   * @param srcPos the start of the range in {@code src}
+   * @param dst    the destination array
+   * @param dstPos the start of the range in {@code dst}
+   * @param length the length of both ranges, which must not be less than {@code this.length()}
+   * @throws java.lang.IllegalArgumentException if {@code length < this.length()}, or if the ranges overlap
+   * @throws java.lang.ArrayIndexOutOfBoundsException if a range is out of bounds
+   * @see #applyTo(Object[], int, Object[], int, int)
+   */
+  public void applyTo(int[] src, int srcPos, int[] dst, int dstPos, int length) {
+    store.applyTo(src, srcPos, dst, dstPos, length);
+  }
+
+  /**
+   * Rearrange an array into a given array.
+   *
+   * @param src an array of length not less than {@code this.length()}, which is not modified
+   * @param dst an array of length not less than {@code src.length}, which must not be {@code src}
+   * @throws java.lang.IllegalArgumentException if {@code src.length < this.length()}, or if {@code src == dst}
+   * @throws java.lang.ArrayIndexOutOfBoundsException if {@code dst.length < src.length}
+   * @see #applyTo(Object[], Object[])
+   */
+  public void applyTo(long[] src, long[] dst) {
+    store.applyTo(src, 0, dst, 0, src.length);
+  }
+
+  /**
+   * Rearrange a range of an array into a range of another array.
+   *
+   * @param src    the source array, which is not modified
+   * @param srcPos the start of the range in {@code src}
+   * @param dst    the destination array
+   * @param dstPos the start of the range in {@code dst}
+   * @param length the length of both ranges, which must not be less than {@code this.length()}
+   * @throws java.lang.IllegalArgumentException if {@code length < this.length()}, or if the ranges overlap
+   * @throws java.lang.ArrayIndexOutOfBoundsException if a range is out of bounds
+   * @see #applyTo(Object[], int, Object[], int, int)
+   */
+  public void applyTo(long[] src, int srcPos, long[] dst, int dstPos, int length) {
+    store.applyTo(src, srcPos, dst, dstPos, length);
+  }
+
+  /**
+   * Rearrange an array into a given array.
+   *
+   * @param src an array of length not less than {@code this.length()}, which is not modified
+   * @param dst an array of length not less than {@code src.length}, which must not be {@code src}
+   * @throws java.lang.IllegalArgumentException if {@code src.length < this.length()}, or if {@code src == dst}
+   * @throws java.lang.ArrayIndexOutOfBoundsException if {@code dst.length < src.length}
+   * @see #applyTo(Object[], Object[])
+   */
+  public void applyTo(float[] src, float[] dst) {
+    store.applyTo(src, 0, dst, 0, src.length);
+  }
+
+  /**
+   * Rearrange a range of an array into a range of another array.
+   *
+   * @param src    the source array, which is not modified
+   * @param srcPos the start of the range in {@code src}
+   * @param dst    the destination array
+   * @param dstPos the start of the range in {@code dst}
+   * @param length the length of both ranges, which must not be less than {@code this.length()}
+   * @throws java.lang.IllegalArgumentException if {@code length < this.length()}, or if the ranges overlap
+   * @throws java.lang.ArrayIndexOutOfBoundsException if a range is out of bounds
+   * @see #applyTo(Object[], int, Object[], int, int)
+   */
+  public void applyTo(float[] src, int srcPos, float[] dst, int dstPos, int length) {
+    store.applyTo(src, srcPos, dst, dstPos, length);
+  }
+
+  /**
+   * Rearrange an array into a given array.
+   *
+   * @param src an array of length not less than {@code this.length()}, which is not modified
+   * @param dst an array of length not less than {@code src.length}, which must not be {@code src}
+   * @throws java.lang.IllegalArgumentException if {@code src.length < this.length()}, or if {@code src == dst}
+   * @throws java.lang.ArrayIndexOutOfBoundsException if {@code dst.length < src.length}
+   * @see #applyTo(Object[], Object[])
+   */
+  public void applyTo(double[] src, double[] dst) {
+    store.applyTo(src, 0, dst, 0, src.length);
+  }
+
+  /**
+   * Rearrange a range of an array into a range of another array.
+   *
+   * @param src    the source array, which is not modified
+   * @param srcPos the start of the range in {@code src}
+   * @param dst    the destination array
+   * @param dstPos the start of the range in {@code dst}
+   * @param length the length of both ranges, which must not be less than {@code this.length()}
+   * @throws java.lang.IllegalArgumentException if {@code length < this.length()}, or if the ranges overlap
+   * @throws java.lang.ArrayIndexOutOfBoundsException if a range is out of bounds
+   * @see #applyTo(Object[], int, Object[], int, int)
+   */
+  public void applyTo(double[] src, int srcPos, double[] dst, int dstPos, int length) {
+    store.applyTo(src, srcPos, dst, dstPos, length);
+  }
+
+  /**
+   * Rearrange an array into a given array.
+   *
+   * @param src an array of length not less than {@code this.length()}, which is not modified
+   * @param dst an array of length not less than {@code src.length}, which must not be {@code src}
+   * @throws java.lang.IllegalArgumentException if {@code src.length < this.length()}, or if {@code src == dst}
+   * @throws java.lang.ArrayIndexOutOfBoundsException if {@code dst.length < src.length}
+   * @see #applyTo(Object[], Object[])
+   */
+  public void applyTo(boolean[] src, boolean[] dst) {
+    store.applyTo(src, 0, dst, 0, src.length);
+  }
+
+  /**
+   * Rearrange a range of an array into a range of another array.
+   *
+   * @param src    the source array, which is not modified
+   * @param srcPos the start of the range in {@code src}
+   * @param dst    the destination array
+   * @param dstPos the start of the range in {@code dst}
+   * @param length the length of both ranges, which must not be less than {@code this.length()}
+   * @throws java.lang.IllegalArgumentException if {@code length < this.length()}, or if the ranges overlap
+   * @throws java.lang.ArrayIndexOutOfBoundsException if a range is out of bounds
+   * @see #applyTo(Object[], int, Object[], int, int)
+   */
+  public void applyTo(boolean[] src, int srcPos, boolean[] dst, int dstPos, int length) {
+    store.applyTo(src, srcPos, dst, dstPos, length);
+  }
+
+  /**
+   * Rearrange an array into a given array.
+   *
+   * @param src an array of length not less than {@code this.length()}, which is not modified
+   * @param dst an array of length not less than {@code src.length}, which must not be {@code src}
+   * @throws java.lang.IllegalArgumentException if {@code src.length < this.length()}, or if {@code src == dst}
+   * @throws java.lang.ArrayIndexOutOfBoundsException if {@code dst.length < src.length}
+   * @see #applyTo(Object[], Object[])
+   */
+  public void applyTo(char[] src, char[] dst) {
+    store.applyTo(src, 0, dst, 0, src.length);
+  }
+
+  /**
+   * Rearrange a range of an array into a range of another array.
+   *
+   * @param src    the source array, which is not modified
+   * @param srcPos the start of the range in {@code src}
+   * @param dst    the destination array
+   * @param dstPos the start of the range in {@code dst}
+   * @param length the length of both ranges, which must not be less than {@code this.length()}
+   * @throws java.lang.IllegalArgumentException if {@code length < this.length()}, or if the ranges overlap
+   * @throws java.lang.ArrayIndexOutOfBoundsException if a range is out of bounds
+   * @see #applyTo(Object[], int, Object[], int, int)
+   */
+  public void applyTo(char[] src, int srcPos, char[] dst, int dstPos, int length) {
+    store.applyTo(src, srcPos, dst, dstPos, length);
+  }
+
+  /**
+   * Rearrange a list into a given list. This returns the same result as {@link #apply(List)},
+   * but writes it to {@code dst} instead of a new list.
+   * If both lists support fast random access, this does not allocate anything.
+   *
+   * @param src a list of size not less than {@code this.length()}, which is not modified
+   * @param dst a list of size not less than {@code src.size()}, which must not be {@code src}
+   * @throws java.lang.IllegalArgumentException if {@code src.size() < this.length()}, or if {@code src == dst}
+   * @throws java.lang.IndexOutOfBoundsException if {@code dst.size() < src.size()}
+   */
+  public <E> void applyTo(List<? extends E> src, List<? super E> dst) {
+    store.applyTo(src, dst);
+  }
+
+  /* ============== apply the inverse ============== */
+
+  /**
+   * Move an index back. This returns the same result as {@code invert().apply(i)}, but the inverse is not
+   * computed: if it has not been cached, the cycle of {@code i} is walked until it comes back to {@code i}.
+   *
+   * @param i a non negative number
+   * @return the index {@code j} such that {@code apply(j) == i}
+   * @throws java.lang.IllegalArgumentException if the input is negative
+   * @see Cycles#unApply(int)
+   */
+  public int applyInverse(int i) {
+    if (i < 0)
+      negativeFailure();
+    if (i >= store.length())
+      return i;
+    Permutation cached = inverse;
+    if (cached != null)
+      return cached.store.get(i);
+    int j = i;
+    int next;
+    while ((next = store.get(j)) != i)
+      j = next;
+    return j;
+  }
+
+  /**
+   * Undo the effect of this permutation on an array. This returns the same result as
+   * {@code invert().apply(input)}, but the inverse is not computed: the ranking is used to fetch
+   * each element, {@code result[i] = input[apply(i)]}. A compact or mapped ranking is read as it is stored,
+   * without decoding it. This method does not modify its input array.
+   *
+   * @param input an array of length not less than {@code this.length()}
+   * @return the result of applying the inverse of this permutation to {@code input}
+   * @throws java.lang.IllegalArgumentException if {@code input.length < this.length()}
+   * @see Rankings#gather(int[], Object[])
+   */
+  public <T> T[] applyInverse(T[] input) {
+    if (store.length() == 0)
+      return input;
+    return store.gather(input);
+  }
+
+  /**
+   * Undo the effect of this permutation on an array. This method does not modify its input array.
+   *
+   * @param input an array of length not less than {@code this.length()}
+   * @return the result of applying the inverse of this permutation to {@code input}
+   * @throws java.lang.IllegalArgumentException if {@code input.length < this.length()}
+   * @see #applyInverse(Object[])
+   */
+  public byte[] applyInverse(byte[] input) {
+    if (store.length() == 0)
+      return input;
+    return store.gather(input);
+  }
+
+  /**
+   * Undo the effect of this permutation on an array. This method does not modify its input array.
+   *
+   * @param input an array of length not less than {@code this.length()}
+   * @return the result of applying the inverse of this permutation to {@code input}
+   * @throws java.lang.IllegalArgumentException if {@code input.length < this.length()}
+   * @see #applyInverse(Object[])
+   */
+  public short[] applyInverse(short[] input) {
+    if (store.length() == 0)
+      return input;
+    return store.gather(input);
+  }
+
+  /**
+   * Undo the effect of this permutation on an array. This method does not modify its input array.
+   *
+   * @param input an array of length not less than {@code this.length()}
+   * @return the result of applying the inverse of this permutation to {@code input}
+   * @throws java.lang.IllegalArgumentException if {@code input.length < this.length()}
+   * @see #applyInverse(Object[])
+   */
+  public int[] applyInverse(int[] input) {
+    if (store.length() == 0)
+      return input;
+    return store.gather(input);
+  }
+
+  /**
+   * Undo the effect of this permutation on an array. This method does not modify its input array.
+   *
+   * @param input an array of length not less than {@code this.length()}
+   * @return the result of applying the inverse of this permutation to {@code input}
+   * @throws java.lang.IllegalArgumentException if {@code input.length < this.length()}
+   * @see #applyInverse(Object[])
+   */
+  public long[] applyInverse(long[] input) {
+    if (store.length() == 0)
+      return input;
+    return store.gather(input);
+  }
+
+  /**
+   * Undo the effect of this permutation on an array. This method does not modify its input array.
+   *
+   * @param input an array of length not less than {@code this.length()}
+   * @return the result of applying the inverse of this permutation to {@code input}
+   * @throws java.lang.IllegalArgumentException if {@code input.length < this.length()}
+   * @see #applyInverse(Object[])
+   */
+  public float[] applyInverse(float[] input) {
+    if (store.length() == 0)
+      return input;
+    return store.gather(input);
+  }
+
+  /**
+   * Undo the effect of this permutation on an array. This method does not modify its input array.
+   *
+   * @param input an array of length not less than {@code this.length()}
+   * @return the result of applying the inverse of this permutation to {@code input}
+   * @throws java.lang.IllegalArgumentException if {@code input.length < this.length()}
+   * @see #applyInverse(Object[])
+   */
+  public double[] applyInverse(double[] input) {
+    if (store.length() == 0)
+      return input;
+    return store.gather(input);
+  }
+
+  /**
+   * Undo the effect of this permutation on an array. This method does not modify its input array.
+   *
+   * @param input an array of length not less than {@code this.length()}
+   * @return the result of applying the inverse of this permutation to {@code input}
+   * @throws java.lang.IllegalArgumentException if {@code input.length < this.length()}
+   * @see #applyInverse(Object[])
+   */
+  public boolean[] applyInverse(boolean[] input) {
+    if (store.length() == 0)
+      return input;
+    return store.gather(input);
+  }
+
+  /**
+   * Undo the effect of this permutation on an array. This method does not modify its input array.
+   *
+   * @param input an array of length not less than {@code this.length()}
+   * @return the result of applying the inverse of this permutation to {@code input}
+   * @throws java.lang.IllegalArgumentException if {@code input.length < this.length()}
+   * @see #applyInverse(Object[])
+   */
+  public char[] applyInverse(char[] input) {
+    if (store.length() == 0)
+      return input;
+    return store.gather(input);
+  }
+
+  /**
+   * Undo the effect of this permutation on an array, and write the result to a given array.
+   * This returns the same result as {@link #applyInverse(Object[])}, and does not allocate anything.
+   *
+   * @param src an array of length not less than {@code this.length()}, which is not modified
+   * @param dst an array of length not less than {@code src.length}, which must not be {@code src}
+   * @throws java.lang.IllegalArgumentException if {@code src.length < this.length()}, or if {@code src == dst}
+   * @throws java.lang.ArrayIndexOutOfBoundsException if {@code dst.length < src.length}
+   * @throws java.lang.ArrayStoreException if an element of {@code src} can not be stored in {@code dst}
+   */
+  public void applyInverseTo(Object[] src, Object[] dst) {
+    store.gatherTo(src, dst);
+  }
+
+  /**
+   * Undo the effect of this permutation on an array, and write the result to a given array.
+   *
+   * @param src an array of length not less than {@code this.length()}, which is not modified
+   * @param dst an array of length not less than {@code src.length}, which must not be {@code src}
+   * @throws java.lang.IllegalArgumentException if {@code src.length < this.length()}, or if {@code src == dst}
+   * @throws java.lang.ArrayIndexOutOfBoundsException if {@code dst.length < src.length}
+   * @see #applyInverseTo(Object[], Object[])
+   */
+  public void applyInverseTo(byte[] src, byte[] dst) {
+    store.gatherTo(src, dst);
+  }
+
+  /**
+   * Undo the effect of this permutation on an array, and write the result to a given array.
+   *
+   * @param src an array of length not less than {@code this.length()}, which is not modified
+   * @param dst an array of length not less than {@code src.length}, which must not be {@code src}
+   * @throws java.lang.IllegalArgumentException if {@code src.length < this.length()}, or if {@code src == dst}
+   * @throws java.lang.ArrayIndexOutOfBoundsException if {@code dst.length < src.length}
+   * @see #applyInverseTo(Object[], Object[])
+   */
+  public void applyInverseTo(short[] src, short[] dst) {
+    store.gatherTo(src, dst);
+  }
+
+  /**
+   * Undo the effect of this permutation on an array, and write the result to a given array.
+   *
+   * @param src an array of length not less than {@code this.length()}, which is not modified
+   * @param dst an array of length not less than {@code src.length}, which must not be {@code src}
+   * @throws java.lang.IllegalArgumentException if {@code src.length < this.length()}, or if {@code src == dst}
+   * @throws java.lang.ArrayIndexOutOfBoundsException if {@code dst.length < src.length}
+   * @see #applyInverseTo(Object[], Object[])
+   */
+  public void applyInverseTo(int[] src, int[] dst) {
+    store.gatherTo(src, dst);
+  }
+
+  /**
+   * Undo the effect of this permutation on an array, and write the result to a given array.
+   *
+   * @param src an array of length not less than {@code this.length()}, which is not modified
+   * @param dst an array of length not less than {@code src.length}, which must not be {@code src}
+   * @throws java.lang.IllegalArgumentException if {@code src.length < this.length()}, or if {@code src == dst}
+   * @throws java.lang.ArrayIndexOutOfBoundsException if {@code dst.length < src.length}
+   * @see #applyInverseTo(Object[], Object[])
+   */
+  public void applyInverseTo(long[] src, long[] dst) {
+    store.gatherTo(src, dst);
+  }
+
+  /**
+   * Undo the effect of this permutation on an array, and write the result to a given array.
+   *
+   * @param src an array of length not less than {@code this.length()}, which is not modified
+   * @param dst an array of length not less than {@code src.length}, which must not be {@code src}
+   * @throws java.lang.IllegalArgumentException if {@code src.length < this.length()}, or if {@code src == dst}
+   * @throws java.lang.ArrayIndexOutOfBoundsException if {@code dst.length < src.length}
+   * @see #applyInverseTo(Object[], Object[])
+   */
+  public void applyInverseTo(float[] src, float[] dst) {
+    store.gatherTo(src, dst);
+  }
+
+  /**
+   * Undo the effect of this permutation on an array, and write the result to a given array.
+   *
+   * @param src an array of length not less than {@code this.length()}, which is not modified
+   * @param dst an array of length not less than {@code src.length}, which must not be {@code src}
+   * @throws java.lang.IllegalArgumentException if {@code src.length < this.length()}, or if {@code src == dst}
+   * @throws java.lang.ArrayIndexOutOfBoundsException if {@code dst.length < src.length}
+   * @see #applyInverseTo(Object[], Object[])
+   */
+  public void applyInverseTo(double[] src, double[] dst) {
+    store.gatherTo(src, dst);
+  }
+
+  /**
+   * Undo the effect of this permutation on an array, and write the result to a given array.
+   *
+   * @param src an array of length not less than {@code this.length()}, which is not modified
+   * @param dst an array of length not less than {@code src.length}, which must not be {@code src}
+   * @throws java.lang.IllegalArgumentException if {@code src.length < this.length()}, or if {@code src == dst}
+   * @throws java.lang.ArrayIndexOutOfBoundsException if {@code dst.length < src.length}
+   * @see #applyInverseTo(Object[], Object[])
+   */
+  public void applyInverseTo(boolean[] src, boolean[] dst) {
+    store.gatherTo(src, dst);
+  }
+
+  /**
+   * Undo the effect of this permutation on an array, and write the result to a given array.
+   *
+   * @param src an array of length not less than {@code this.length()}, which is not modified
+   * @param dst an array of length not less than {@code src.length}, which must not be {@code src}
+   * @throws java.lang.IllegalArgumentException if {@code src.length < this.length()}, or if {@code src == dst}
+   * @throws java.lang.ArrayIndexOutOfBoundsException if {@code dst.length < src.length}
+   * @see #applyInverseTo(Object[], Object[])
+   */
+  public void applyInverseTo(char[] src, char[] dst) {
+    store.gatherTo(src, dst);
+  }
+
+  /* ============== apply in parallel ============== */
+
+  /**
+   * Parallel version of {@link #apply(Object[])}, which runs in the common pool.
+   *
+   * @param input an array of length not less than {@code this.length()}
+   * @return the result of applying this permutation to {@code input}
+   * @throws java.lang.IllegalArgumentException if {@code input.length < this.length()}
+   * @see Rankings#PARALLEL_APPLY_THRESHOLD
+   */
+  public <T> T[] applyParallel(T[] input) {
+    return applyParallel(input, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Parallel version of {@link #apply(Object[])}, which returns the same result.
+   * A compact or mapped ranking is read as it is stored, without decoding it.
+   *
+   * @param input an array of length not less than {@code this.length()}
+   * @param pool  the pool to run in
+   * @return the result of applying this permutation to {@code input}
+   * @throws java.lang.IllegalArgumentException if {@code input.length < this.length()}
+   */
+  public <T> T[] applyParallel(T[] input, ForkJoinPool pool) {
+    if (store.length() == 0)
+      return input;
+    return store.applyParallel(input, pool);
+  }
+
+  /**
+   * Parallel version of {@link #apply(byte[])}, which runs in the common pool.
+   *
+   * @param input an array of length not less than {@code this.length()}
+   * @return the result of applying this permutation to {@code input}
+   * @throws java.lang.IllegalArgumentException if {@code input.length < this.length()}
+   * @see #applyParallel(Object[], ForkJoinPool)
+   */
+  public byte[] applyParallel(byte[] input) {
+    return applyParallel(input, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Parallel version of {@link #apply(byte[])}, which returns the same result.
+   *
+   * @param input an array of length not less than {@code this.length()}
+   * @param pool  the pool to run in
+   * @return the result of applying this permutation to {@code input}
+   * @throws java.lang.IllegalArgumentException if {@code input.length < this.length()}
+   * @see #applyParallel(Object[], ForkJoinPool)
+   */
+  public byte[] applyParallel(byte[] input, ForkJoinPool pool) {
+    if (store.length() == 0)
+      return input;
+    return store.applyParallel(input, pool);
+  }
+
+  /**
+   * Parallel version of {@link #apply(short[])}, which runs in the common pool.
+   *
+   * @param input an array of length not less than {@code this.length()}
+   * @return the result of applying this permutation to {@code input}
+   * @throws java.lang.IllegalArgumentException if {@code input.length < this.length()}
+   * @see #applyParallel(Object[], ForkJoinPool)
+   */
+  public short[] applyParallel(short[] input) {
+    return applyParallel(input, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Parallel version of {@link #apply(short[])}, which returns the same result.
+   *
+   * @param input an array of length not less than {@code this.length()}
+   * @param pool  the pool to run in
+   * @return the result of applying this permutation to {@code input}
+   * @throws java.lang.IllegalArgumentException if {@code input.length < this.length()}
+   * @see #applyParallel(Object[], ForkJoinPool)
+   */
+  public short[] applyParallel(short[] input, ForkJoinPool pool) {
+    if (store.length() == 0)
+      return input;
+    return store.applyParallel(input, pool);
+  }
+
+  /**
+   * Parallel version of {@link #apply(int[])}, which runs in the common pool.
+   *
+   * @param input an array of length not less than {@code this.length()}
+   * @return the result of applying this permutation to {@code input}
+   * @throws java.lang.IllegalArgumentException if {@code input.length < this.length()}
+   * @see #applyParallel(Object[], ForkJoinPool)
+   */
+  public int[] applyParallel(int[] input) {
+    return applyParallel(input, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Parallel version of {@link #apply(int[])}, which returns the same result.
+   *
+   * @param input an array of length not less than {@code this.length()}
+   * @param pool  the pool to run in
+   * @return the result of applying this permutation to {@code input}
+   * @throws java.lang.IllegalArgumentException if {@code input.length < this.length()}
+   * @see #applyParallel(Object[], ForkJoinPool)
+   */
+  public int[] applyParallel(int[] input, ForkJoinPool pool) {
+    if (store.length() == 0)
+      return input;
+    return store.applyParallel(input, pool);
+  }
+
+  /**
+   * Parallel version of {@link #apply(long[])}, which runs in the common pool.
+   *
+   * @param input an array of length not less than {@code this.length()}
+   * @return the result of applying this permutation to {@code input}
+   * @throws java.lang.IllegalArgumentException if {@code input.length < this.length()}
+   * @see #applyParallel(Object[], ForkJoinPool)
+   */
+  public long[] applyParallel(long[] input) {
+    return applyParallel(input, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Parallel version of {@link #apply(long[])}, which returns the same result.
+   *
+   * @param input an array of length not less than {@code this.length()}
+   * @param pool  the pool to run in
+   * @return the result of applying this permutation to {@code input}
+   * @throws java.lang.IllegalArgumentException if {@code input.length < this.length()}
+   * @see #applyParallel(Object[], ForkJoinPool)
+   */
+  public long[] applyParallel(long[] input, ForkJoinPool pool) {
+    if (store.length() == 0)
+      return input;
+    return store.applyParallel(input, pool);
+  }
+
+  /**
+   * Parallel version of {@link #apply(float[])}, which runs in the common pool.
+   *
+   * @param input an array of length not less than {@code this.length()}
+   * @return the result of applying this permutation to {@code input}
+   * @throws java.lang.IllegalArgumentException if {@code input.length < this.length()}
+   * @see #applyParallel(Object[], ForkJoinPool)
+   */
+  public float[] applyParallel(float[] input) {
+    return applyParallel(input, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Parallel version of {@link #apply(float[])}, which returns the same result.
+   *
+   * @param input an array of length not less than {@code this.length()}
+   * @param pool  the pool to run in
+   * @return the result of applying this permutation to {@code input}
+   * @throws java.lang.IllegalArgumentException if {@code input.length < this.length()}
+   * @see #applyParallel(Object[], ForkJoinPool)
+   */
+  public float[] applyParallel(float[] input, ForkJoinPool pool) {
+    if (store.length() == 0)
+      return input;
+    return store.applyParallel(input, pool);
+  }
+
+  /**
+   * Parallel version of {@link #apply(double[])}, which runs in the common pool.
+   *
+   * @param input an array of length not less than {@code this.length()}
+   * @return the result of applying this permutation to {@code input}
+   * @throws java.lang.IllegalArgumentException if {@code input.length < this.length()}
+   * @see #applyParallel(Object[], ForkJoinPool)
+   */
+  public double[] applyParallel(double[] input) {
+    return applyParallel(input, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Parallel version of {@link #apply(double[])}, which returns the same result.
+   *
+   * @param input an array of length not less than {@code this.length()}
+   * @param pool  the pool to run in
+   * @return the result of applying this permutation to {@code input}
+   * @throws java.lang.IllegalArgumentException if {@code input.length < this.length()}
+   * @see #applyParallel(Object[], ForkJoinPool)
+   */
+  public double[] applyParallel(double[] input, ForkJoinPool pool) {
+    if (store.length() == 0)
+      return input;
+    return store.applyParallel(input, pool);
+  }
+
+  /**
+   * Parallel version of {@link #apply(boolean[])}, which runs in the common pool.
+   *
+   * @param input an array of length not less than {@code this.length()}
+   * @return the result of applying this permutation to {@code input}
+   * @throws java.lang.IllegalArgumentException if {@code input.length < this.length()}
+   * @see #applyParallel(Object[], ForkJoinPool)
+   */
+  public boolean[] applyParallel(boolean[] input) {
+    return applyParallel(input, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Parallel version of {@link #apply(boolean[])}, which returns the same result.
+   *
+   * @param input an array of length not less than {@code this.length()}
+   * @param pool  the pool to run in
+   * @return the result of applying this permutation to {@code input}
+   * @throws java.lang.IllegalArgumentException if {@code input.length < this.length()}
+   * @see #applyParallel(Object[], ForkJoinPool)
+   */
+  public boolean[] applyParallel(boolean[] input, ForkJoinPool pool) {
+    if (store.length() == 0)
+      return input;
+    return store.applyParallel(input, pool);
+  }
+
+  /**
+   * Parallel version of {@link #apply(char[])}, which runs in the common pool.
+   *
+   * @param input an array of length not less than {@code this.length()}
+   * @return the result of applying this permutation to {@code input}
+   * @throws java.lang.IllegalArgumentException if {@code input.length < this.length()}
+   * @see #applyParallel(Object[], ForkJoinPool)
+   */
+  public char[] applyParallel(char[] input) {
+    return applyParallel(input, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Parallel version of {@link #apply(char[])}, which returns the same result.
+   *
+   * @param input an array of length not less than {@code this.length()}
+   * @param pool  the pool to run in
+   * @return the result of applying this permutation to {@code input}
+   * @throws java.lang.IllegalArgumentException if {@code input.length < this.length()}
+   * @see #applyParallel(Object[], ForkJoinPool)
+   */
+  public char[] applyParallel(char[] input, ForkJoinPool pool) {
+    if (store.length() == 0)
+      return input;
+    return store.applyParallel(input, pool);
+  }
+
+  /**
+   * Parallel version of {@link #apply(List)}, which runs in the common pool.
+   *
+   * @param input a list that must have at least {@code this.length()} elements
+   * @return the result of applying this permutation to {@code input}
+   * @throws java.lang.IllegalArgumentException if {@code input} has less than {@code this.length()} elements
+   * @see #applyParallel(Object[], ForkJoinPool)
+   */
+  public <E> List<E> applyParallel(List<E> input) {
+    return applyParallel(input, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Parallel version of {@link #apply(List)}, which returns the same result.
+   *
+   * @param input a list that must have at least {@code this.length()} elements
+   * @param pool  the pool to run in
+   * @return the result of applying this permutation to {@code input}
+   * @throws java.lang.IllegalArgumentException if {@code input} has less than {@code this.length()} elements
+   * @see #applyParallel(Object[], ForkJoinPool)
+   */
+  public <E> List<E> applyParallel(List<E> input, ForkJoinPool pool) {
+    if (store.length() == 0)
+      return input;
+    return store.applyParallel(input, pool);
+  }
+
+  public static Permutation sorting(byte[] input) {
+    return define(Rankings.sorting(input), false);
+  }
+
+  public static Permutation sorting(short[] input) {
+    return define(Rankings.sorting(input), false);
+  }
+
+  public static Permutation sorting(long[] input) {
+    return define(Rankings.sorting(input), false);
+  }
+
+  public static Permutation sorting(float[] input) {
+    return define(Rankings.sorting(input), false);
+  }
+
+  public static Permutation sorting(double[] input) {
+    return define(Rankings.sorting(input), false);
+  }
+
+  public static final class SortingBuilder<E> {
     private final E[] a;
 
     public SortingBuilder(E[] a) {
@@ -716,6 +2163,139 @@ public final class Permutation implements Comparable<Permutation>, Serializable
     return define(Rankings.sorting(input), false);
   }
 
+  /**
+   * Parallel version of {@link #sorting(int[])}, which runs in the common pool.
+   * @param input an array
+   * @return a permutation that sorts the input
+   */
+  public static Permutation sortingParallel(int[] input) {
+    return sortingParallel(input, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Parallel version of {@link #sorting(int[])}, which returns the same permutation.
+   * @param input an array
+   * @param pool the pool to run in
+   * @return a permutation that sorts the input
+   */
+  public static Permutation sortingParallel(int[] input, ForkJoinPool pool) {
+    return define(Rankings.sortingParallel(input, pool), false);
+  }
+
+  /**
+   * Parallel version of {@link #sorting(byte[])}, which runs in the common pool.
+   * @param input an array
+   * @return a permutation that sorts the input
+   */
+  public static Permutation sortingParallel(byte[] input) {
+    return sortingParallel(input, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Parallel version of {@link #sorting(byte[])}, which returns the same permutation.
+   * @param input an array
+   * @param pool the pool to run in
+   * @return a permutation that sorts the input
+   */
+  public static Permutation sortingParallel(byte[] input, ForkJoinPool pool) {
+    return define(Rankings.sortingParallel(input, pool), false);
+  }
+
+  /**
+   * Parallel version of {@link #sorting(short[])}, which runs in the common pool.
+   * @param input an array
+   * @return a permutation that sorts the input
+   */
+  public static Permutation sortingParallel(short[] input) {
+    return sortingParallel(input, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Parallel version of {@link #sorting(short[])}, which returns the same permutation.
+   * @param input an array
+   * @param pool the pool to run in
+   * @return a permutation that sorts the input
+   */
+  public static Permutation sortingParallel(short[] input, ForkJoinPool pool) {
+    return define(Rankings.sortingParallel(input, pool), false);
+  }
+
+  /**
+   * Parallel version of {@link #sorting(long[])}, which runs in the common pool.
+   * @param input an array
+   * @return a permutation that sorts the input
+   */
+  public static Permutation sortingParallel(long[] input) {
+    return sortingParallel(input, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Parallel version of {@link #sorting(long[])}, which returns the same permutation.
+   * @param input an array
+   * @param pool the pool to run in
+   * @return a permutation that sorts the input
+   */
+  public static Permutation sortingParallel(long[] input, ForkJoinPool pool) {
+    return define(Rankings.sortingParallel(input, pool), false);
+  }
+
+  /**
+   * Parallel version of {@link #sorting(float[])}, which runs in the common pool.
+   * @param input an array
+   * @return a permutation that sorts the input
+   */
+  public static Permutation sortingParallel(float[] input) {
+    return sortingParallel(input, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Parallel version of {@link #sorting(float[])}, which returns the same permutation.
+   * @param input an array
+   * @param pool the pool to run in
+   * @return a permutation that sorts the input
+   */
+  public static Permutation sortingParallel(float[] input, ForkJoinPool pool) {
+    return define(Rankings.sortingParallel(input, pool), false);
+  }
+
+  /**
+   * Parallel version of {@link #sorting(double[])}, which runs in the common pool.
+   * @param input an array
+   * @return a permutation that sorts the input
+   */
+  public static Permutation sortingParallel(double[] input) {
+    return sortingParallel(input, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Parallel version of {@link #sorting(double[])}, which returns the same permutation.
+   * @param input an array
+   * @param pool the pool to run in
+   * @return a permutation that sorts the input
+   */
+  public static Permutation sortingParallel(double[] input, ForkJoinPool pool) {
+    return define(Rankings.sortingParallel(input, pool), false);
+  }
+
+  /**
+   * Parallel version of {@link #sorting(char[])}, which runs in the common pool.
+   * @param input an array
+   * @return a permutation that sorts the input
+   */
+  public static Permutation sortingParallel(char[] input) {
+    return sortingParallel(input, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Parallel version of {@link #sorting(char[])}, which returns the same permutation.
+   * @param input an array
+   * @param pool the pool to run in
+   * @return a permutation that sorts the input
+   */
+  public static Permutation sortingParallel(char[] input, ForkJoinPool pool) {
+    return define(Rankings.sortingParallel(input, pool), false);
+  }
+
   public static Permutation sorting(String s) {
     char[] chars = new char[s.length()];
     s.getChars(0, chars.length, chars, 0);
@@ -821,39 +2401,39 @@ public final class Permutation implements Comparable<Permutation>, Serializable
   }
 
   public boolean sorts(int[] a) {
-    return Rankings.sorts(ranking, a);
+    return Rankings.sorts(ranking(), a);
   }
 
   public boolean sorts(byte[] a) {
-    return Rankings.sorts(ranking, a);
+    return Rankings.sorts(ranking(), a);
   }
 
   public boolean sorts(short[] a) {
-    return Rankings.sorts(ranking, a);
+    return Rankings.sorts(ranking(), a);
   }
 
   public boolean sorts(char[] a) {
-    return Rankings.sorts(ranking, a);
+    return Rankings.sorts(ranking(), a);
   }
 
   public boolean sorts(long[] a) {
-    return Rankings.sorts(ranking, a);
+    return Rankings.sorts(ranking(), a);
   }
 
   public boolean sorts(float[] a) {
-    return Rankings.sorts(ranking, a);
+    return Rankings.sorts(ranking(), a);
   }
 
   public boolean sorts(double[] a) {
-    return Rankings.sorts(ranking, a);
+    return Rankings.sorts(ranking(), a);
   }
 
   public <E extends Comparable<E>> boolean sorts(E[] a) {
-    return Rankings.sorts(ranking, a);
+    return Rankings.sorts(ranking(), a);
   }
 
   public <E extends Comparable<E>> boolean sorts(List<E> a) {
-    return Rankings.sorts(ranking, a);
+    return Rankings.sorts(ranking(), a);
   }
 
   public static final class SortsBuilder<E> {
@@ -871,17 +2451,16 @@ public final class Permutation implements Comparable<Permutation>, Serializable
   }
 
   public <E> SortsBuilder<E> sorts(E[] a) {
-    return new SortsBuilder<>(a, ranking);
-  }
-
-  /* Transport an array safely to Cycles constructor */
-  static final class Orbits {
-    static Orbits EMPTY = new Orbits(new int[0][]);
-    final int[][] orbits;
-
-    private Orbits(int[][] orbits) {this.orbits = orbits;}
+    return new SortsBuilder<>(a, ranking());
   }
 
+  /**
+   * Returns all permutations of given length, in the lexicographic order of their rankings.
+   * The stream can be processed in parallel.
+   * @param n length of permutations to generate
+   * @return all possible permutations of length {@code n}
+   * @see Rankings#symmetricGroup(int)
+   */
   public static Stream<Permutation> symmetricGroup(int n) {
     return Rankings.symmetricGroup(n).map(a -> define(a, false));
   }
@@ -0,0 +1,287 @@
+package com.github.methylene.sym;
+
+import static com.github.methylene.sym.ArrayUtil.negativeFailure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A product of permutations that has not been computed yet.
+ * Composing, inverting, raising to a power and shifting only record the factors, so no ranking is allocated
+ * for the intermediate products. The product is computed on demand, by {@link #evaluate()}.
+ * {@link #apply(int)} takes a single index through all factors, without computing the product at all.
+ * <p/>
+ * A factor is a permutation, possibly inverted, and shifted by an offset. The inverse of a factor is not
+ * computed, unless it is the result of {@code evaluate}: {@code apply} moves an index back through an inverted
+ * factor with {@link Permutation#applyInverse(int)}, which uses the cached inverse of the factor if there is one,
+ * and walks a cycle otherwise. Instances are immutable.
+ *
+ * @see Permutation#lazy()
+ */
+public final class PermutationExpression {
+
+  /**
+   * Raising an expression to a power repeats its factors, unless the result would have more factors than this.
+   * In that case, the product is evaluated once, and raised to the power in linear time.
+   */
+  public static final int MAX_REPEATED_FACTORS = 64;
+
+  private static final PermutationExpression IDENTITY =
+      new PermutationExpression(new Permutation[0], new boolean[0], new int[0]);
+
+  /* the factors, in the order in which they are applied to an index; the rightmost factor comes first */
+  private final Permutation[] factors;
+  private final boolean[] inverted;
+  private final int[] offsets;
+  private final int length;
+
+  private PermutationExpression(Permutation[] factors, boolean[] inverted, int[] offsets) {
+    this.factors = factors;
+    this.inverted = inverted;
+    this.offsets = offsets;
+    int length = 0;
+    for (int k = 0; k < factors.length; k++)
+      length = Math.max(length, offsets[k] + factors[k].length());
+    this.length = length;
+  }
+
+  /**
+   * @return the expression that evaluates to the identity
+   */
+  public static PermutationExpression identity() {
+    return IDENTITY;
+  }
+
+  /**
+   * @param permutation a permutation
+   * @return an expression that evaluates to {@code permutation}
+   */
+  public static PermutationExpression of(Permutation permutation) {
+    if (permutation.isIdentity())
+      return IDENTITY;
+    return new PermutationExpression(new Permutation[]{permutation}, new boolean[1], new int[1]);
+  }
+
+  /**
+   * Record the product of the given permutations.
+   *
+   * @param permutations an array of permutations
+   * @return an expression that evaluates to {@code Permutation.product(permutations)}
+   */
+  public static PermutationExpression product(Permutation... permutations) {
+    return product(Arrays.asList(permutations));
+  }
+
+  /**
+   * Record the product of the given permutations.
+   *
+   * @param permutations an iterable of permutations
+   * @return an expression that evaluates to {@code Permutation.product(permutations)}
+   */
+  public static PermutationExpression product(Iterable<Permutation> permutations) {
+    List<Permutation> list = new ArrayList<>();
+    for (Permutation permutation : permutations)
+      if (!permutation.isIdentity())
+        list.add(permutation);
+    int n = list.size();
+    if (n == 0)
+      return IDENTITY;
+    Permutation[] factors = new Permutation[n];
+    for (int k = 0; k < n; k++)
+      factors[k] = list.get(n - 1 - k);
+    return new PermutationExpression(factors, new boolean[n], new int[n]);
+  }
+
+  /**
+   * Record the composition with another expression. The following is true for all non-negative numbers
+   * {@code i}:
+   * <pre><code>
+   *   this.apply(other.apply(i)) == this.compose(other).apply(i)
+   * </code></pre>
+   *
+   * @param other an expression
+   * @return the product of this expression and {@code other}
+   */
+  public PermutationExpression compose(PermutationExpression other) {
+    if (other.factors.length == 0)
+      return this;
+    if (this.factors.length == 0)
+      return other;
+    int n = other.factors.length;
+    int m = this.factors.length;
+    Permutation[] factors = Arrays.copyOf(other.factors, n + m);
+    boolean[] inverted = Arrays.copyOf(other.inverted, n + m);
+    int[] offsets = Arrays.copyOf(other.offsets, n + m);
+    System.arraycopy(this.factors, 0, factors, n, m);
+    System.arraycopy(this.inverted, 0, inverted, n, m);
+    System.arraycopy(this.offsets, 0, offsets, n, m);
+    return new PermutationExpression(factors, inverted, offsets);
+  }
+
+  /**
+   * Record the composition with a permutation.
+   *
+   * @param other a permutation
+   * @return the product of this expression and {@code other}
+   * @see #compose(PermutationExpression)
+   */
+  public PermutationExpression compose(Permutation other) {
+    return compose(of(other));
+  }
+
+  /**
+   * Record the inverse. The factors are reversed, and each of them is inverted.
+   *
+   * @return an expression that evaluates to the inverse of this expression
+   */
+  public PermutationExpression invert() {
+    int n = factors.length;
+    if (n == 0)
+      return this;
+    Permutation[] factors = new Permutation[n];
+    boolean[] inverted = new boolean[n];
+    int[] offsets = new int[n];
+    for (int k = 0; k < n; k++) {
+      factors[k] = this.factors[n - 1 - k];
+      inverted[k] = !this.inverted[n - 1 - k];
+      offsets[k] = this.offsets[n - 1 - k];
+    }
+    return new PermutationExpression(factors, inverted, offsets);
+  }
+
+  /**
+   * Record the {@code n}th power. The factors are repeated {@code |n|} times, unless there would be more than
+   * {@link #MAX_REPEATED_FACTORS} of them; in that case, the product is evaluated now.
+   *
+   * @param n any number
+   * @return an expression that evaluates to the {@code n}th power of this expression
+   * @see Permutation#pow(long)
+   */
+  public PermutationExpression pow(long n) {
+    if (n == 0 || factors.length == 0)
+      return IDENTITY;
+    if (n == Long.MIN_VALUE)
+      return of(evaluate().pow(n));
+    if (n < 0)
+      return invert().pow(-n);
+    if (n == 1)
+      return this;
+    if (n > MAX_REPEATED_FACTORS / factors.length)
+      return of(evaluate().pow(n));
+    int m = factors.length;
+    int size = (int) n * m;
+    Permutation[] factors = new Permutation[size];
+    boolean[] inverted = new boolean[size];
+    int[] offsets = new int[size];
+    for (int k = 0; k < size; k += m) {
+      System.arraycopy(this.factors, 0, factors, k, m);
+      System.arraycopy(this.inverted, 0, inverted, k, m);
+      System.arraycopy(this.offsets, 0, offsets, k, m);
+    }
+    return new PermutationExpression(factors, inverted, offsets);
+  }
+
+  /**
+   * Record a shift.
+   *
+   * @param n a non negative number
+   * @return an expression that evaluates to the shift of this expression by {@code n}
+   * @throws java.lang.IllegalArgumentException if n is negative
+   * @see Permutation#shift(int)
+   */
+  public PermutationExpression shift(int n) {
+    if (n < 0)
+      negativeFailure();
+    if (n == 0 || factors.length == 0)
+      return this;
+    int[] offsets = this.offsets.clone();
+    for (int k = 0; k < offsets.length; k++)
+      offsets[k] = Math.addExact(offsets[k], n);
+    return new PermutationExpression(factors, inverted, offsets);
+  }
+
+  /**
+   * @return the length of the product; it may be longer than the length of the evaluated permutation,
+   * if the last indexes are fixed points of the product
+   */
+  public int length() {
+    return length;
+  }
+
+  /**
+   * @return the number of recorded factors
+   */
+  public int numFactors() {
+    return factors.length;
+  }
+
+  /**
+   * Move a single index through all factors. The product is not computed.
+   *
+   * @param i a non negative number
+   * @return the same as {@code evaluate().apply(i)}
+   * @throws java.lang.IllegalArgumentException if the input is negative
+   */
+  public int apply(int i) {
+    if (i < 0)
+      negativeFailure();
+    for (int k = 0; k < factors.length; k++) {
+      int j = i - offsets[k];
+      if (j >= 0 && j < factors[k].length())
+        i = offsets[k] + (inverted[k] ? factors[k].applyInverse(j) : factors[k].apply(j));
+    }
+    return i;
+  }
+
+  /**
+   * Compute the product. The factors are composed from left to right into the result, in place.
+   * Each factor only reads and writes the entries that it moves, through a scratch array that is shared
+   * by all factors, so that the cost of a factor is proportional to its own length.
+   * An inverted factor is composed by moving the entries the other way, so its inverse is not computed.
+   * The factors are read as they are stored, and nothing is cached on them, so the only arrays that are
+   * allocated are the result and the scratch array.
+   *
+   * @return the permutation that this expression represents
+   */
+  public Permutation evaluate() {
+    int n = factors.length;
+    if (n == 0)
+      return Permutation.identity();
+    if (n == 1 && offsets[0] == 0)
+      return inverted[0] ? factors[0].invert() : factors[0];
+    int longest = 0;
+    for (Permutation factor : factors)
+      longest = Math.max(longest, factor.length());
+    int[] result = ArrayUtil.range(length);
+    int[] scratch = new int[longest];
+    for (int k = n - 1; k >= 0; k--) {
+      if (inverted[k])
+        factors[k].store().composeRightInverse(result, offsets[k], scratch);
+      else
+        factors[k].store().composeRight(result, offsets[k], scratch);
+    }
+    return Permutation.trusted(result);
+  }
+
+  /**
+   * Convert this expression to a human readable string. This representation may change in the future.
+   *
+   * @return the factors of this expression, from left to right
+   */
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    for (int k = factors.length - 1; k >= 0; k--) {
+      if (sb.length() > 0)
+        sb.append(" * ");
+      sb.append(factors[k]);
+      if (inverted[k])
+        sb.append("^-1");
+      if (offsets[k] != 0)
+        sb.append(" >> ").append(offsets[k]);
+    }
+    return sb.length() == 0 ? "()" : sb.toString();
+  }
+
+}
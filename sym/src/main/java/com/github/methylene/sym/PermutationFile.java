@@ -0,0 +1,84 @@
+package com.github.methylene.sym;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The file format of {@link Permutation#write(Path)} and {@link Permutation#map(Path)}.
+ * <p/>
+ * A file starts with a header of {@value #HEADER_SIZE} bytes: the magic number {@code "SYMP"}, the format version,
+ * the length {@code n} of the ranking and a reserved word. It is followed by the {@code n} entries of the ranking.
+ * All numbers are 32 bit integers in little endian order.
+ */
+final class PermutationFile {
+
+  private PermutationFile() {}
+
+  static final int MAGIC = 0x504d5953; // "SYMP" in little endian
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 16;
+
+  private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+  static void write(int[] ranking, Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE,
+        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      buffer.putInt(MAGIC).putInt(VERSION).putInt(ranking.length).putInt(0);
+      for (int i : ranking) {
+        if (!buffer.hasRemaining())
+          drain(channel, buffer);
+        buffer.putInt(i);
+      }
+      drain(channel, buffer);
+    }
+  }
+
+  private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining())
+      channel.write(buffer);
+    buffer.clear();
+  }
+
+  /**
+   * Map a file that was written by {@link #write(int[], Path)}. The entries are not read or validated;
+   * pages of the file are loaded when they are first accessed.
+   */
+  static RankingStore map(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      while (header.hasRemaining())
+        if (channel.read(header) < 0)
+          throw new IOException("not a permutation file: " + path);
+      header.flip();
+      if (header.getInt() != MAGIC)
+        throw new IOException("not a permutation file: " + path);
+      int version = header.getInt();
+      if (version != VERSION)
+        throw new IOException("unsupported version: " + version);
+      int length = header.getInt();
+      if (length < 0 || channel.size() != HEADER_SIZE + 4L * length)
+        throw new IOException("corrupt permutation file: " + path);
+      int chunkSize = 1 << RankingStore.Mapped.CHUNK_BITS;
+      IntBuffer[] chunks = new IntBuffer[(int) (((long) length + chunkSize - 1) / chunkSize)];
+      for (int c = 0; c < chunks.length; c++) {
+        long from = (long) c * chunkSize;
+        long size = Math.min(chunkSize, length - from);
+        chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + 4 * from, 4 * size)
+            .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+      }
+      RankingStore.Mapped store = new RankingStore.Mapped(chunks, length);
+      // a permutation never ends in a fixed point
+      if (length > 0 && store.get(length - 1) == length - 1)
+        throw new IOException("corrupt permutation file: " + path);
+      return store;
+    }
+  }
+
+}
@@ -0,0 +1,541 @@
+package com.github.methylene.sym;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Stable LSD radix argsort for primitive arrays.
+ * Each key is mapped to an integer whose unsigned order is the order of {@link java.util.Arrays#sort},
+ * and then sorted together with its index, one byte at a time. Passes where all keys share the same
+ * byte are skipped.
+ * <p/>
+ * The rankings are exactly those of the binary search based methods in {@link Rankings}:
+ * within a run of equal keys, the first occurrence is sent to the position that
+ * {@link java.util.Arrays#binarySearch} finds, the following occurrences to the positions after it,
+ * and the remaining ones to the positions before it.
+ */
+final class RadixSort {
+
+  private RadixSort() {}
+
+  private static final int RADIX = 256;
+
+  static int[] sorting(int[] a) {
+    int[] keys = new int[a.length];
+    for (int i = 0; i < a.length; i++)
+      keys[i] = a[i] ^ Integer.MIN_VALUE;
+    return sortingUnsigned(keys);
+  }
+
+  static int[] sorting(byte[] a) {
+    int[] keys = new int[a.length];
+    for (int i = 0; i < a.length; i++)
+      keys[i] = a[i] ^ Integer.MIN_VALUE;
+    return sortingUnsigned(keys);
+  }
+
+  static int[] sorting(short[] a) {
+    int[] keys = new int[a.length];
+    for (int i = 0; i < a.length; i++)
+      keys[i] = a[i] ^ Integer.MIN_VALUE;
+    return sortingUnsigned(keys);
+  }
+
+  static int[] sorting(char[] a) {
+    int[] keys = new int[a.length];
+    for (int i = 0; i < a.length; i++)
+      keys[i] = a[i];
+    return sortingUnsigned(keys);
+  }
+
+  static int[] sorting(float[] a) {
+    int[] keys = new int[a.length];
+    for (int i = 0; i < a.length; i++)
+      keys[i] = unsignedKey(a[i]);
+    return sortingUnsigned(keys);
+  }
+
+  static int[] sorting(long[] a) {
+    long[] keys = new long[a.length];
+    for (int i = 0; i < a.length; i++)
+      keys[i] = a[i] ^ Long.MIN_VALUE;
+    return sortingUnsigned(keys);
+  }
+
+  static int[] sorting(double[] a) {
+    long[] keys = new long[a.length];
+    for (int i = 0; i < a.length; i++)
+      keys[i] = unsignedKey(a[i]);
+    return sortingUnsigned(keys);
+  }
+
+  /* IEEE 754 total order: flip all bits of negative numbers, and only the sign bit of the others */
+  static int unsignedKey(float f) {
+    int bits = Float.floatToIntBits(f);
+    return bits ^ ((bits >> 31) | Integer.MIN_VALUE);
+  }
+
+  static long unsignedKey(double d) {
+    long bits = Double.doubleToLongBits(d);
+    return bits ^ ((bits >> 63) | Long.MIN_VALUE);
+  }
+
+  /* ================= 32 bit keys ================= */
+
+  /**
+   * Compute the sorting ranking of the input keys, in unsigned order.
+   * @param keys an array of keys, which will be modified
+   * @return the sorting ranking
+   */
+  static int[] sortingUnsigned(int[] keys) {
+    final int n = keys.length;
+    int[] counts = new int[4 * RADIX];
+    for (int key : keys)
+      for (int d = 0; d < 4; d++)
+        counts[d * RADIX + ((key >>> (d << 3)) & 0xff)]++;
+    int[] buffer = new int[n];
+    int[] order = null;
+    int[] orderBuffer = new int[n];
+    for (int d = 0; d < 4 && n > 0; d++) {
+      int shift = d << 3;
+      int offset = d * RADIX;
+      if (counts[offset + ((keys[0] >>> shift) & 0xff)] == n)
+        continue;
+      int sum = 0;
+      for (int b = 0; b < RADIX; b++) {
+        int c = counts[offset + b];
+        counts[offset + b] = sum;
+        sum += c;
+      }
+      if (order == null) {
+        for (int i = 0; i < n; i++) {
+          int key = keys[i];
+          int pos = counts[offset + ((key >>> shift) & 0xff)]++;
+          buffer[pos] = key;
+          orderBuffer[pos] = i;
+        }
+        order = new int[n];
+      } else {
+        for (int i = 0; i < n; i++) {
+          int key = keys[i];
+          int pos = counts[offset + ((key >>> shift) & 0xff)]++;
+          buffer[pos] = key;
+          orderBuffer[pos] = order[i];
+        }
+      }
+      int[] swap = keys;
+      keys = buffer;
+      buffer = swap;
+      swap = order;
+      order = orderBuffer;
+      orderBuffer = swap;
+    }
+    if (order == null)
+      order = ArrayUtil.range(n);
+    return ranking(keys, order, buffer);
+  }
+
+  /**
+   * Turn a stable argsort into the canonical sorting ranking.
+   * @param sorted the sorted keys
+   * @param order the stable argsort, {@code order[k]} is the original index of {@code sorted[k]}
+   * @param ranking an array of length {@code sorted.length}, where the result is stored
+   * @return the {@code ranking} argument
+   */
+  static int[] ranking(int[] sorted, int[] order, int[] ranking) {
+    return ranking(sorted, order, ranking, 0, sorted.length);
+  }
+
+  /**
+   * Turn the part of a stable argsort that belongs to the runs starting in {@code [from, to)}
+   * into the canonical sorting ranking.
+   */
+  static int[] ranking(int[] sorted, int[] order, int[] ranking, int from, int to) {
+    int n = sorted.length;
+    int start = from;
+    if (start > 0)
+      while (start < to && sorted[start] == sorted[start - 1])
+        start++;
+    while (start < to) {
+      int key = sorted[start];
+      int end = start + 1;
+      while (end < n && sorted[end] == key)
+        end++;
+      if (end - start == 1) {
+        ranking[order[start]] = start;
+      } else {
+        int idx = binarySearchUnsigned(sorted, key);
+        int above = end - idx;
+        for (int j = 0; j < end - start; j++)
+          ranking[order[start + j]] = j < above ? idx + j : idx - 1 - (j - above);
+      }
+      start = end;
+    }
+    return ranking;
+  }
+
+  /* same probe sequence as java.util.Arrays#binarySearch, but in unsigned order */
+  static int binarySearchUnsigned(int[] a, int key) {
+    int low = 0;
+    int high = a.length - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int cmp = Integer.compare(a[mid] ^ Integer.MIN_VALUE, key ^ Integer.MIN_VALUE);
+      if (cmp < 0)
+        low = mid + 1;
+      else if (cmp > 0)
+        high = mid - 1;
+      else
+        return mid;
+    }
+    return -(low + 1);
+  }
+
+  /* ================= 64 bit keys ================= */
+
+  /**
+   * Compute the sorting ranking of the input keys, in unsigned order.
+   * @param keys an array of keys, which will be modified
+   * @return the sorting ranking
+   */
+  static int[] sortingUnsigned(long[] keys) {
+    final int n = keys.length;
+    int[] counts = new int[8 * RADIX];
+    for (long key : keys)
+      for (int d = 0; d < 8; d++)
+        counts[d * RADIX + (int) ((key >>> (d << 3)) & 0xff)]++;
+    long[] buffer = new long[n];
+    int[] order = null;
+    int[] orderBuffer = new int[n];
+    for (int d = 0; d < 8 && n > 0; d++) {
+      int shift = d << 3;
+      int offset = d * RADIX;
+      if (counts[offset + (int) ((keys[0] >>> shift) & 0xff)] == n)
+        continue;
+      int sum = 0;
+      for (int b = 0; b < RADIX; b++) {
+        int c = counts[offset + b];
+        counts[offset + b] = sum;
+        sum += c;
+      }
+      if (order == null) {
+        for (int i = 0; i < n; i++) {
+          long key = keys[i];
+          int pos = counts[offset + (int) ((key >>> shift) & 0xff)]++;
+          buffer[pos] = key;
+          orderBuffer[pos] = i;
+        }
+        order = new int[n];
+      } else {
+        for (int i = 0; i < n; i++) {
+          long key = keys[i];
+          int pos = counts[offset + (int) ((key >>> shift) & 0xff)]++;
+          buffer[pos] = key;
+          orderBuffer[pos] = order[i];
+        }
+      }
+      long[] swap = keys;
+      keys = buffer;
+      buffer = swap;
+      int[] swapOrder = order;
+      order = orderBuffer;
+      orderBuffer = swapOrder;
+    }
+    if (order == null)
+      order = ArrayUtil.range(n);
+    return ranking(keys, order, orderBuffer);
+  }
+
+  static int[] ranking(long[] sorted, int[] order, int[] ranking) {
+    return ranking(sorted, order, ranking, 0, sorted.length);
+  }
+
+  static int[] ranking(long[] sorted, int[] order, int[] ranking, int from, int to) {
+    int n = sorted.length;
+    int start = from;
+    if (start > 0)
+      while (start < to && sorted[start] == sorted[start - 1])
+        start++;
+    while (start < to) {
+      long key = sorted[start];
+      int end = start + 1;
+      while (end < n && sorted[end] == key)
+        end++;
+      if (end - start == 1) {
+        ranking[order[start]] = start;
+      } else {
+        int idx = binarySearchUnsigned(sorted, key);
+        int above = end - idx;
+        for (int j = 0; j < end - start; j++)
+          ranking[order[start + j]] = j < above ? idx + j : idx - 1 - (j - above);
+      }
+      start = end;
+    }
+    return ranking;
+  }
+
+  static int binarySearchUnsigned(long[] a, long key) {
+    int low = 0;
+    int high = a.length - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int cmp = Long.compare(a[mid] ^ Long.MIN_VALUE, key ^ Long.MIN_VALUE);
+      if (cmp < 0)
+        low = mid + 1;
+      else if (cmp > 0)
+        high = mid - 1;
+      else
+        return mid;
+    }
+    return -(low + 1);
+  }
+
+  /* ================= parallel ================= */
+
+  static int[] sortingParallel(final int[] a, ForkJoinPool pool) {
+    final int[] keys = new int[a.length];
+    final int chunks = ParallelUtil.chunks(pool, a.length);
+    ParallelUtil.forEachChunk(pool, chunks, c -> {
+      for (int i = ParallelUtil.start(a.length, chunks, c); i < ParallelUtil.start(a.length, chunks, c + 1); i++)
+        keys[i] = a[i] ^ Integer.MIN_VALUE;
+    });
+    return sortingUnsignedParallel(keys, pool);
+  }
+
+  static int[] sortingParallel(final byte[] a, ForkJoinPool pool) {
+    final int[] keys = new int[a.length];
+    final int chunks = ParallelUtil.chunks(pool, a.length);
+    ParallelUtil.forEachChunk(pool, chunks, c -> {
+      for (int i = ParallelUtil.start(a.length, chunks, c); i < ParallelUtil.start(a.length, chunks, c + 1); i++)
+        keys[i] = a[i] ^ Integer.MIN_VALUE;
+    });
+    return sortingUnsignedParallel(keys, pool);
+  }
+
+  static int[] sortingParallel(final short[] a, ForkJoinPool pool) {
+    final int[] keys = new int[a.length];
+    final int chunks = ParallelUtil.chunks(pool, a.length);
+    ParallelUtil.forEachChunk(pool, chunks, c -> {
+      for (int i = ParallelUtil.start(a.length, chunks, c); i < ParallelUtil.start(a.length, chunks, c + 1); i++)
+        keys[i] = a[i] ^ Integer.MIN_VALUE;
+    });
+    return sortingUnsignedParallel(keys, pool);
+  }
+
+  static int[] sortingParallel(final char[] a, ForkJoinPool pool) {
+    final int[] keys = new int[a.length];
+    final int chunks = ParallelUtil.chunks(pool, a.length);
+    ParallelUtil.forEachChunk(pool, chunks, c -> {
+      for (int i = ParallelUtil.start(a.length, chunks, c); i < ParallelUtil.start(a.length, chunks, c + 1); i++)
+        keys[i] = a[i];
+    });
+    return sortingUnsignedParallel(keys, pool);
+  }
+
+  static int[] sortingParallel(final float[] a, ForkJoinPool pool) {
+    final int[] keys = new int[a.length];
+    final int chunks = ParallelUtil.chunks(pool, a.length);
+    ParallelUtil.forEachChunk(pool, chunks, c -> {
+      for (int i = ParallelUtil.start(a.length, chunks, c); i < ParallelUtil.start(a.length, chunks, c + 1); i++)
+        keys[i] = unsignedKey(a[i]);
+    });
+    return sortingUnsignedParallel(keys, pool);
+  }
+
+  static int[] sortingParallel(final long[] a, ForkJoinPool pool) {
+    final long[] keys = new long[a.length];
+    final int chunks = ParallelUtil.chunks(pool, a.length);
+    ParallelUtil.forEachChunk(pool, chunks, c -> {
+      for (int i = ParallelUtil.start(a.length, chunks, c); i < ParallelUtil.start(a.length, chunks, c + 1); i++)
+        keys[i] = a[i] ^ Long.MIN_VALUE;
+    });
+    return sortingUnsignedParallel(keys, pool);
+  }
+
+  static int[] sortingParallel(final double[] a, ForkJoinPool pool) {
+    final long[] keys = new long[a.length];
+    final int chunks = ParallelUtil.chunks(pool, a.length);
+    ParallelUtil.forEachChunk(pool, chunks, c -> {
+      for (int i = ParallelUtil.start(a.length, chunks, c); i < ParallelUtil.start(a.length, chunks, c + 1); i++)
+        keys[i] = unsignedKey(a[i]);
+    });
+    return sortingUnsignedParallel(keys, pool);
+  }
+
+  /**
+   * Parallel version of {@link #sortingUnsigned(int[])}.
+   * Each pass counts the digits of every chunk, computes where each chunk writes each digit,
+   * and then lets all chunks scatter at the same time. Chunks are processed in index order within
+   * each digit, so the sort is stable and the result is the same as the sequential one.
+   * @param keys an array of keys, which will be modified
+   * @param pool the pool to run in
+   * @return the sorting ranking
+   */
+  static int[] sortingUnsignedParallel(int[] keys, ForkJoinPool pool) {
+    final int n = keys.length;
+    final int chunks = ParallelUtil.chunks(pool, n);
+    final int[][] counts = new int[chunks][4 * RADIX];
+    final int[] initial = keys;
+    ParallelUtil.forEachChunk(pool, chunks, c -> {
+      int[] count = counts[c];
+      for (int i = ParallelUtil.start(n, chunks, c); i < ParallelUtil.start(n, chunks, c + 1); i++) {
+        int key = initial[i];
+        for (int d = 0; d < 4; d++)
+          count[d * RADIX + ((key >>> (d << 3)) & 0xff)]++;
+      }
+    });
+    int[] buffer = new int[n];
+    int[] order = null;
+    int[] orderBuffer = new int[n];
+    for (int d = 0; d < 4 && n > 0; d++) {
+      final int shift = d << 3;
+      final int offset = d * RADIX;
+      final int[] src = keys;
+      final int[] dst = buffer;
+      final int[] srcOrder = order;
+      final int[] dstOrder = orderBuffer;
+      int first = offset + ((keys[0] >>> shift) & 0xff);
+      int total = 0;
+      for (int[] count : counts)
+        total += count[first];
+      if (total == n)
+        continue;
+      if (order != null) {
+        ParallelUtil.forEachChunk(pool, chunks, c -> {
+          int[] count = counts[c];
+          Arrays.fill(count, offset, offset + RADIX, 0);
+          for (int i = ParallelUtil.start(n, chunks, c); i < ParallelUtil.start(n, chunks, c + 1); i++)
+            count[offset + ((src[i] >>> shift) & 0xff)]++;
+        });
+      }
+      int sum = 0;
+      for (int b = offset; b < offset + RADIX; b++) {
+        for (int[] count : counts) {
+          int x = count[b];
+          count[b] = sum;
+          sum += x;
+        }
+      }
+      ParallelUtil.forEachChunk(pool, chunks, c -> {
+        int[] position = counts[c];
+        int from = ParallelUtil.start(n, chunks, c);
+        int to = ParallelUtil.start(n, chunks, c + 1);
+        if (srcOrder == null) {
+          for (int i = from; i < to; i++) {
+            int key = src[i];
+            int pos = position[offset + ((key >>> shift) & 0xff)]++;
+            dst[pos] = key;
+            dstOrder[pos] = i;
+          }
+        } else {
+          for (int i = from; i < to; i++) {
+            int key = src[i];
+            int pos = position[offset + ((key >>> shift) & 0xff)]++;
+            dst[pos] = key;
+            dstOrder[pos] = srcOrder[i];
+          }
+        }
+      });
+      keys = dst;
+      buffer = src;
+      order = dstOrder;
+      orderBuffer = srcOrder == null ? new int[n] : srcOrder;
+    }
+    if (order == null)
+      order = ArrayUtil.range(n);
+    final int[] sorted = keys;
+    final int[] sortedOrder = order;
+    final int[] ranking = buffer;
+    ParallelUtil.forEachChunk(pool, chunks, c ->
+        ranking(sorted, sortedOrder, ranking, ParallelUtil.start(n, chunks, c), ParallelUtil.start(n, chunks, c + 1)));
+    return ranking;
+  }
+
+  /**
+   * Parallel version of {@link #sortingUnsigned(long[])}.
+   * @param keys an array of keys, which will be modified
+   * @param pool the pool to run in
+   * @return the sorting ranking
+   * @see #sortingUnsignedParallel(int[], ForkJoinPool)
+   */
+  static int[] sortingUnsignedParallel(long[] keys, ForkJoinPool pool) {
+    final int n = keys.length;
+    final int chunks = ParallelUtil.chunks(pool, n);
+    final int[][] counts = new int[chunks][8 * RADIX];
+    final long[] initial = keys;
+    ParallelUtil.forEachChunk(pool, chunks, c -> {
+      int[] count = counts[c];
+      for (int i = ParallelUtil.start(n, chunks, c); i < ParallelUtil.start(n, chunks, c + 1); i++) {
+        long key = initial[i];
+        for (int d = 0; d < 8; d++)
+          count[d * RADIX + (int) ((key >>> (d << 3)) & 0xff)]++;
+      }
+    });
+    long[] buffer = new long[n];
+    int[] order = null;
+    int[] orderBuffer = new int[n];
+    for (int d = 0; d < 8 && n > 0; d++) {
+      final int shift = d << 3;
+      final int offset = d * RADIX;
+      final long[] src = keys;
+      final long[] dst = buffer;
+      final int[] srcOrder = order;
+      final int[] dstOrder = orderBuffer;
+      int first = offset + (int) ((keys[0] >>> shift) & 0xff);
+      int total = 0;
+      for (int[] count : counts)
+        total += count[first];
+      if (total == n)
+        continue;
+      if (order != null) {
+        ParallelUtil.forEachChunk(pool, chunks, c -> {
+          int[] count = counts[c];
+          Arrays.fill(count, offset, offset + RADIX, 0);
+          for (int i = ParallelUtil.start(n, chunks, c); i < ParallelUtil.start(n, chunks, c + 1); i++)
+            count[offset + (int) ((src[i] >>> shift) & 0xff)]++;
+        });
+      }
+      int sum = 0;
+      for (int b = offset; b < offset + RADIX; b++) {
+        for (int[] count : counts) {
+          int x = count[b];
+          count[b] = sum;
+          sum += x;
+        }
+      }
+      ParallelUtil.forEachChunk(pool, chunks, c -> {
+        int[] position = counts[c];
+        int from = ParallelUtil.start(n, chunks, c);
+        int to = ParallelUtil.start(n, chunks, c + 1);
+        if (srcOrder == null) {
+          for (int i = from; i < to; i++) {
+            long key = src[i];
+            int pos = position[offset + (int) ((key >>> shift) & 0xff)]++;
+            dst[pos] = key;
+            dstOrder[pos] = i;
+          }
+        } else {
+          for (int i = from; i < to; i++) {
+            long key = src[i];
+            int pos = position[offset + (int) ((key >>> shift) & 0xff)]++;
+            dst[pos] = key;
+            dstOrder[pos] = srcOrder[i];
+          }
+        }
+      });
+      keys = dst;
+      buffer = src;
+      order = dstOrder;
+      orderBuffer = srcOrder == null ? new int[n] : srcOrder;
+    }
+    if (order == null)
+      order = ArrayUtil.range(n);
+    final long[] sorted = keys;
+    final int[] sortedOrder = order;
+    final int[] ranking = orderBuffer;
+    ParallelUtil.forEachChunk(pool, chunks, c ->
+        ranking(sorted, sortedOrder, ranking, ParallelUtil.start(n, chunks, c), ParallelUtil.start(n, chunks, c + 1)));
+    return ranking;
+  }
+
+}
@@ -0,0 +1,1871 @@
+package com.github.methylene.sym;
+
+import static com.github.methylene.sym.ArrayUtil.checkLength;
+
+import java.lang.reflect.Array;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The storage of a ranking. Rankings of short permutations are stored in fewer than 32 bits per entry.
+ * <p/>
+ * Instances are immutable. {@link #of(int[])} picks the narrowest array:
+ * <ul>
+ *   <li>a {@code byte[]} if the length is at most {@code 256},</li>
+ *   <li>a {@code char[]} if the length is at most {@code 65536},</li>
+ *   <li>the {@code int[]} itself otherwise.</li>
+ * </ul>
+ * A bit packed {@code long[]} with {@code ceil(log2(n))} bits per entry is only used if it is asked for,
+ * by {@link #packed(int[])}, because every access has to decode bits.
+ * <p/>
+ * A compact ranking is never decoded and kept. Applying it, composing and inverting it, and walking its cycles
+ * read it through {@link #get(int)}; {@link Ints}, {@link Bytes} and {@link Chars} override the loops
+ * that apply, compose and invert, so that they read their arrays directly. Other operations decode
+ * a temporary copy.
+ */
+abstract class RankingStore {
+
+  static final int MAX_BYTE_LENGTH = 1 << 8;
+  static final int MAX_CHAR_LENGTH = 1 << 16;
+
+  /**
+   * Choose the narrowest store for a ranking.
+   * @param ranking a ranking, which is not copied if it is stored as an {@code int[]};
+   *                it must not be modified afterwards
+   * @return a store that contains the ranking
+   */
+  static RankingStore of(int[] ranking) {
+    int n = ranking.length;
+    if (n <= MAX_BYTE_LENGTH)
+      return new Bytes(ranking);
+    if (n <= MAX_CHAR_LENGTH)
+      return new Chars(ranking);
+    return new Ints(ranking);
+  }
+
+  /**
+   * Store a ranking in as few bits per entry as possible. This takes less memory than {@link #of(int[])},
+   * but every access decodes bits.
+   * @param ranking a ranking, which is not modified
+   * @return a bit packed store that contains the ranking, or the store of {@link #of(int[])} if that is not larger
+   */
+  static RankingStore packed(int[] ranking) {
+    int n = ranking.length;
+    int width = n <= 1 ? 1 : 32 - Integer.numberOfLeadingZeros(n - 1);
+    if (n <= MAX_BYTE_LENGTH ? width == 8 : n <= MAX_CHAR_LENGTH && width == 16)
+      return of(ranking);
+    return new Packed(ranking, width);
+  }
+
+  abstract int length();
+
+  abstract int get(int i);
+
+  /**
+   * @return a fresh copy of the ranking
+   */
+  abstract int[] toArray();
+
+  /**
+   * @return the ranking, which may be the backing array and must not be modified
+   */
+  int[] array() {
+    return toArray();
+  }
+
+  /**
+   * @param n a number that is not less than {@code length()}
+   * @return a fresh copy of the ranking, followed by the fixed points up to {@code n}
+   */
+  int[] toArray(int n) {
+    int[] result = new int[n];
+    for (int i = 0; i < length(); i++)
+      result[i] = get(i);
+    for (int i = length(); i < n; i++)
+      result[i] = i;
+    return result;
+  }
+
+  /* ================= apply ================= */
+
+  /* a scatter that reads the ranking through get */
+
+  <T> T[] apply(T[] input) {
+    int n = length();
+    checkLength(n, input.length);
+    @SuppressWarnings("unchecked")
+    T[] result = (T[]) Array.newInstance(input.getClass().getComponentType(), input.length);
+    for (int i = 0; i < n; i++)
+      result[get(i)] = input[i];
+    System.arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  byte[] apply(byte[] input) {
+    int n = length();
+    checkLength(n, input.length);
+    byte[] result = new byte[input.length];
+    for (int i = 0; i < n; i++)
+      result[get(i)] = input[i];
+    System.arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  short[] apply(short[] input) {
+    int n = length();
+    checkLength(n, input.length);
+    short[] result = new short[input.length];
+    for (int i = 0; i < n; i++)
+      result[get(i)] = input[i];
+    System.arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  int[] apply(int[] input) {
+    int n = length();
+    checkLength(n, input.length);
+    int[] result = new int[input.length];
+    for (int i = 0; i < n; i++)
+      result[get(i)] = input[i];
+    System.arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  long[] apply(long[] input) {
+    int n = length();
+    checkLength(n, input.length);
+    long[] result = new long[input.length];
+    for (int i = 0; i < n; i++)
+      result[get(i)] = input[i];
+    System.arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  float[] apply(float[] input) {
+    int n = length();
+    checkLength(n, input.length);
+    float[] result = new float[input.length];
+    for (int i = 0; i < n; i++)
+      result[get(i)] = input[i];
+    System.arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  double[] apply(double[] input) {
+    int n = length();
+    checkLength(n, input.length);
+    double[] result = new double[input.length];
+    for (int i = 0; i < n; i++)
+      result[get(i)] = input[i];
+    System.arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  boolean[] apply(boolean[] input) {
+    int n = length();
+    checkLength(n, input.length);
+    boolean[] result = new boolean[input.length];
+    for (int i = 0; i < n; i++)
+      result[get(i)] = input[i];
+    System.arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  char[] apply(char[] input) {
+    int n = length();
+    checkLength(n, input.length);
+    char[] result = new char[input.length];
+    for (int i = 0; i < n; i++)
+      result[get(i)] = input[i];
+    System.arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  /* ================= apply into a given array ================= */
+
+  /* these do not allocate */
+
+  void applyTo(Object[] src, int srcPos, Object[] dst, int dstPos, int length) {
+    int n = length();
+    Rankings.checkApplyTo(n, src, src.length, srcPos, dst, dst.length, dstPos, length);
+    for (int i = 0; i < n; i++)
+      dst[dstPos + get(i)] = src[srcPos + i];
+    System.arraycopy(src, srcPos + n, dst, dstPos + n, length - n);
+  }
+
+  void applyTo(byte[] src, int srcPos, byte[] dst, int dstPos, int length) {
+    int n = length();
+    Rankings.checkApplyTo(n, src, src.length, srcPos, dst, dst.length, dstPos, length);
+    for (int i = 0; i < n; i++)
+      dst[dstPos + get(i)] = src[srcPos + i];
+    System.arraycopy(src, srcPos + n, dst, dstPos + n, length - n);
+  }
+
+  void applyTo(short[] src, int srcPos, short[] dst, int dstPos, int length) {
+    int n = length();
+    Rankings.checkApplyTo(n, src, src.length, srcPos, dst, dst.length, dstPos, length);
+    for (int i = 0; i < n; i++)
+      dst[dstPos + get(i)] = src[srcPos + i];
+    System.arraycopy(src, srcPos + n, dst, dstPos + n, length - n);
+  }
+
+  void applyTo(int[] src, int srcPos, int[] dst, int dstPos, int length) {
+    int n = length();
+    Rankings.checkApplyTo(n, src, src.length, srcPos, dst, dst.length, dstPos, length);
+    for (int i = 0; i < n; i++)
+      dst[dstPos + get(i)] = src[srcPos + i];
+    System.arraycopy(src, srcPos + n, dst, dstPos + n, length - n);
+  }
+
+  void applyTo(long[] src, int srcPos, long[] dst, int dstPos, int length) {
+    int n = length();
+    Rankings.checkApplyTo(n, src, src.length, srcPos, dst, dst.length, dstPos, length);
+    for (int i = 0; i < n; i++)
+      dst[dstPos + get(i)] = src[srcPos + i];
+    System.arraycopy(src, srcPos + n, dst, dstPos + n, length - n);
+  }
+
+  void applyTo(float[] src, int srcPos, float[] dst, int dstPos, int length) {
+    int n = length();
+    Rankings.checkApplyTo(n, src, src.length, srcPos, dst, dst.length, dstPos, length);
+    for (int i = 0; i < n; i++)
+      dst[dstPos + get(i)] = src[srcPos + i];
+    System.arraycopy(src, srcPos + n, dst, dstPos + n, length - n);
+  }
+
+  void applyTo(double[] src, int srcPos, double[] dst, int dstPos, int length) {
+    int n = length();
+    Rankings.checkApplyTo(n, src, src.length, srcPos, dst, dst.length, dstPos, length);
+    for (int i = 0; i < n; i++)
+      dst[dstPos + get(i)] = src[srcPos + i];
+    System.arraycopy(src, srcPos + n, dst, dstPos + n, length - n);
+  }
+
+  void applyTo(boolean[] src, int srcPos, boolean[] dst, int dstPos, int length) {
+    int n = length();
+    Rankings.checkApplyTo(n, src, src.length, srcPos, dst, dst.length, dstPos, length);
+    for (int i = 0; i < n; i++)
+      dst[dstPos + get(i)] = src[srcPos + i];
+    System.arraycopy(src, srcPos + n, dst, dstPos + n, length - n);
+  }
+
+  void applyTo(char[] src, int srcPos, char[] dst, int dstPos, int length) {
+    int n = length();
+    Rankings.checkApplyTo(n, src, src.length, srcPos, dst, dst.length, dstPos, length);
+    for (int i = 0; i < n; i++)
+      dst[dstPos + get(i)] = src[srcPos + i];
+    System.arraycopy(src, srcPos + n, dst, dstPos + n, length - n);
+  }
+
+  <E> void applyTo(List<? extends E> src, List<? super E> dst) {
+    int n = length();
+    int length = src.size();
+    checkLength(n, length);
+    if (src == dst)
+      throw new IllegalArgumentException("source and destination overlap");
+    if (dst.size() < length)
+      throw new IndexOutOfBoundsException("destination too short: " + dst.size() + " < " + length);
+    if (src instanceof RandomAccess && dst instanceof RandomAccess) {
+      for (int i = 0; i < n; i++)
+        dst.set(get(i), src.get(i));
+      for (int i = n; i < length; i++)
+        dst.set(i, src.get(i));
+      return;
+    }
+    @SuppressWarnings("unchecked")
+    E[] result = (E[]) apply(src.toArray());
+    ListIterator<? super E> it = dst.listIterator();
+    for (int i = 0; i < length; i++) {
+      it.next();
+      it.set(result[i]);
+    }
+  }
+
+  /* ================= apply in parallel ================= */
+
+  /* a parallel scatter that reads the ranking through get; short rankings are applied sequentially */
+
+  private boolean sequential(ForkJoinPool pool) {
+    return length() < Rankings.PARALLEL_APPLY_THRESHOLD || pool.getParallelism() == 1;
+  }
+
+  <T> T[] applyParallel(T[] input, ForkJoinPool pool) {
+    if (sequential(pool))
+      return apply(input);
+    int n = length();
+    checkLength(n, input.length);
+    @SuppressWarnings("unchecked")
+    T[] result = (T[]) Array.newInstance(input.getClass().getComponentType(), input.length);
+    int chunks = ParallelUtil.chunks(pool, n);
+    ParallelUtil.forEachChunk(pool, chunks, c -> {
+      for (int i = ParallelUtil.start(n, chunks, c); i < ParallelUtil.start(n, chunks, c + 1); i++)
+        result[get(i)] = input[i];
+    });
+    System.arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  byte[] applyParallel(byte[] input, ForkJoinPool pool) {
+    if (sequential(pool))
+      return apply(input);
+    int n = length();
+    checkLength(n, input.length);
+    byte[] result = new byte[input.length];
+    int chunks = ParallelUtil.chunks(pool, n);
+    ParallelUtil.forEachChunk(pool, chunks, c -> {
+      for (int i = ParallelUtil.start(n, chunks, c); i < ParallelUtil.start(n, chunks, c + 1); i++)
+        result[get(i)] = input[i];
+    });
+    System.arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  short[] applyParallel(short[] input, ForkJoinPool pool) {
+    if (sequential(pool))
+      return apply(input);
+    int n = length();
+    checkLength(n, input.length);
+    short[] result = new short[input.length];
+    int chunks = ParallelUtil.chunks(pool, n);
+    ParallelUtil.forEachChunk(pool, chunks, c -> {
+      for (int i = ParallelUtil.start(n, chunks, c); i < ParallelUtil.start(n, chunks, c + 1); i++)
+        result[get(i)] = input[i];
+    });
+    System.arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  int[] applyParallel(int[] input, ForkJoinPool pool) {
+    if (sequential(pool))
+      return apply(input);
+    int n = length();
+    checkLength(n, input.length);
+    int[] result = new int[input.length];
+    int chunks = ParallelUtil.chunks(pool, n);
+    ParallelUtil.forEachChunk(pool, chunks, c -> {
+      for (int i = ParallelUtil.start(n, chunks, c); i < ParallelUtil.start(n, chunks, c + 1); i++)
+        result[get(i)] = input[i];
+    });
+    System.arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  long[] applyParallel(long[] input, ForkJoinPool pool) {
+    if (sequential(pool))
+      return apply(input);
+    int n = length();
+    checkLength(n, input.length);
+    long[] result = new long[input.length];
+    int chunks = ParallelUtil.chunks(pool, n);
+    ParallelUtil.forEachChunk(pool, chunks, c -> {
+      for (int i = ParallelUtil.start(n, chunks, c); i < ParallelUtil.start(n, chunks, c + 1); i++)
+        result[get(i)] = input[i];
+    });
+    System.arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  float[] applyParallel(float[] input, ForkJoinPool pool) {
+    if (sequential(pool))
+      return apply(input);
+    int n = length();
+    checkLength(n, input.length);
+    float[] result = new float[input.length];
+    int chunks = ParallelUtil.chunks(pool, n);
+    ParallelUtil.forEachChunk(pool, chunks, c -> {
+      for (int i = ParallelUtil.start(n, chunks, c); i < ParallelUtil.start(n, chunks, c + 1); i++)
+        result[get(i)] = input[i];
+    });
+    System.arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  double[] applyParallel(double[] input, ForkJoinPool pool) {
+    if (sequential(pool))
+      return apply(input);
+    int n = length();
+    checkLength(n, input.length);
+    double[] result = new double[input.length];
+    int chunks = ParallelUtil.chunks(pool, n);
+    ParallelUtil.forEachChunk(pool, chunks, c -> {
+      for (int i = ParallelUtil.start(n, chunks, c); i < ParallelUtil.start(n, chunks, c + 1); i++)
+        result[get(i)] = input[i];
+    });
+    System.arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  boolean[] applyParallel(boolean[] input, ForkJoinPool pool) {
+    if (sequential(pool))
+      return apply(input);
+    int n = length();
+    checkLength(n, input.length);
+    boolean[] result = new boolean[input.length];
+    int chunks = ParallelUtil.chunks(pool, n);
+    ParallelUtil.forEachChunk(pool, chunks, c -> {
+      for (int i = ParallelUtil.start(n, chunks, c); i < ParallelUtil.start(n, chunks, c + 1); i++)
+        result[get(i)] = input[i];
+    });
+    System.arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  char[] applyParallel(char[] input, ForkJoinPool pool) {
+    if (sequential(pool))
+      return apply(input);
+    int n = length();
+    checkLength(n, input.length);
+    char[] result = new char[input.length];
+    int chunks = ParallelUtil.chunks(pool, n);
+    ParallelUtil.forEachChunk(pool, chunks, c -> {
+      for (int i = ParallelUtil.start(n, chunks, c); i < ParallelUtil.start(n, chunks, c + 1); i++)
+        result[get(i)] = input[i];
+    });
+    System.arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  <E> List<E> applyParallel(List<E> input, ForkJoinPool pool) {
+    @SuppressWarnings("unchecked")
+    E[] result = (E[]) applyParallel(input.toArray(), pool);
+    return new ArrayList<>(Arrays.asList(result));
+  }
+
+  /* ================= gather ================= */
+
+  /* result[i] = input[get(i)], which applies the inverse; the ranking is read through get, so it is not decoded */
+
+  <T> T[] gather(T[] input) {
+    int n = length();
+    checkLength(n, input.length);
+    @SuppressWarnings("unchecked")
+    T[] result = (T[]) Array.newInstance(input.getClass().getComponentType(), input.length);
+    for (int i = 0; i < n; i++)
+      result[i] = input[get(i)];
+    System.arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  byte[] gather(byte[] input) {
+    int n = length();
+    checkLength(n, input.length);
+    byte[] result = new byte[input.length];
+    for (int i = 0; i < n; i++)
+      result[i] = input[get(i)];
+    System.arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  short[] gather(short[] input) {
+    int n = length();
+    checkLength(n, input.length);
+    short[] result = new short[input.length];
+    for (int i = 0; i < n; i++)
+      result[i] = input[get(i)];
+    System.arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  int[] gather(int[] input) {
+    int n = length();
+    checkLength(n, input.length);
+    int[] result = new int[input.length];
+    for (int i = 0; i < n; i++)
+      result[i] = input[get(i)];
+    System.arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  long[] gather(long[] input) {
+    int n = length();
+    checkLength(n, input.length);
+    long[] result = new long[input.length];
+    for (int i = 0; i < n; i++)
+      result[i] = input[get(i)];
+    System.arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  float[] gather(float[] input) {
+    int n = length();
+    checkLength(n, input.length);
+    float[] result = new float[input.length];
+    for (int i = 0; i < n; i++)
+      result[i] = input[get(i)];
+    System.arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  double[] gather(double[] input) {
+    int n = length();
+    checkLength(n, input.length);
+    double[] result = new double[input.length];
+    for (int i = 0; i < n; i++)
+      result[i] = input[get(i)];
+    System.arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  boolean[] gather(boolean[] input) {
+    int n = length();
+    checkLength(n, input.length);
+    boolean[] result = new boolean[input.length];
+    for (int i = 0; i < n; i++)
+      result[i] = input[get(i)];
+    System.arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  char[] gather(char[] input) {
+    int n = length();
+    checkLength(n, input.length);
+    char[] result = new char[input.length];
+    for (int i = 0; i < n; i++)
+      result[i] = input[get(i)];
+    System.arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  /* ================= gather into a given array ================= */
+
+  void gatherTo(Object[] src, Object[] dst) {
+    int n = length();
+    Rankings.checkApplyTo(n, src, src.length, 0, dst, dst.length, 0, src.length);
+    for (int i = 0; i < n; i++)
+      dst[i] = src[get(i)];
+    System.arraycopy(src, n, dst, n, src.length - n);
+  }
+
+  void gatherTo(byte[] src, byte[] dst) {
+    int n = length();
+    Rankings.checkApplyTo(n, src, src.length, 0, dst, dst.length, 0, src.length);
+    for (int i = 0; i < n; i++)
+      dst[i] = src[get(i)];
+    System.arraycopy(src, n, dst, n, src.length - n);
+  }
+
+  void gatherTo(short[] src, short[] dst) {
+    int n = length();
+    Rankings.checkApplyTo(n, src, src.length, 0, dst, dst.length, 0, src.length);
+    for (int i = 0; i < n; i++)
+      dst[i] = src[get(i)];
+    System.arraycopy(src, n, dst, n, src.length - n);
+  }
+
+  void gatherTo(int[] src, int[] dst) {
+    int n = length();
+    Rankings.checkApplyTo(n, src, src.length, 0, dst, dst.length, 0, src.length);
+    for (int i = 0; i < n; i++)
+      dst[i] = src[get(i)];
+    System.arraycopy(src, n, dst, n, src.length - n);
+  }
+
+  void gatherTo(long[] src, long[] dst) {
+    int n = length();
+    Rankings.checkApplyTo(n, src, src.length, 0, dst, dst.length, 0, src.length);
+    for (int i = 0; i < n; i++)
+      dst[i] = src[get(i)];
+    System.arraycopy(src, n, dst, n, src.length - n);
+  }
+
+  void gatherTo(float[] src, float[] dst) {
+    int n = length();
+    Rankings.checkApplyTo(n, src, src.length, 0, dst, dst.length, 0, src.length);
+    for (int i = 0; i < n; i++)
+      dst[i] = src[get(i)];
+    System.arraycopy(src, n, dst, n, src.length - n);
+  }
+
+  void gatherTo(double[] src, double[] dst) {
+    int n = length();
+    Rankings.checkApplyTo(n, src, src.length, 0, dst, dst.length, 0, src.length);
+    for (int i = 0; i < n; i++)
+      dst[i] = src[get(i)];
+    System.arraycopy(src, n, dst, n, src.length - n);
+  }
+
+  void gatherTo(boolean[] src, boolean[] dst) {
+    int n = length();
+    Rankings.checkApplyTo(n, src, src.length, 0, dst, dst.length, 0, src.length);
+    for (int i = 0; i < n; i++)
+      dst[i] = src[get(i)];
+    System.arraycopy(src, n, dst, n, src.length - n);
+  }
+
+  void gatherTo(char[] src, char[] dst) {
+    int n = length();
+    Rankings.checkApplyTo(n, src, src.length, 0, dst, dst.length, 0, src.length);
+    for (int i = 0; i < n; i++)
+      dst[i] = src[get(i)];
+    System.arraycopy(src, n, dst, n, src.length - n);
+  }
+
+  /* ================= products ================= */
+
+  /**
+   * Compose with a product that is being computed in place: {@code values[i]} becomes
+   * {@code offset + get(values[i] - offset)}, if {@code values[i] - offset} is an index of this ranking.
+   * @param values the ranking of a product, which is modified
+   * @param offset the shift of this ranking
+   */
+  void composeInto(int[] values, int offset) {
+    int n = length();
+    for (int i = 0; i < values.length; i++) {
+      int j = values[i] - offset;
+      if (j >= 0 && j < n)
+        values[i] = offset + get(j);
+    }
+  }
+
+  /**
+   * Compose a product that is being computed in place with this ranking, on the right:
+   * {@code values[offset + i]} becomes {@code values[offset + get(i)]}, for {@code i < length()}.
+   * Only the entries that this ranking moves are read and written.
+   * @param values  the ranking of a product, which is modified
+   * @param offset  the shift of this ranking
+   * @param scratch an array that is not shorter than this ranking
+   */
+  void composeRight(int[] values, int offset, int[] scratch) {
+    int n = length();
+    for (int i = 0; i < n; i++)
+      scratch[i] = values[offset + get(i)];
+    System.arraycopy(scratch, 0, values, offset, n);
+  }
+
+  /**
+   * Compose a product that is being computed in place with the inverse of this ranking, on the right:
+   * {@code values[offset + get(i)]} becomes {@code values[offset + i]}, for {@code i < length()}.
+   * The inverse is not computed.
+   * @param values  the ranking of a product, which is modified
+   * @param offset  the shift of this ranking
+   * @param scratch an array that is not shorter than this ranking
+   */
+  void composeRightInverse(int[] values, int offset, int[] scratch) {
+    int n = length();
+    for (int i = 0; i < n; i++)
+      scratch[get(i)] = values[offset + i];
+    System.arraycopy(scratch, 0, values, offset, n);
+  }
+
+  /**
+   * Write the inverse ranking to the first {@code length()} entries of a scratch array.
+   * @param scratch an array that is not shorter than this ranking
+   */
+  void invertInto(int[] scratch) {
+    for (int i = 0; i < length(); i++)
+      scratch[get(i)] = i;
+  }
+
+  final boolean contentEquals(RankingStore other) {
+    if (this instanceof Ints && other instanceof Ints)
+      return Arrays.equals(((Ints) this).ranking, ((Ints) other).ranking);
+    int n = length();
+    if (n != other.length())
+      return false;
+    for (int i = 0; i < n; i++)
+      if (get(i) != other.get(i))
+        return false;
+    return true;
+  }
+
+  /* same as Arrays.hashCode(toArray()) */
+  final int contentHashCode() {
+    if (this instanceof Ints)
+      return Arrays.hashCode(((Ints) this).ranking);
+    int result = 1;
+    for (int i = 0; i < length(); i++)
+      result = 31 * result + get(i);
+    return result;
+  }
+
+  static final class Ints extends RankingStore {
+    private final int[] ranking;
+
+    Ints(int[] ranking) {
+      this.ranking = ranking;
+    }
+
+    @Override
+    int length() {
+      return ranking.length;
+    }
+
+    @Override
+    int get(int i) {
+      return ranking[i];
+    }
+
+    @Override
+    int[] toArray() {
+      return ranking.clone();
+    }
+
+    @Override
+    int[] toArray(int n) {
+      int[] result = Arrays.copyOf(ranking, n);
+      for (int i = ranking.length; i < n; i++)
+        result[i] = i;
+      return result;
+    }
+
+    @Override
+    int[] array() {
+      return ranking;
+    }
+
+    @Override
+    void invertInto(int[] scratch) {
+      for (int i = 0; i < ranking.length; i++)
+        scratch[ranking[i]] = i;
+    }
+
+    @Override
+    void composeRight(int[] values, int offset, int[] scratch) {
+      for (int i = 0; i < ranking.length; i++)
+        scratch[i] = values[offset + ranking[i]];
+      System.arraycopy(scratch, 0, values, offset, ranking.length);
+    }
+
+    @Override
+    void composeRightInverse(int[] values, int offset, int[] scratch) {
+      for (int i = 0; i < ranking.length; i++)
+        scratch[ranking[i]] = values[offset + i];
+      System.arraycopy(scratch, 0, values, offset, ranking.length);
+    }
+
+    @Override
+    void composeInto(int[] values, int offset) {
+      for (int i = 0; i < values.length; i++) {
+        int j = values[i] - offset;
+        if (j >= 0 && j < ranking.length)
+          values[i] = offset + ranking[j];
+      }
+    }
+
+    @Override
+    <T> T[] apply(T[] input) {
+      return Rankings.apply(ranking, input);
+    }
+
+    @Override
+    byte[] apply(byte[] input) {
+      return Rankings.apply(ranking, input);
+    }
+
+    @Override
+    short[] apply(short[] input) {
+      return Rankings.apply(ranking, input);
+    }
+
+    @Override
+    int[] apply(int[] input) {
+      return Rankings.apply(ranking, input);
+    }
+
+    @Override
+    long[] apply(long[] input) {
+      return Rankings.apply(ranking, input);
+    }
+
+    @Override
+    float[] apply(float[] input) {
+      return Rankings.apply(ranking, input);
+    }
+
+    @Override
+    double[] apply(double[] input) {
+      return Rankings.apply(ranking, input);
+    }
+
+    @Override
+    boolean[] apply(boolean[] input) {
+      return Rankings.apply(ranking, input);
+    }
+
+    @Override
+    char[] apply(char[] input) {
+      return Rankings.apply(ranking, input);
+    }
+
+    @Override
+    void applyTo(Object[] src, int srcPos, Object[] dst, int dstPos, int length) {
+      Rankings.applyTo(ranking, src, srcPos, dst, dstPos, length);
+    }
+
+    @Override
+    void applyTo(byte[] src, int srcPos, byte[] dst, int dstPos, int length) {
+      Rankings.applyTo(ranking, src, srcPos, dst, dstPos, length);
+    }
+
+    @Override
+    void applyTo(short[] src, int srcPos, short[] dst, int dstPos, int length) {
+      Rankings.applyTo(ranking, src, srcPos, dst, dstPos, length);
+    }
+
+    @Override
+    void applyTo(int[] src, int srcPos, int[] dst, int dstPos, int length) {
+      Rankings.applyTo(ranking, src, srcPos, dst, dstPos, length);
+    }
+
+    @Override
+    void applyTo(long[] src, int srcPos, long[] dst, int dstPos, int length) {
+      Rankings.applyTo(ranking, src, srcPos, dst, dstPos, length);
+    }
+
+    @Override
+    void applyTo(float[] src, int srcPos, float[] dst, int dstPos, int length) {
+      Rankings.applyTo(ranking, src, srcPos, dst, dstPos, length);
+    }
+
+    @Override
+    void applyTo(double[] src, int srcPos, double[] dst, int dstPos, int length) {
+      Rankings.applyTo(ranking, src, srcPos, dst, dstPos, length);
+    }
+
+    @Override
+    void applyTo(boolean[] src, int srcPos, boolean[] dst, int dstPos, int length) {
+      Rankings.applyTo(ranking, src, srcPos, dst, dstPos, length);
+    }
+
+    @Override
+    void applyTo(char[] src, int srcPos, char[] dst, int dstPos, int length) {
+      Rankings.applyTo(ranking, src, srcPos, dst, dstPos, length);
+    }
+    @Override
+    <E> void applyTo(List<? extends E> src, List<? super E> dst) {
+      Rankings.applyTo(ranking, src, dst);
+    }
+
+    @Override
+    <T> T[] applyParallel(T[] input, ForkJoinPool pool) {
+      return Rankings.applyParallel(ranking, input, pool);
+    }
+
+    @Override
+    byte[] applyParallel(byte[] input, ForkJoinPool pool) {
+      return Rankings.applyParallel(ranking, input, pool);
+    }
+
+    @Override
+    short[] applyParallel(short[] input, ForkJoinPool pool) {
+      return Rankings.applyParallel(ranking, input, pool);
+    }
+
+    @Override
+    int[] applyParallel(int[] input, ForkJoinPool pool) {
+      return Rankings.applyParallel(ranking, input, pool);
+    }
+
+    @Override
+    long[] applyParallel(long[] input, ForkJoinPool pool) {
+      return Rankings.applyParallel(ranking, input, pool);
+    }
+
+    @Override
+    float[] applyParallel(float[] input, ForkJoinPool pool) {
+      return Rankings.applyParallel(ranking, input, pool);
+    }
+
+    @Override
+    double[] applyParallel(double[] input, ForkJoinPool pool) {
+      return Rankings.applyParallel(ranking, input, pool);
+    }
+
+    @Override
+    boolean[] applyParallel(boolean[] input, ForkJoinPool pool) {
+      return Rankings.applyParallel(ranking, input, pool);
+    }
+
+    @Override
+    char[] applyParallel(char[] input, ForkJoinPool pool) {
+      return Rankings.applyParallel(ranking, input, pool);
+    }
+
+    @Override
+    <E> List<E> applyParallel(List<E> input, ForkJoinPool pool) {
+      return Rankings.applyParallel(ranking, input, pool);
+    }
+    @Override
+    <T> T[] gather(T[] input) {
+      return Rankings.gather(ranking, input);
+    }
+
+    @Override
+    byte[] gather(byte[] input) {
+      return Rankings.gather(ranking, input);
+    }
+
+    @Override
+    short[] gather(short[] input) {
+      return Rankings.gather(ranking, input);
+    }
+
+    @Override
+    int[] gather(int[] input) {
+      return Rankings.gather(ranking, input);
+    }
+
+    @Override
+    long[] gather(long[] input) {
+      return Rankings.gather(ranking, input);
+    }
+
+    @Override
+    float[] gather(float[] input) {
+      return Rankings.gather(ranking, input);
+    }
+
+    @Override
+    double[] gather(double[] input) {
+      return Rankings.gather(ranking, input);
+    }
+
+    @Override
+    boolean[] gather(boolean[] input) {
+      return Rankings.gather(ranking, input);
+    }
+
+    @Override
+    char[] gather(char[] input) {
+      return Rankings.gather(ranking, input);
+    }
+
+    @Override
+    void gatherTo(Object[] src, Object[] dst) {
+      Rankings.gatherTo(ranking, src, dst);
+    }
+
+    @Override
+    void gatherTo(byte[] src, byte[] dst) {
+      Rankings.gatherTo(ranking, src, dst);
+    }
+
+    @Override
+    void gatherTo(short[] src, short[] dst) {
+      Rankings.gatherTo(ranking, src, dst);
+    }
+
+    @Override
+    void gatherTo(int[] src, int[] dst) {
+      Rankings.gatherTo(ranking, src, dst);
+    }
+
+    @Override
+    void gatherTo(long[] src, long[] dst) {
+      Rankings.gatherTo(ranking, src, dst);
+    }
+
+    @Override
+    void gatherTo(float[] src, float[] dst) {
+      Rankings.gatherTo(ranking, src, dst);
+    }
+
+    @Override
+    void gatherTo(double[] src, double[] dst) {
+      Rankings.gatherTo(ranking, src, dst);
+    }
+
+    @Override
+    void gatherTo(boolean[] src, boolean[] dst) {
+      Rankings.gatherTo(ranking, src, dst);
+    }
+
+    @Override
+    void gatherTo(char[] src, char[] dst) {
+      Rankings.gatherTo(ranking, src, dst);
+    }
+  }
+
+  static final class Bytes extends RankingStore {
+    private final byte[] ranking;
+
+    Bytes(int[] ranking) {
+      this.ranking = new byte[ranking.length];
+      for (int i = 0; i < ranking.length; i++)
+        this.ranking[i] = (byte) ranking[i];
+    }
+
+    @Override
+    int length() {
+      return ranking.length;
+    }
+
+    @Override
+    int get(int i) {
+      return ranking[i] & 0xff;
+    }
+
+    @Override
+    int[] toArray() {
+      int[] result = new int[ranking.length];
+      for (int i = 0; i < result.length; i++)
+        result[i] = ranking[i] & 0xff;
+      return result;
+    }
+
+    @Override
+    int[] toArray(int n) {
+      int[] result = new int[n];
+      for (int i = 0; i < ranking.length; i++)
+        result[i] = ranking[i] & 0xff;
+      for (int i = ranking.length; i < n; i++)
+        result[i] = i;
+      return result;
+    }
+
+    /* the loops below repeat those of the base class, so that they read the array without a call to get */
+
+    @Override
+    <T> T[] apply(T[] input) {
+      checkLength(ranking.length, input.length);
+      @SuppressWarnings("unchecked")
+      T[] result = (T[]) Array.newInstance(input.getClass().getComponentType(), input.length);
+      for (int i = 0; i < ranking.length; i++)
+        result[ranking[i] & 0xff] = input[i];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    byte[] apply(byte[] input) {
+      checkLength(ranking.length, input.length);
+      byte[] result = new byte[input.length];
+      for (int i = 0; i < ranking.length; i++)
+        result[ranking[i] & 0xff] = input[i];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    short[] apply(short[] input) {
+      checkLength(ranking.length, input.length);
+      short[] result = new short[input.length];
+      for (int i = 0; i < ranking.length; i++)
+        result[ranking[i] & 0xff] = input[i];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    int[] apply(int[] input) {
+      checkLength(ranking.length, input.length);
+      int[] result = new int[input.length];
+      for (int i = 0; i < ranking.length; i++)
+        result[ranking[i] & 0xff] = input[i];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    long[] apply(long[] input) {
+      checkLength(ranking.length, input.length);
+      long[] result = new long[input.length];
+      for (int i = 0; i < ranking.length; i++)
+        result[ranking[i] & 0xff] = input[i];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    float[] apply(float[] input) {
+      checkLength(ranking.length, input.length);
+      float[] result = new float[input.length];
+      for (int i = 0; i < ranking.length; i++)
+        result[ranking[i] & 0xff] = input[i];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    double[] apply(double[] input) {
+      checkLength(ranking.length, input.length);
+      double[] result = new double[input.length];
+      for (int i = 0; i < ranking.length; i++)
+        result[ranking[i] & 0xff] = input[i];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    boolean[] apply(boolean[] input) {
+      checkLength(ranking.length, input.length);
+      boolean[] result = new boolean[input.length];
+      for (int i = 0; i < ranking.length; i++)
+        result[ranking[i] & 0xff] = input[i];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    char[] apply(char[] input) {
+      checkLength(ranking.length, input.length);
+      char[] result = new char[input.length];
+      for (int i = 0; i < ranking.length; i++)
+        result[ranking[i] & 0xff] = input[i];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    void applyTo(Object[] src, int srcPos, Object[] dst, int dstPos, int length) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, srcPos, dst, dst.length, dstPos, length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[dstPos + (ranking[i] & 0xff)] = src[srcPos + i];
+      System.arraycopy(src, srcPos + ranking.length, dst, dstPos + ranking.length, length - ranking.length);
+    }
+
+    @Override
+    void applyTo(byte[] src, int srcPos, byte[] dst, int dstPos, int length) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, srcPos, dst, dst.length, dstPos, length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[dstPos + (ranking[i] & 0xff)] = src[srcPos + i];
+      System.arraycopy(src, srcPos + ranking.length, dst, dstPos + ranking.length, length - ranking.length);
+    }
+
+    @Override
+    void applyTo(short[] src, int srcPos, short[] dst, int dstPos, int length) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, srcPos, dst, dst.length, dstPos, length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[dstPos + (ranking[i] & 0xff)] = src[srcPos + i];
+      System.arraycopy(src, srcPos + ranking.length, dst, dstPos + ranking.length, length - ranking.length);
+    }
+
+    @Override
+    void applyTo(int[] src, int srcPos, int[] dst, int dstPos, int length) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, srcPos, dst, dst.length, dstPos, length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[dstPos + (ranking[i] & 0xff)] = src[srcPos + i];
+      System.arraycopy(src, srcPos + ranking.length, dst, dstPos + ranking.length, length - ranking.length);
+    }
+
+    @Override
+    void applyTo(long[] src, int srcPos, long[] dst, int dstPos, int length) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, srcPos, dst, dst.length, dstPos, length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[dstPos + (ranking[i] & 0xff)] = src[srcPos + i];
+      System.arraycopy(src, srcPos + ranking.length, dst, dstPos + ranking.length, length - ranking.length);
+    }
+
+    @Override
+    void applyTo(float[] src, int srcPos, float[] dst, int dstPos, int length) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, srcPos, dst, dst.length, dstPos, length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[dstPos + (ranking[i] & 0xff)] = src[srcPos + i];
+      System.arraycopy(src, srcPos + ranking.length, dst, dstPos + ranking.length, length - ranking.length);
+    }
+
+    @Override
+    void applyTo(double[] src, int srcPos, double[] dst, int dstPos, int length) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, srcPos, dst, dst.length, dstPos, length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[dstPos + (ranking[i] & 0xff)] = src[srcPos + i];
+      System.arraycopy(src, srcPos + ranking.length, dst, dstPos + ranking.length, length - ranking.length);
+    }
+
+    @Override
+    void applyTo(boolean[] src, int srcPos, boolean[] dst, int dstPos, int length) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, srcPos, dst, dst.length, dstPos, length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[dstPos + (ranking[i] & 0xff)] = src[srcPos + i];
+      System.arraycopy(src, srcPos + ranking.length, dst, dstPos + ranking.length, length - ranking.length);
+    }
+
+    @Override
+    void applyTo(char[] src, int srcPos, char[] dst, int dstPos, int length) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, srcPos, dst, dst.length, dstPos, length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[dstPos + (ranking[i] & 0xff)] = src[srcPos + i];
+      System.arraycopy(src, srcPos + ranking.length, dst, dstPos + ranking.length, length - ranking.length);
+    }
+
+    @Override
+    <T> T[] gather(T[] input) {
+      checkLength(ranking.length, input.length);
+      @SuppressWarnings("unchecked")
+      T[] result = (T[]) Array.newInstance(input.getClass().getComponentType(), input.length);
+      for (int i = 0; i < ranking.length; i++)
+        result[i] = input[ranking[i] & 0xff];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    byte[] gather(byte[] input) {
+      checkLength(ranking.length, input.length);
+      byte[] result = new byte[input.length];
+      for (int i = 0; i < ranking.length; i++)
+        result[i] = input[ranking[i] & 0xff];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    short[] gather(short[] input) {
+      checkLength(ranking.length, input.length);
+      short[] result = new short[input.length];
+      for (int i = 0; i < ranking.length; i++)
+        result[i] = input[ranking[i] & 0xff];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    int[] gather(int[] input) {
+      checkLength(ranking.length, input.length);
+      int[] result = new int[input.length];
+      for (int i = 0; i < ranking.length; i++)
+        result[i] = input[ranking[i] & 0xff];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    long[] gather(long[] input) {
+      checkLength(ranking.length, input.length);
+      long[] result = new long[input.length];
+      for (int i = 0; i < ranking.length; i++)
+        result[i] = input[ranking[i] & 0xff];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    float[] gather(float[] input) {
+      checkLength(ranking.length, input.length);
+      float[] result = new float[input.length];
+      for (int i = 0; i < ranking.length; i++)
+        result[i] = input[ranking[i] & 0xff];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    double[] gather(double[] input) {
+      checkLength(ranking.length, input.length);
+      double[] result = new double[input.length];
+      for (int i = 0; i < ranking.length; i++)
+        result[i] = input[ranking[i] & 0xff];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    boolean[] gather(boolean[] input) {
+      checkLength(ranking.length, input.length);
+      boolean[] result = new boolean[input.length];
+      for (int i = 0; i < ranking.length; i++)
+        result[i] = input[ranking[i] & 0xff];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    char[] gather(char[] input) {
+      checkLength(ranking.length, input.length);
+      char[] result = new char[input.length];
+      for (int i = 0; i < ranking.length; i++)
+        result[i] = input[ranking[i] & 0xff];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    void gatherTo(Object[] src, Object[] dst) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, 0, dst, dst.length, 0, src.length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[i] = src[ranking[i] & 0xff];
+      System.arraycopy(src, ranking.length, dst, ranking.length, src.length - ranking.length);
+    }
+
+    @Override
+    void gatherTo(byte[] src, byte[] dst) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, 0, dst, dst.length, 0, src.length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[i] = src[ranking[i] & 0xff];
+      System.arraycopy(src, ranking.length, dst, ranking.length, src.length - ranking.length);
+    }
+
+    @Override
+    void gatherTo(short[] src, short[] dst) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, 0, dst, dst.length, 0, src.length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[i] = src[ranking[i] & 0xff];
+      System.arraycopy(src, ranking.length, dst, ranking.length, src.length - ranking.length);
+    }
+
+    @Override
+    void gatherTo(int[] src, int[] dst) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, 0, dst, dst.length, 0, src.length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[i] = src[ranking[i] & 0xff];
+      System.arraycopy(src, ranking.length, dst, ranking.length, src.length - ranking.length);
+    }
+
+    @Override
+    void gatherTo(long[] src, long[] dst) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, 0, dst, dst.length, 0, src.length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[i] = src[ranking[i] & 0xff];
+      System.arraycopy(src, ranking.length, dst, ranking.length, src.length - ranking.length);
+    }
+
+    @Override
+    void gatherTo(float[] src, float[] dst) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, 0, dst, dst.length, 0, src.length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[i] = src[ranking[i] & 0xff];
+      System.arraycopy(src, ranking.length, dst, ranking.length, src.length - ranking.length);
+    }
+
+    @Override
+    void gatherTo(double[] src, double[] dst) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, 0, dst, dst.length, 0, src.length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[i] = src[ranking[i] & 0xff];
+      System.arraycopy(src, ranking.length, dst, ranking.length, src.length - ranking.length);
+    }
+
+    @Override
+    void gatherTo(boolean[] src, boolean[] dst) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, 0, dst, dst.length, 0, src.length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[i] = src[ranking[i] & 0xff];
+      System.arraycopy(src, ranking.length, dst, ranking.length, src.length - ranking.length);
+    }
+
+    @Override
+    void gatherTo(char[] src, char[] dst) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, 0, dst, dst.length, 0, src.length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[i] = src[ranking[i] & 0xff];
+      System.arraycopy(src, ranking.length, dst, ranking.length, src.length - ranking.length);
+    }
+
+    @Override
+    void composeInto(int[] values, int offset) {
+      for (int i = 0; i < values.length; i++) {
+        int j = values[i] - offset;
+        if (j >= 0 && j < ranking.length)
+          values[i] = offset + (ranking[j] & 0xff);
+      }
+    }
+
+    @Override
+    void composeRight(int[] values, int offset, int[] scratch) {
+      for (int i = 0; i < ranking.length; i++)
+        scratch[i] = values[offset + (ranking[i] & 0xff)];
+      System.arraycopy(scratch, 0, values, offset, ranking.length);
+    }
+
+    @Override
+    void composeRightInverse(int[] values, int offset, int[] scratch) {
+      for (int i = 0; i < ranking.length; i++)
+        scratch[ranking[i] & 0xff] = values[offset + i];
+      System.arraycopy(scratch, 0, values, offset, ranking.length);
+    }
+
+    @Override
+    void invertInto(int[] scratch) {
+      for (int i = 0; i < ranking.length; i++)
+        scratch[ranking[i] & 0xff] = i;
+    }
+  }
+
+  static final class Chars extends RankingStore {
+    private final char[] ranking;
+
+    Chars(int[] ranking) {
+      this.ranking = new char[ranking.length];
+      for (int i = 0; i < ranking.length; i++)
+        this.ranking[i] = (char) ranking[i];
+    }
+
+    @Override
+    int length() {
+      return ranking.length;
+    }
+
+    @Override
+    int get(int i) {
+      return ranking[i];
+    }
+
+    @Override
+    int[] toArray() {
+      int[] result = new int[ranking.length];
+      for (int i = 0; i < result.length; i++)
+        result[i] = ranking[i];
+      return result;
+    }
+
+    @Override
+    int[] toArray(int n) {
+      int[] result = new int[n];
+      for (int i = 0; i < ranking.length; i++)
+        result[i] = ranking[i];
+      for (int i = ranking.length; i < n; i++)
+        result[i] = i;
+      return result;
+    }
+
+    /* the loops below repeat those of the base class, so that they read the array without a call to get */
+
+    @Override
+    <T> T[] apply(T[] input) {
+      checkLength(ranking.length, input.length);
+      @SuppressWarnings("unchecked")
+      T[] result = (T[]) Array.newInstance(input.getClass().getComponentType(), input.length);
+      for (int i = 0; i < ranking.length; i++)
+        result[ranking[i]] = input[i];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    byte[] apply(byte[] input) {
+      checkLength(ranking.length, input.length);
+      byte[] result = new byte[input.length];
+      for (int i = 0; i < ranking.length; i++)
+        result[ranking[i]] = input[i];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    short[] apply(short[] input) {
+      checkLength(ranking.length, input.length);
+      short[] result = new short[input.length];
+      for (int i = 0; i < ranking.length; i++)
+        result[ranking[i]] = input[i];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    int[] apply(int[] input) {
+      checkLength(ranking.length, input.length);
+      int[] result = new int[input.length];
+      for (int i = 0; i < ranking.length; i++)
+        result[ranking[i]] = input[i];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    long[] apply(long[] input) {
+      checkLength(ranking.length, input.length);
+      long[] result = new long[input.length];
+      for (int i = 0; i < ranking.length; i++)
+        result[ranking[i]] = input[i];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    float[] apply(float[] input) {
+      checkLength(ranking.length, input.length);
+      float[] result = new float[input.length];
+      for (int i = 0; i < ranking.length; i++)
+        result[ranking[i]] = input[i];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    double[] apply(double[] input) {
+      checkLength(ranking.length, input.length);
+      double[] result = new double[input.length];
+      for (int i = 0; i < ranking.length; i++)
+        result[ranking[i]] = input[i];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    boolean[] apply(boolean[] input) {
+      checkLength(ranking.length, input.length);
+      boolean[] result = new boolean[input.length];
+      for (int i = 0; i < ranking.length; i++)
+        result[ranking[i]] = input[i];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    char[] apply(char[] input) {
+      checkLength(ranking.length, input.length);
+      char[] result = new char[input.length];
+      for (int i = 0; i < ranking.length; i++)
+        result[ranking[i]] = input[i];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    void applyTo(Object[] src, int srcPos, Object[] dst, int dstPos, int length) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, srcPos, dst, dst.length, dstPos, length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[dstPos + ranking[i]] = src[srcPos + i];
+      System.arraycopy(src, srcPos + ranking.length, dst, dstPos + ranking.length, length - ranking.length);
+    }
+
+    @Override
+    void applyTo(byte[] src, int srcPos, byte[] dst, int dstPos, int length) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, srcPos, dst, dst.length, dstPos, length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[dstPos + ranking[i]] = src[srcPos + i];
+      System.arraycopy(src, srcPos + ranking.length, dst, dstPos + ranking.length, length - ranking.length);
+    }
+
+    @Override
+    void applyTo(short[] src, int srcPos, short[] dst, int dstPos, int length) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, srcPos, dst, dst.length, dstPos, length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[dstPos + ranking[i]] = src[srcPos + i];
+      System.arraycopy(src, srcPos + ranking.length, dst, dstPos + ranking.length, length - ranking.length);
+    }
+
+    @Override
+    void applyTo(int[] src, int srcPos, int[] dst, int dstPos, int length) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, srcPos, dst, dst.length, dstPos, length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[dstPos + ranking[i]] = src[srcPos + i];
+      System.arraycopy(src, srcPos + ranking.length, dst, dstPos + ranking.length, length - ranking.length);
+    }
+
+    @Override
+    void applyTo(long[] src, int srcPos, long[] dst, int dstPos, int length) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, srcPos, dst, dst.length, dstPos, length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[dstPos + ranking[i]] = src[srcPos + i];
+      System.arraycopy(src, srcPos + ranking.length, dst, dstPos + ranking.length, length - ranking.length);
+    }
+
+    @Override
+    void applyTo(float[] src, int srcPos, float[] dst, int dstPos, int length) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, srcPos, dst, dst.length, dstPos, length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[dstPos + ranking[i]] = src[srcPos + i];
+      System.arraycopy(src, srcPos + ranking.length, dst, dstPos + ranking.length, length - ranking.length);
+    }
+
+    @Override
+    void applyTo(double[] src, int srcPos, double[] dst, int dstPos, int length) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, srcPos, dst, dst.length, dstPos, length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[dstPos + ranking[i]] = src[srcPos + i];
+      System.arraycopy(src, srcPos + ranking.length, dst, dstPos + ranking.length, length - ranking.length);
+    }
+
+    @Override
+    void applyTo(boolean[] src, int srcPos, boolean[] dst, int dstPos, int length) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, srcPos, dst, dst.length, dstPos, length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[dstPos + ranking[i]] = src[srcPos + i];
+      System.arraycopy(src, srcPos + ranking.length, dst, dstPos + ranking.length, length - ranking.length);
+    }
+
+    @Override
+    void applyTo(char[] src, int srcPos, char[] dst, int dstPos, int length) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, srcPos, dst, dst.length, dstPos, length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[dstPos + ranking[i]] = src[srcPos + i];
+      System.arraycopy(src, srcPos + ranking.length, dst, dstPos + ranking.length, length - ranking.length);
+    }
+
+    @Override
+    <T> T[] gather(T[] input) {
+      checkLength(ranking.length, input.length);
+      @SuppressWarnings("unchecked")
+      T[] result = (T[]) Array.newInstance(input.getClass().getComponentType(), input.length);
+      for (int i = 0; i < ranking.length; i++)
+        result[i] = input[ranking[i]];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    byte[] gather(byte[] input) {
+      checkLength(ranking.length, input.length);
+      byte[] result = new byte[input.length];
+      for (int i = 0; i < ranking.length; i++)
+        result[i] = input[ranking[i]];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    short[] gather(short[] input) {
+      checkLength(ranking.length, input.length);
+      short[] result = new short[input.length];
+      for (int i = 0; i < ranking.length; i++)
+        result[i] = input[ranking[i]];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    int[] gather(int[] input) {
+      checkLength(ranking.length, input.length);
+      int[] result = new int[input.length];
+      for (int i = 0; i < ranking.length; i++)
+        result[i] = input[ranking[i]];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    long[] gather(long[] input) {
+      checkLength(ranking.length, input.length);
+      long[] result = new long[input.length];
+      for (int i = 0; i < ranking.length; i++)
+        result[i] = input[ranking[i]];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    float[] gather(float[] input) {
+      checkLength(ranking.length, input.length);
+      float[] result = new float[input.length];
+      for (int i = 0; i < ranking.length; i++)
+        result[i] = input[ranking[i]];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    double[] gather(double[] input) {
+      checkLength(ranking.length, input.length);
+      double[] result = new double[input.length];
+      for (int i = 0; i < ranking.length; i++)
+        result[i] = input[ranking[i]];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    boolean[] gather(boolean[] input) {
+      checkLength(ranking.length, input.length);
+      boolean[] result = new boolean[input.length];
+      for (int i = 0; i < ranking.length; i++)
+        result[i] = input[ranking[i]];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    char[] gather(char[] input) {
+      checkLength(ranking.length, input.length);
+      char[] result = new char[input.length];
+      for (int i = 0; i < ranking.length; i++)
+        result[i] = input[ranking[i]];
+      System.arraycopy(input, ranking.length, result, ranking.length, input.length - ranking.length);
+      return result;
+    }
+
+    @Override
+    void gatherTo(Object[] src, Object[] dst) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, 0, dst, dst.length, 0, src.length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[i] = src[ranking[i]];
+      System.arraycopy(src, ranking.length, dst, ranking.length, src.length - ranking.length);
+    }
+
+    @Override
+    void gatherTo(byte[] src, byte[] dst) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, 0, dst, dst.length, 0, src.length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[i] = src[ranking[i]];
+      System.arraycopy(src, ranking.length, dst, ranking.length, src.length - ranking.length);
+    }
+
+    @Override
+    void gatherTo(short[] src, short[] dst) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, 0, dst, dst.length, 0, src.length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[i] = src[ranking[i]];
+      System.arraycopy(src, ranking.length, dst, ranking.length, src.length - ranking.length);
+    }
+
+    @Override
+    void gatherTo(int[] src, int[] dst) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, 0, dst, dst.length, 0, src.length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[i] = src[ranking[i]];
+      System.arraycopy(src, ranking.length, dst, ranking.length, src.length - ranking.length);
+    }
+
+    @Override
+    void gatherTo(long[] src, long[] dst) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, 0, dst, dst.length, 0, src.length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[i] = src[ranking[i]];
+      System.arraycopy(src, ranking.length, dst, ranking.length, src.length - ranking.length);
+    }
+
+    @Override
+    void gatherTo(float[] src, float[] dst) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, 0, dst, dst.length, 0, src.length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[i] = src[ranking[i]];
+      System.arraycopy(src, ranking.length, dst, ranking.length, src.length - ranking.length);
+    }
+
+    @Override
+    void gatherTo(double[] src, double[] dst) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, 0, dst, dst.length, 0, src.length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[i] = src[ranking[i]];
+      System.arraycopy(src, ranking.length, dst, ranking.length, src.length - ranking.length);
+    }
+
+    @Override
+    void gatherTo(boolean[] src, boolean[] dst) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, 0, dst, dst.length, 0, src.length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[i] = src[ranking[i]];
+      System.arraycopy(src, ranking.length, dst, ranking.length, src.length - ranking.length);
+    }
+
+    @Override
+    void gatherTo(char[] src, char[] dst) {
+      Rankings.checkApplyTo(ranking.length, src, src.length, 0, dst, dst.length, 0, src.length);
+      for (int i = 0; i < ranking.length; i++)
+        dst[i] = src[ranking[i]];
+      System.arraycopy(src, ranking.length, dst, ranking.length, src.length - ranking.length);
+    }
+
+    @Override
+    void composeInto(int[] values, int offset) {
+      for (int i = 0; i < values.length; i++) {
+        int j = values[i] - offset;
+        if (j >= 0 && j < ranking.length)
+          values[i] = offset + ranking[j];
+      }
+    }
+
+    @Override
+    void composeRight(int[] values, int offset, int[] scratch) {
+      for (int i = 0; i < ranking.length; i++)
+        scratch[i] = values[offset + ranking[i]];
+      System.arraycopy(scratch, 0, values, offset, ranking.length);
+    }
+
+    @Override
+    void composeRightInverse(int[] values, int offset, int[] scratch) {
+      for (int i = 0; i < ranking.length; i++)
+        scratch[ranking[i]] = values[offset + i];
+      System.arraycopy(scratch, 0, values, offset, ranking.length);
+    }
+
+    @Override
+    void invertInto(int[] scratch) {
+      for (int i = 0; i < ranking.length; i++)
+        scratch[ranking[i]] = i;
+    }
+  }
+
+  /* entry i occupies the bits from i * width to (i + 1) * width - 1, an entry may span two words */
+  static final class Packed extends RankingStore {
+    private final long[] words;
+    private final int length;
+    private final int width;
+
+    Packed(int[] ranking, int width) {
+      this.length = ranking.length;
+      this.width = width;
+      this.words = new long[(int) (((long) length * width + 63) >>> 6)];
+      for (int i = 0; i < length; i++) {
+        long bit = (long) i * width;
+        int idx = (int) (bit >>> 6);
+        int offset = (int) (bit & 63);
+        words[idx] |= (long) ranking[i] << offset;
+        if (offset + width > 64)
+          words[idx + 1] |= (long) ranking[i] >>> (64 - offset);
+      }
+    }
+
+    @Override
+    int length() {
+      return length;
+    }
+
+    @Override
+    int get(int i) {
+      long bit = (long) i * width;
+      int idx = (int) (bit >>> 6);
+      int offset = (int) (bit & 63);
+      long value = words[idx] >>> offset;
+      if (offset + width > 64)
+        value |= words[idx + 1] << (64 - offset);
+      return (int) value & ((1 << width) - 1);
+    }
+
+    @Override
+    int[] toArray() {
+      int[] result = new int[length];
+      long mask = (1L << width) - 1;
+      int idx = 0;
+      int offset = 0;
+      for (int i = 0; i < length; i++) {
+        long value = words[idx] >>> offset;
+        int end = offset + width;
+        if (end > 64)
+          value |= words[idx + 1] << (64 - offset);
+        result[i] = (int) (value & mask);
+        if (end >= 64) {
+          idx++;
+          offset = end - 64;
+        } else {
+          offset = end;
+        }
+      }
+      return result;
+    }
+  }
+
+  /**
+   * A ranking that is read straight from memory mapped regions of a file, in little endian order.
+   * @see PermutationFile
+   */
+  static final class Mapped extends RankingStore {
+    /* a single mapping can hold at most 2 GB */
+    static final int CHUNK_BITS = 28;
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+
+    private final IntBuffer[] chunks;
+    private final int length;
+
+    Mapped(IntBuffer[] chunks, int length) {
+      this.chunks = chunks;
+      this.length = length;
+    }
+
+    @Override
+    int length() {
+      return length;
+    }
+
+    @Override
+    int get(int i) {
+      return chunks[i >>> CHUNK_BITS].get(i & CHUNK_MASK);
+    }
+
+    @Override
+    int[] toArray() {
+      int[] result = new int[length];
+      for (int c = 0; c < chunks.length; c++) {
+        int from = c << CHUNK_BITS;
+        chunks[c].duplicate().get(result, from, Math.min(CHUNK_MASK + 1, length - from));
+      }
+      return result;
+    }
+  }
+
+}
@@ -5,7 +5,11 @@ import static java.lang.System.arraycopy;
 import static java.util.Arrays.binarySearch;
 
 import java.lang.reflect.Array;
+import java.math.BigInteger;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.IntUnaryOperator;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -16,14 +20,23 @@ public final class Rankings {
 
   private Rankings() {}
 
-  private static final Comparator<int[]> COMPARE_FIRST = new Comparator<int[]>() {
-    public int compare(int[] a, int[] b) {
-      return a[0] - b[0];
-    }
-  };
-
   private static final int[] IDENTITY_0 = new int[0];
 
+  /**
+   * Primitive arrays of at least this length are sorted with a radix sort.
+   */
+  public static final int RADIX_SORT_THRESHOLD = 256;
+
+  /**
+   * Primitive arrays shorter than this are never sorted in parallel.
+   */
+  public static final int PARALLEL_SORT_THRESHOLD = 1 << 16;
+
+  /**
+   * Rankings shorter than this are never applied in parallel.
+   */
+  public static final int PARALLEL_APPLY_THRESHOLD = 1 << 16;
+
   /**
    * Check that the input ranking is valid. In order to be valid, each non-negative integer less than
    * {@code a.length} must appear exactly once.
@@ -125,14 +138,97 @@ public final class Rankings {
    * @return the inverse ranking
    */
   public static int[] invert(int[] ranking) {
-    int[][] rankingWithIndex = withIndex(ranking);
-    Arrays.sort(rankingWithIndex, COMPARE_FIRST);
     int[] inverted = new int[ranking.length];
     for (int i = 0; i < ranking.length; i += 1)
-      inverted[i] = rankingWithIndex[i][1];
+      inverted[ranking[i]] = i;
     return inverted;
   }
 
+  /**
+   * Invert the input ranking in place, without allocating a second array.
+   * Each cycle is walked once, and the sign bit is used to mark the indexes that have already been inverted.
+   * This method does not check if the input is indeed a ranking and may have unexpected results otherwise.
+   * @param ranking a ranking, which will be modified
+   * @return the input array, which now contains the inverse ranking
+   * @see #invert
+   */
+  public static int[] invertInPlace(int[] ranking) {
+    for (int i = 0; i < ranking.length; i += 1) {
+      if (ranking[i] < 0)
+        continue;
+      int previous = i;
+      int current = ranking[i];
+      while (current != i) {
+        int next = ranking[current];
+        ranking[current] = ~previous;
+        previous = current;
+        current = next;
+      }
+      ranking[i] = ~previous;
+    }
+    for (int i = 0; i < ranking.length; i += 1)
+      ranking[i] = ~ranking[i];
+    return ranking;
+  }
+
+  /**
+   * Raise the input ranking to the {@code k}th power.
+   * Each cycle is walked once, and the element at position {@code j} of a cycle of length {@code L}
+   * is sent to position {@code (j + k) mod L}, so the cost does not depend on {@code k}.
+   * This method does not check if the input is indeed a ranking and may have unexpected results otherwise.
+   * @param ranking a ranking
+   * @param k any number
+   * @return the {@code k}th power of the input ranking
+   */
+  public static int[] pow(int[] ranking, final long k) {
+    return pow(ranking, length -> (int) Math.floorMod(k, (long) length));
+  }
+
+  /**
+   * Raise the input ranking to the {@code k}th power.
+   * This method does not check if the input is indeed a ranking and may have unexpected results otherwise.
+   * @param ranking a ranking
+   * @param k any number
+   * @return the {@code k}th power of the input ranking
+   * @see #pow(int[], long)
+   */
+  public static int[] pow(int[] ranking, final BigInteger k) {
+    if (k.bitLength() < 64)
+      return pow(ranking, k.longValue());
+    return pow(ranking, length -> k.mod(BigInteger.valueOf(length)).intValue());
+  }
+
+  private static int[] pow(int[] ranking, IntUnaryOperator shift) {
+    int[] result = new int[ranking.length];
+    long[] visited = new long[(ranking.length + 63) >>> 6];
+    int lastLength = 0;
+    int lastShift = 0;
+    for (int i = 0; i < ranking.length; i += 1) {
+      if ((visited[i >>> 6] & (1L << i)) != 0)
+        continue;
+      int length = 0;
+      int j = i;
+      do {
+        visited[j >>> 6] |= 1L << j;
+        j = ranking[j];
+        length++;
+      } while (j != i);
+      if (length != lastLength) {
+        lastLength = length;
+        lastShift = shift.applyAsInt(length);
+      }
+      int target = i;
+      for (int s = 0; s < lastShift; s++)
+        target = ranking[target];
+      for (int m = 0; m < length; m++) {
+        result[j] = target;
+        j = ranking[j];
+        target = ranking[target];
+      }
+    }
+    return result;
+  }
+
   /**
    * Generate a random ranking of given length.
    * @param length a non-negative integer
@@ -172,6 +268,159 @@ public final class Rankings {
     return result;
   }
 
+  /* ================= distances ================= */
+
+  /**
+   * Count the inversions of a ranking, which are the pairs of indexes {@code i < j} such that
+   * {@code ranking[i] > ranking[j]}. Runs in {@code O(n log n)}.
+   * @param ranking a ranking
+   * @return the number of inversions
+   * @see #kendallTau(int[], int[])
+   */
+  public static long inversions(int[] ranking) {
+    return Inversions.count(ranking);
+  }
+
+  /**
+   * Parallel version of {@link #inversions(int[])}.
+   * @param ranking a ranking
+   * @param pool the pool to run in
+   * @return the number of inversions
+   */
+  public static long inversionsParallel(int[] ranking, ForkJoinPool pool) {
+    return Inversions.countParallel(ranking, pool);
+  }
+
+  /**
+   * Compute the Kendall tau distance between two rankings, which is the number of pairs of indexes
+   * that they put in a different order. If the rankings have different lengths,
+   * the shorter one is padded with fixed points, like in {@link #comp(int[], int[])}.
+   * Runs in {@code O(n log n)}.
+   * @param a a ranking
+   * @param b a ranking
+   * @return the number of pairs {@code i, j} such that {@code a[i] < a[j]} and {@code b[i] > b[j]}
+   */
+  public static long kendallTau(int[] a, int[] b) {
+    return Inversions.count(relative(a, b));
+  }
+
+  /**
+   * Parallel version of {@link #kendallTau(int[], int[])}.
+   * @param a a ranking
+   * @param b a ranking
+   * @param pool the pool to run in
+   * @return the Kendall tau distance
+   */
+  public static long kendallTauParallel(int[] a, int[] b, ForkJoinPool pool) {
+    return Inversions.countParallel(relative(a, b), pool);
+  }
+
+  /**
+   * Compute the Cayley distance between two rankings, which is the least number of transpositions
+   * that turn one into the other. It is {@code n} minus the number of cycles of {@code b} composed with the
+   * inverse of {@code a}; these cycles are counted without computing the inverse.
+   * If the rankings have different lengths, the shorter one is padded with fixed points.
+   * @param a a ranking
+   * @param b a ranking
+   * @return the Cayley distance
+   */
+  public static int cayleyDistance(int[] a, int[] b) {
+    int[] s = relative(a, b);
+    int n = s.length;
+    int cycles = 0;
+    for (int i = 0; i < n; i++) {
+      if (s[i] < 0)
+        continue;
+      cycles++;
+      int j = i;
+      while (s[j] >= 0) {
+        int next = s[j];
+        s[j] = ~next;
+        j = next;
+      }
+    }
+    return n - cycles;
+  }
+
+  /**
+   * Compute the Ulam distance between two rankings, which is the least number of moves that turn one
+   * into the other, where a move takes out one element and inserts it elsewhere.
+   * It is {@code n} minus the length of a longest increasing subsequence, which is found
+   * in {@code O(n log n)}. If the rankings have different lengths, the shorter one is padded with fixed points.
+   * @param a a ranking
+   * @param b a ranking
+   * @return the Ulam distance
+   */
+  public static int ulamDistance(int[] a, int[] b) {
+    int[] s = relative(a, b);
+    // tails[k] is the smallest possible last element of an increasing subsequence of length k + 1
+    int[] tails = new int[s.length];
+    int length = 0;
+    for (int x : s) {
+      int lo = 0;
+      int hi = length;
+      while (lo < hi) {
+        int mid = (lo + hi) >>> 1;
+        if (tails[mid] < x)
+          lo = mid + 1;
+        else
+          hi = mid;
+      }
+      tails[lo] = x;
+      if (lo == length)
+        length++;
+    }
+    return s.length - length;
+  }
+
+  /**
+   * Compute the Hamming distance between two rankings, which is the number of indexes where they differ.
+   * If the rankings have different lengths, the shorter one is padded with fixed points.
+   * @param a a ranking
+   * @param b a ranking
+   * @return the number of indexes {@code i} such that {@code a[i] != b[i]}
+   */
+  public static int hammingDistance(int[] a, int[] b) {
+    if (a.length < b.length)
+      return hammingDistance(b, a);
+    int count = 0;
+    for (int i = 0; i < b.length; i++)
+      if (a[i] != b[i])
+        count++;
+    for (int i = b.length; i < a.length; i++)
+      if (a[i] != i)
+        count++;
+    return count;
+  }
+
+  /**
+   * Compute the Spearman footrule distance between two rankings, which is the sum of
+   * {@code |a[i] - b[i]|} over all indexes. If the rankings have different lengths,
+   * the shorter one is padded with fixed points.
+   * @param a a ranking
+   * @param b a ranking
+   * @return the footrule distance
+   */
+  public static long spearmanFootrule(int[] a, int[] b) {
+    if (a.length < b.length)
+      return spearmanFootrule(b, a);
+    long sum = 0;
+    for (int i = 0; i < b.length; i++)
+      sum += Math.abs(a[i] - b[i]);
+    for (int i = b.length; i < a.length; i++)
+      sum += Math.abs(a[i] - i);
+    return sum;
+  }
+
+  /* the ranking s with s[a[i]] = b[i], padded to the longer length */
+  static int[] relative(int[] a, int[] b) {
+    int n = Math.max(a.length, b.length);
+    int[] result = new int[n];
+    for (int i = 0; i < n; i++)
+      result[i < a.length ? a[i] : i] = i < b.length ? b[i] : i;
+    return result;
+  }
+
   /* ================= nextOffset ================= */
 
   /**
@@ -469,12 +718,16 @@ public final class Rankings {
    * <pre><code>
    *   ArrayUtil.indexOf(a, el, 0) == unsort[idx]
    * </code></pre>
+   * Inputs of length {@link #RADIX_SORT_THRESHOLD} or more are sorted with a radix sort,
+   * which produces the same ranking in linear time.
    * @param a an array
    * @return a ranking that sorts the input
    * @see #apply(int[], int[])
    * @see ArrayUtil#indexOf
    */
   public static int[] sorting(int[] a) {
+    if (a.length >= RADIX_SORT_THRESHOLD)
+      return RadixSort.sorting(a);
     int[] sorted = sortedCopy(a);
     int[] ranking = new int[a.length];
     int[] offsets = new int[a.length];
@@ -503,12 +756,16 @@ public final class Rankings {
    * <pre><code>
    *   ArrayUtil.indexOf(a, el, 0) == unsort[idx]
    * </code></pre>
+   * Inputs of length {@link #RADIX_SORT_THRESHOLD} or more are sorted with a radix sort,
+   * which produces the same ranking in linear time.
    * @param a an array
    * @return a ranking that sorts the input
    * @see #apply(int[], byte[])
    * @see ArrayUtil#indexOf
    */
   public static int[] sorting(byte[] a) {
+    if (a.length >= RADIX_SORT_THRESHOLD)
+      return RadixSort.sorting(a);
     byte[] sorted = sortedCopy(a);
     int[] ranking = new int[a.length];
     int[] offsets = new int[a.length];
@@ -537,12 +794,16 @@ public final class Rankings {
    * <pre><code>
    *   ArrayUtil.indexOf(a, el, 0) == unsort[idx]
    * </code></pre>
+   * Inputs of length {@link #RADIX_SORT_THRESHOLD} or more are sorted with a radix sort,
+   * which produces the same ranking in linear time.
    * @param a an array
    * @return a ranking that sorts the input
    * @see #apply(int[], short[])
    * @see ArrayUtil#indexOf
    */
   public static int[] sorting(short[] a) {
+    if (a.length >= RADIX_SORT_THRESHOLD)
+      return RadixSort.sorting(a);
     short[] sorted = sortedCopy(a);
     int[] ranking = new int[a.length];
     int[] offsets = new int[a.length];
@@ -571,12 +832,16 @@ public final class Rankings {
    * <pre><code>
    *   ArrayUtil.indexOf(a, el, 0) == unsort[idx]
    * </code></pre>
+   * Inputs of length {@link #RADIX_SORT_THRESHOLD} or more are sorted with a radix sort,
+   * which produces the same ranking in linear time.
    * @param a an array
    * @return a ranking that sorts the input
    * @see #apply(int[], long[])
    * @see ArrayUtil#indexOf
    */
   public static int[] sorting(long[] a) {
+    if (a.length >= RADIX_SORT_THRESHOLD)
+      return RadixSort.sorting(a);
     long[] sorted = sortedCopy(a);
     int[] ranking = new int[a.length];
     int[] offsets = new int[a.length];
@@ -605,12 +870,16 @@ public final class Rankings {
    * <pre><code>
    *   ArrayUtil.indexOf(a, el, 0) == unsort[idx]
    * </code></pre>
+   * Inputs of length {@link #RADIX_SORT_THRESHOLD} or more are sorted with a radix sort,
+   * which produces the same ranking in linear time.
    * @param a an array
    * @return a ranking that sorts the input
    * @see #apply(int[], float[])
    * @see ArrayUtil#indexOf
    */
   public static int[] sorting(float[] a) {
+    if (a.length >= RADIX_SORT_THRESHOLD)
+      return RadixSort.sorting(a);
     float[] sorted = sortedCopy(a);
     int[] ranking = new int[a.length];
     int[] offsets = new int[a.length];
@@ -638,12 +907,16 @@ public final class Rankings {
    * <pre><code>
    *   ArrayUtil.indexOf(a, el, 0) == unsort[idx]
    * </code></pre>
+   * Inputs of length {@link #RADIX_SORT_THRESHOLD} or more are sorted with a radix sort,
+   * which produces the same ranking in linear time.
    * @param a an array
    * @return a ranking that sorts the input
    * @see #apply(int[], double[])
    * @see ArrayUtil#indexOf
    */
   public static int[] sorting(double[] a) {
+    if (a.length >= RADIX_SORT_THRESHOLD)
+      return RadixSort.sorting(a);
     double[] sorted = sortedCopy(a);
     int[] ranking = new int[a.length];
     int[] offsets = new int[a.length];
@@ -672,12 +945,16 @@ public final class Rankings {
    * <pre><code>
    *   ArrayUtil.indexOf(a, el, 0) == unsort[idx]
    * </code></pre>
+   * Inputs of length {@link #RADIX_SORT_THRESHOLD} or more are sorted with a radix sort,
+   * which produces the same ranking in linear time.
    * @param a an array
    * @return a ranking that sorts the input
    * @see #apply(int[], char[])
    * @see ArrayUtil#indexOf
    */
   public static int[] sorting(char[] a) {
+    if (a.length >= RADIX_SORT_THRESHOLD)
+      return RadixSort.sorting(a);
     char[] sorted = sortedCopy(a);
     int[] ranking = new int[a.length];
     int[] offsets = new int[a.length];
@@ -690,6 +967,97 @@ public final class Rankings {
     return ranking;
   }
 
+  /**
+   * Parallel version of {@link #sorting(int[])}, which returns the same ranking.
+   * Inputs shorter than {@link #PARALLEL_SORT_THRESHOLD} are sorted sequentially.
+   * @param a an array
+   * @param pool the pool to run in
+   * @return a ranking that sorts the input
+   */
+  public static int[] sortingParallel(int[] a, ForkJoinPool pool) {
+    if (a.length < PARALLEL_SORT_THRESHOLD || pool.getParallelism() == 1)
+      return sorting(a);
+    return RadixSort.sortingParallel(a, pool);
+  }
+
+  /**
+   * Parallel version of {@link #sorting(byte[])}, which returns the same ranking.
+   * Inputs shorter than {@link #PARALLEL_SORT_THRESHOLD} are sorted sequentially.
+   * @param a an array
+   * @param pool the pool to run in
+   * @return a ranking that sorts the input
+   */
+  public static int[] sortingParallel(byte[] a, ForkJoinPool pool) {
+    if (a.length < PARALLEL_SORT_THRESHOLD || pool.getParallelism() == 1)
+      return sorting(a);
+    return RadixSort.sortingParallel(a, pool);
+  }
+
+  /**
+   * Parallel version of {@link #sorting(short[])}, which returns the same ranking.
+   * Inputs shorter than {@link #PARALLEL_SORT_THRESHOLD} are sorted sequentially.
+   * @param a an array
+   * @param pool the pool to run in
+   * @return a ranking that sorts the input
+   */
+  public static int[] sortingParallel(short[] a, ForkJoinPool pool) {
+    if (a.length < PARALLEL_SORT_THRESHOLD || pool.getParallelism() == 1)
+      return sorting(a);
+    return RadixSort.sortingParallel(a, pool);
+  }
+
+  /**
+   * Parallel version of {@link #sorting(long[])}, which returns the same ranking.
+   * Inputs shorter than {@link #PARALLEL_SORT_THRESHOLD} are sorted sequentially.
+   * @param a an array
+   * @param pool the pool to run in
+   * @return a ranking that sorts the input
+   */
+  public static int[] sortingParallel(long[] a, ForkJoinPool pool) {
+    if (a.length < PARALLEL_SORT_THRESHOLD || pool.getParallelism() == 1)
+      return sorting(a);
+    return RadixSort.sortingParallel(a, pool);
+  }
+
+  /**
+   * Parallel version of {@link #sorting(float[])}, which returns the same ranking.
+   * Inputs shorter than {@link #PARALLEL_SORT_THRESHOLD} are sorted sequentially.
+   * @param a an array
+   * @param pool the pool to run in
+   * @return a ranking that sorts the input
+   */
+  public static int[] sortingParallel(float[] a, ForkJoinPool pool) {
+    if (a.length < PARALLEL_SORT_THRESHOLD || pool.getParallelism() == 1)
+      return sorting(a);
+    return RadixSort.sortingParallel(a, pool);
+  }
+
+  /**
+   * Parallel version of {@link #sorting(double[])}, which returns the same ranking.
+   * Inputs shorter than {@link #PARALLEL_SORT_THRESHOLD} are sorted sequentially.
+   * @param a an array
+   * @param pool the pool to run in
+   * @return a ranking that sorts the input
+   */
+  public static int[] sortingParallel(double[] a, ForkJoinPool pool) {
+    if (a.length < PARALLEL_SORT_THRESHOLD || pool.getParallelism() == 1)
+      return sorting(a);
+    return RadixSort.sortingParallel(a, pool);
+  }
+
+  /**
+   * Parallel version of {@link #sorting(char[])}, which returns the same ranking.
+   * Inputs shorter than {@link #PARALLEL_SORT_THRESHOLD} are sorted sequentially.
+   * @param a an array
+   * @param pool the pool to run in
+   * @return a ranking that sorts the input
+   */
+  public static int[] sortingParallel(char[] a, ForkJoinPool pool) {
+    if (a.length < PARALLEL_SORT_THRESHOLD || pool.getParallelism() == 1)
+      return sorting(a);
+    return RadixSort.sortingParallel(a, pool);
+  }
+
   /**
    * Produce a particular ranking that sorts the input when applied to it.
    * For each index {@code i < a.length}, the return value
@@ -1205,164 +1573,1075 @@ public final class Rankings {
     return result;
   }
 
-  /* ================= sorts ================= */
+  /* ================= apply into a given array ================= */
+
+  /* the same checks as System.arraycopy; in addition, the ranges must not overlap */
+  static void checkApplyTo(int rankingLength, Object src, int srcLength, int srcPos,
+                           Object dst, int dstLength, int dstPos, int length) {
+    checkLength(rankingLength, length);
+    if (srcPos < 0 || dstPos < 0 || srcPos > srcLength - length || dstPos > dstLength - length)
+      throw new ArrayIndexOutOfBoundsException("range out of bounds: srcPos " + srcPos + ", dstPos " + dstPos
+          + ", length " + length);
+    if (src == dst && srcPos < dstPos + length && dstPos < srcPos + length)
+      throw new IllegalArgumentException("source and destination overlap");
+  }
 
   /**
-   * Check if the input ranking will sort the input array when applied to it.
-   * This method does not check if the first argument is indeed a valid ranking, and will have unexpected results otherwise.
-   * @param a an array
+   * Apply the ranking to a range of the source array, and write the result to a range of the destination array.
+   * The element at {@code srcPos + i} is moved to {@code dstPos + ranking[i]}. The elements at
+   * {@code srcPos + i} for {@code ranking.length <= i < length} are copied to {@code dstPos + i}.
+   * This does not allocate anything.
+   * This method does not check that the first argument is indeed a ranking.
    * @param ranking a ranking
-   * @return true if the return value of {@code apply(ranking, a)} is a sorted array
-   * @see #isValid
+   * @param src the source array
+   * @param srcPos the start of the range in {@code src}
+   * @param dst the destination array
+   * @param dstPos the start of the range in {@code dst}
+   * @param length the length of both ranges
+   * @throws java.lang.IllegalArgumentException if {@code length} is less than the length of {@code ranking},
+   *                                            or if the ranges overlap
+   * @throws java.lang.ArrayIndexOutOfBoundsException if a range is out of bounds
+   * @throws java.lang.ArrayStoreException if an element of {@code src} can not be stored in {@code dst}
    */
-  public static boolean sorts(int[] ranking, int[] a) {
-    if (a.length < ranking.length)
-      lengthFailure();
-    if (a.length < 2)
-      return true;
-    int idx = apply(ranking, 0);
-    int test = a[0];
-    for (int i = 1; i < a.length; i++) {
-      int idx2 = apply(ranking, i);
-      int test2 = a[i];
-      if (idx2 > idx) {
-        if (test > test2)
-          return false;
-      } else if (test < test2)
-        return false;
-      idx = idx2;
-      test = test2;
-    }
-    return true;
+  public static void applyTo(int[] ranking, Object[] src, int srcPos, Object[] dst, int dstPos, int length) {
+    checkApplyTo(ranking.length, src, src.length, srcPos, dst, dst.length, dstPos, length);
+    for (int i = 0; i < ranking.length; i++)
+      dst[dstPos + ranking[i]] = src[srcPos + i];
+    arraycopy(src, srcPos + ranking.length, dst, dstPos + ranking.length, length - ranking.length);
   }
 
   /**
-   * Check if the input ranking will sort the input array when applied to it.
-   * This method does not check if the first argument is indeed a valid ranking, and will have unexpected results otherwise.
-   * @param a an array
+   * Apply the ranking to a range of the source array, and write the result to a range of the destination array.
    * @param ranking a ranking
-   * @return true if the return value of {@code apply(ranking, a)} is a sorted array
-   * @see #isValid
+   * @param src the source array
+   * @param srcPos the start of the range in {@code src}
+   * @param dst the destination array
+   * @param dstPos the start of the range in {@code dst}
+   * @param length the length of both ranges
+   * @throws java.lang.IllegalArgumentException if {@code length} is less than the length of {@code ranking},
+   *                                            or if the ranges overlap
+   * @throws java.lang.ArrayIndexOutOfBoundsException if a range is out of bounds
+   * @see #applyTo(int[], Object[], int, Object[], int, int)
    */
-  public static boolean sorts(int[] ranking, byte[] a) {
-    if (a.length < ranking.length)
-      lengthFailure();
-    if (a.length < 2)
-      return true;
-    int idx = apply(ranking, 0);
-    byte test = a[0];
-    for (int i = 1; i < a.length; i++) {
-      int idx2 = apply(ranking, i);
-      byte test2 = a[i];
-      if (idx2 > idx) {
-        if (test > test2)
-          return false;
-      } else if (test < test2)
-        return false;
-      idx = idx2;
-      test = test2;
-    }
-    return true;
+  public static void applyTo(int[] ranking, byte[] src, int srcPos, byte[] dst, int dstPos, int length) {
+    checkApplyTo(ranking.length, src, src.length, srcPos, dst, dst.length, dstPos, length);
+    for (int i = 0; i < ranking.length; i++)
+      dst[dstPos + ranking[i]] = src[srcPos + i];
+    arraycopy(src, srcPos + ranking.length, dst, dstPos + ranking.length, length - ranking.length);
   }
 
   /**
-   * Check if the input ranking will sort the input array when applied to it.
-   * This method does not check if the first argument is indeed a valid ranking, and will have unexpected results otherwise.
-   * @param a an array
+   * Apply the ranking to a range of the source array, and write the result to a range of the destination array.
    * @param ranking a ranking
-   * @return true if the return value of {@code apply(ranking, a)} is a sorted array
-   * @see #isValid
+   * @param src the source array
+   * @param srcPos the start of the range in {@code src}
+   * @param dst the destination array
+   * @param dstPos the start of the range in {@code dst}
+   * @param length the length of both ranges
+   * @throws java.lang.IllegalArgumentException if {@code length} is less than the length of {@code ranking},
+   *                                            or if the ranges overlap
+   * @throws java.lang.ArrayIndexOutOfBoundsException if a range is out of bounds
+   * @see #applyTo(int[], Object[], int, Object[], int, int)
    */
-  public static boolean sorts(int[] ranking, short[] a) {
-    if (a.length < ranking.length)
-      lengthFailure();
-    if (a.length < 2)
-      return true;
-    int idx = apply(ranking, 0);
-    short test = a[0];
-    for (int i = 1; i < a.length; i++) {
-      int idx2 = apply(ranking, i);
-      short test2 = a[i];
-      if (idx2 > idx) {
-        if (test > test2)
-          return false;
-      } else if (test < test2)
-        return false;
-      idx = idx2;
-      test = test2;
-    }
-    return true;
+  public static void applyTo(int[] ranking, short[] src, int srcPos, short[] dst, int dstPos, int length) {
+    checkApplyTo(ranking.length, src, src.length, srcPos, dst, dst.length, dstPos, length);
+    for (int i = 0; i < ranking.length; i++)
+      dst[dstPos + ranking[i]] = src[srcPos + i];
+    arraycopy(src, srcPos + ranking.length, dst, dstPos + ranking.length, length - ranking.length);
   }
 
   /**
-   * Check if the input ranking will sort the input array when applied to it.
-   * This method does not check if the first argument is indeed a valid ranking, and will have unexpected results otherwise.
-   * @param a an array
+   * Apply the ranking to a range of the source array, and write the result to a range of the destination array.
    * @param ranking a ranking
-   * @return true if the return value of {@code apply(ranking, a)} is a sorted array
-   * @see #isValid
+   * @param src the source array
+   * @param srcPos the start of the range in {@code src}
+   * @param dst the destination array
+   * @param dstPos the start of the range in {@code dst}
+   * @param length the length of both ranges
+   * @throws java.lang.IllegalArgumentException if {@code length} is less than the length of {@code ranking},
+   *                                            or if the ranges overlap
+   * @throws java.lang.ArrayIndexOutOfBoundsException if a range is out of bounds
+   * @see #applyTo(int[], Object[], int, Object[], int, int)
    */
-  public static boolean sorts(int[] ranking, long[] a) {
-    if (a.length < ranking.length)
-      lengthFailure();
-    if (a.length < 2)
-      return true;
-    int idx = apply(ranking, 0);
-    long test = a[0];
-    for (int i = 1; i < a.length; i++) {
-      int idx2 = apply(ranking, i);
-      long test2 = a[i];
-      if (idx2 > idx) {
-        if (test > test2)
-          return false;
-      } else if (test < test2)
-        return false;
-      idx = idx2;
-      test = test2;
-    }
-    return true;
+  public static void applyTo(int[] ranking, int[] src, int srcPos, int[] dst, int dstPos, int length) {
+    checkApplyTo(ranking.length, src, src.length, srcPos, dst, dst.length, dstPos, length);
+    for (int i = 0; i < ranking.length; i++)
+      dst[dstPos + ranking[i]] = src[srcPos + i];
+    arraycopy(src, srcPos + ranking.length, dst, dstPos + ranking.length, length - ranking.length);
   }
 
   /**
-   * Check if the input ranking will sort the input array when applied to it.
-   * This method does not check if the first argument is indeed a valid ranking, and will have unexpected results otherwise.
-   * @param a an array
+   * Apply the ranking to a range of the source array, and write the result to a range of the destination array.
    * @param ranking a ranking
-   * @return true if the return value of {@code apply(ranking, a)} is a sorted array
-   * @see #isValid
+   * @param src the source array
+   * @param srcPos the start of the range in {@code src}
+   * @param dst the destination array
+   * @param dstPos the start of the range in {@code dst}
+   * @param length the length of both ranges
+   * @throws java.lang.IllegalArgumentException if {@code length} is less than the length of {@code ranking},
+   *                                            or if the ranges overlap
+   * @throws java.lang.ArrayIndexOutOfBoundsException if a range is out of bounds
+   * @see #applyTo(int[], Object[], int, Object[], int, int)
    */
-  public static boolean sorts(int[] ranking, char[] a) {
-    if (a.length < ranking.length)
-      lengthFailure();
-    if (a.length < 2)
-      return true;
-    int idx = apply(ranking, 0);
-    char test = a[0];
-    for (int i = 1; i < a.length; i++) {
-      int idx2 = apply(ranking, i);
-      char test2 = a[i];
-      if (idx2 > idx) {
-        if (test > test2)
-          return false;
-      } else if (test < test2)
-        return false;
-      idx = idx2;
-      test = test2;
-    }
-    return true;
+  public static void applyTo(int[] ranking, long[] src, int srcPos, long[] dst, int dstPos, int length) {
+    checkApplyTo(ranking.length, src, src.length, srcPos, dst, dst.length, dstPos, length);
+    for (int i = 0; i < ranking.length; i++)
+      dst[dstPos + ranking[i]] = src[srcPos + i];
+    arraycopy(src, srcPos + ranking.length, dst, dstPos + ranking.length, length - ranking.length);
   }
 
   /**
-   * Check if the input ranking will sort the input array when applied to it.
-   * This method does not check if the first argument is indeed a valid ranking, and will have unexpected results otherwise.
-   * @param a an array
+   * Apply the ranking to a range of the source array, and write the result to a range of the destination array.
    * @param ranking a ranking
-   * @return true if the return value of {@code apply(ranking, a)} is a sorted array
-   * @see #isValid
+   * @param src the source array
+   * @param srcPos the start of the range in {@code src}
+   * @param dst the destination array
+   * @param dstPos the start of the range in {@code dst}
+   * @param length the length of both ranges
+   * @throws java.lang.IllegalArgumentException if {@code length} is less than the length of {@code ranking},
+   *                                            or if the ranges overlap
+   * @throws java.lang.ArrayIndexOutOfBoundsException if a range is out of bounds
+   * @see #applyTo(int[], Object[], int, Object[], int, int)
    */
-  public static boolean sorts(int[] ranking, float[] a) {
-    if (a.length < ranking.length)
-      lengthFailure();
+  public static void applyTo(int[] ranking, float[] src, int srcPos, float[] dst, int dstPos, int length) {
+    checkApplyTo(ranking.length, src, src.length, srcPos, dst, dst.length, dstPos, length);
+    for (int i = 0; i < ranking.length; i++)
+      dst[dstPos + ranking[i]] = src[srcPos + i];
+    arraycopy(src, srcPos + ranking.length, dst, dstPos + ranking.length, length - ranking.length);
+  }
+
+  /**
+   * Apply the ranking to a range of the source array, and write the result to a range of the destination array.
+   * @param ranking a ranking
+   * @param src the source array
+   * @param srcPos the start of the range in {@code src}
+   * @param dst the destination array
+   * @param dstPos the start of the range in {@code dst}
+   * @param length the length of both ranges
+   * @throws java.lang.IllegalArgumentException if {@code length} is less than the length of {@code ranking},
+   *                                            or if the ranges overlap
+   * @throws java.lang.ArrayIndexOutOfBoundsException if a range is out of bounds
+   * @see #applyTo(int[], Object[], int, Object[], int, int)
+   */
+  public static void applyTo(int[] ranking, double[] src, int srcPos, double[] dst, int dstPos, int length) {
+    checkApplyTo(ranking.length, src, src.length, srcPos, dst, dst.length, dstPos, length);
+    for (int i = 0; i < ranking.length; i++)
+      dst[dstPos + ranking[i]] = src[srcPos + i];
+    arraycopy(src, srcPos + ranking.length, dst, dstPos + ranking.length, length - ranking.length);
+  }
+
+  /**
+   * Apply the ranking to a range of the source array, and write the result to a range of the destination array.
+   * @param ranking a ranking
+   * @param src the source array
+   * @param srcPos the start of the range in {@code src}
+   * @param dst the destination array
+   * @param dstPos the start of the range in {@code dst}
+   * @param length the length of both ranges
+   * @throws java.lang.IllegalArgumentException if {@code length} is less than the length of {@code ranking},
+   *                                            or if the ranges overlap
+   * @throws java.lang.ArrayIndexOutOfBoundsException if a range is out of bounds
+   * @see #applyTo(int[], Object[], int, Object[], int, int)
+   */
+  public static void applyTo(int[] ranking, boolean[] src, int srcPos, boolean[] dst, int dstPos, int length) {
+    checkApplyTo(ranking.length, src, src.length, srcPos, dst, dst.length, dstPos, length);
+    for (int i = 0; i < ranking.length; i++)
+      dst[dstPos + ranking[i]] = src[srcPos + i];
+    arraycopy(src, srcPos + ranking.length, dst, dstPos + ranking.length, length - ranking.length);
+  }
+
+  /**
+   * Apply the ranking to a range of the source array, and write the result to a range of the destination array.
+   * @param ranking a ranking
+   * @param src the source array
+   * @param srcPos the start of the range in {@code src}
+   * @param dst the destination array
+   * @param dstPos the start of the range in {@code dst}
+   * @param length the length of both ranges
+   * @throws java.lang.IllegalArgumentException if {@code length} is less than the length of {@code ranking},
+   *                                            or if the ranges overlap
+   * @throws java.lang.ArrayIndexOutOfBoundsException if a range is out of bounds
+   * @see #applyTo(int[], Object[], int, Object[], int, int)
+   */
+  public static void applyTo(int[] ranking, char[] src, int srcPos, char[] dst, int dstPos, int length) {
+    checkApplyTo(ranking.length, src, src.length, srcPos, dst, dst.length, dstPos, length);
+    for (int i = 0; i < ranking.length; i++)
+      dst[dstPos + ranking[i]] = src[srcPos + i];
+    arraycopy(src, srcPos + ranking.length, dst, dstPos + ranking.length, length - ranking.length);
+  }
+
+  /**
+   * Apply the ranking to the source list, and write the result to the destination list.
+   * The element at {@code i} is moved to {@code ranking[i]}. The elements at {@code i >= ranking.length}
+   * are copied to the same index. Use {@link List#subList(int, int)} to apply the ranking to a range.
+   * If both lists support fast random access, this does not allocate anything.
+   * This method does not check that the first argument is indeed a ranking.
+   * @param ranking a ranking
+   * @param src the source list
+   * @param dst the destination list, which is modified with {@link List#set(int, Object)}
+   * @throws java.lang.IllegalArgumentException if the size of {@code src} is less than the length of {@code ranking},
+   *                                            or if {@code src} and {@code dst} are the same list
+   * @throws java.lang.IndexOutOfBoundsException if {@code dst} is shorter than {@code src}
+   */
+  public static <E> void applyTo(int[] ranking, List<? extends E> src, List<? super E> dst) {
+    int length = src.size();
+    checkLength(ranking.length, length);
+    if (src == dst)
+      throw new IllegalArgumentException("source and destination overlap");
+    if (dst.size() < length)
+      throw new IndexOutOfBoundsException("destination too short: " + dst.size() + " < " + length);
+    if (src instanceof RandomAccess && dst instanceof RandomAccess) {
+      for (int i = 0; i < ranking.length; i++)
+        dst.set(ranking[i], src.get(i));
+      for (int i = ranking.length; i < length; i++)
+        dst.set(i, src.get(i));
+      return;
+    }
+    @SuppressWarnings("unchecked")
+    E[] result = (E[]) apply(ranking, src.toArray());
+    ListIterator<? super E> it = dst.listIterator();
+    for (int i = 0; i < length; i++) {
+      it.next();
+      it.set(result[i]);
+    }
+  }
+
+  /* ================= apply in parallel ================= */
+
+  private static boolean sequential(int[] ranking, ForkJoinPool pool) {
+    return ranking.length < PARALLEL_APPLY_THRESHOLD || pool.getParallelism() == 1;
+  }
+
+  /**
+   * Parallel version of {@link #apply(int[], Object[])}, which returns the same result.
+   * The ranking is split into chunks that are applied at the same time.
+   * Rankings shorter than {@link #PARALLEL_APPLY_THRESHOLD} are applied sequentially.
+   * @param ranking a ranking
+   * @param input an input array
+   * @param pool the pool to run in
+   * @return the result of applying the ranking to the input
+   * @throws java.lang.IllegalArgumentException if the length of {@code input} is less than the length of {@code ranking}
+   */
+  public static <T> T[] applyParallel(int[] ranking, T[] input, ForkJoinPool pool) {
+    if (sequential(ranking, pool))
+      return apply(ranking, input);
+    checkLength(ranking.length, input.length);
+    @SuppressWarnings("unchecked")
+    T[] result = (T[]) Array.newInstance(input.getClass().getComponentType(), input.length);
+    int n = ranking.length;
+    int chunks = ParallelUtil.chunks(pool, n);
+    ParallelUtil.forEachChunk(pool, chunks, c -> {
+      for (int i = ParallelUtil.start(n, chunks, c); i < ParallelUtil.start(n, chunks, c + 1); i++)
+        result[ranking[i]] = input[i];
+    });
+    arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  /**
+   * Parallel version of {@link #apply(int[], byte[])}, which returns the same result.
+   * @param ranking a ranking
+   * @param input an input array
+   * @param pool the pool to run in
+   * @return the result of applying the ranking to the input
+   * @throws java.lang.IllegalArgumentException if the length of {@code input} is less than the length of {@code ranking}
+   * @see #applyParallel(int[], Object[], ForkJoinPool)
+   */
+  public static byte[] applyParallel(int[] ranking, byte[] input, ForkJoinPool pool) {
+    if (sequential(ranking, pool))
+      return apply(ranking, input);
+    checkLength(ranking.length, input.length);
+    byte[] result = new byte[input.length];
+    int n = ranking.length;
+    int chunks = ParallelUtil.chunks(pool, n);
+    ParallelUtil.forEachChunk(pool, chunks, c -> {
+      for (int i = ParallelUtil.start(n, chunks, c); i < ParallelUtil.start(n, chunks, c + 1); i++)
+        result[ranking[i]] = input[i];
+    });
+    arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  /**
+   * Parallel version of {@link #apply(int[], short[])}, which returns the same result.
+   * @param ranking a ranking
+   * @param input an input array
+   * @param pool the pool to run in
+   * @return the result of applying the ranking to the input
+   * @throws java.lang.IllegalArgumentException if the length of {@code input} is less than the length of {@code ranking}
+   * @see #applyParallel(int[], Object[], ForkJoinPool)
+   */
+  public static short[] applyParallel(int[] ranking, short[] input, ForkJoinPool pool) {
+    if (sequential(ranking, pool))
+      return apply(ranking, input);
+    checkLength(ranking.length, input.length);
+    short[] result = new short[input.length];
+    int n = ranking.length;
+    int chunks = ParallelUtil.chunks(pool, n);
+    ParallelUtil.forEachChunk(pool, chunks, c -> {
+      for (int i = ParallelUtil.start(n, chunks, c); i < ParallelUtil.start(n, chunks, c + 1); i++)
+        result[ranking[i]] = input[i];
+    });
+    arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  /**
+   * Parallel version of {@link #apply(int[], int[])}, which returns the same result.
+   * @param ranking a ranking
+   * @param input an input array
+   * @param pool the pool to run in
+   * @return the result of applying the ranking to the input
+   * @throws java.lang.IllegalArgumentException if the length of {@code input} is less than the length of {@code ranking}
+   * @see #applyParallel(int[], Object[], ForkJoinPool)
+   */
+  public static int[] applyParallel(int[] ranking, int[] input, ForkJoinPool pool) {
+    if (sequential(ranking, pool))
+      return apply(ranking, input);
+    checkLength(ranking.length, input.length);
+    int[] result = new int[input.length];
+    int n = ranking.length;
+    int chunks = ParallelUtil.chunks(pool, n);
+    ParallelUtil.forEachChunk(pool, chunks, c -> {
+      for (int i = ParallelUtil.start(n, chunks, c); i < ParallelUtil.start(n, chunks, c + 1); i++)
+        result[ranking[i]] = input[i];
+    });
+    arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  /**
+   * Parallel version of {@link #apply(int[], long[])}, which returns the same result.
+   * @param ranking a ranking
+   * @param input an input array
+   * @param pool the pool to run in
+   * @return the result of applying the ranking to the input
+   * @throws java.lang.IllegalArgumentException if the length of {@code input} is less than the length of {@code ranking}
+   * @see #applyParallel(int[], Object[], ForkJoinPool)
+   */
+  public static long[] applyParallel(int[] ranking, long[] input, ForkJoinPool pool) {
+    if (sequential(ranking, pool))
+      return apply(ranking, input);
+    checkLength(ranking.length, input.length);
+    long[] result = new long[input.length];
+    int n = ranking.length;
+    int chunks = ParallelUtil.chunks(pool, n);
+    ParallelUtil.forEachChunk(pool, chunks, c -> {
+      for (int i = ParallelUtil.start(n, chunks, c); i < ParallelUtil.start(n, chunks, c + 1); i++)
+        result[ranking[i]] = input[i];
+    });
+    arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  /**
+   * Parallel version of {@link #apply(int[], float[])}, which returns the same result.
+   * @param ranking a ranking
+   * @param input an input array
+   * @param pool the pool to run in
+   * @return the result of applying the ranking to the input
+   * @throws java.lang.IllegalArgumentException if the length of {@code input} is less than the length of {@code ranking}
+   * @see #applyParallel(int[], Object[], ForkJoinPool)
+   */
+  public static float[] applyParallel(int[] ranking, float[] input, ForkJoinPool pool) {
+    if (sequential(ranking, pool))
+      return apply(ranking, input);
+    checkLength(ranking.length, input.length);
+    float[] result = new float[input.length];
+    int n = ranking.length;
+    int chunks = ParallelUtil.chunks(pool, n);
+    ParallelUtil.forEachChunk(pool, chunks, c -> {
+      for (int i = ParallelUtil.start(n, chunks, c); i < ParallelUtil.start(n, chunks, c + 1); i++)
+        result[ranking[i]] = input[i];
+    });
+    arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  /**
+   * Parallel version of {@link #apply(int[], double[])}, which returns the same result.
+   * @param ranking a ranking
+   * @param input an input array
+   * @param pool the pool to run in
+   * @return the result of applying the ranking to the input
+   * @throws java.lang.IllegalArgumentException if the length of {@code input} is less than the length of {@code ranking}
+   * @see #applyParallel(int[], Object[], ForkJoinPool)
+   */
+  public static double[] applyParallel(int[] ranking, double[] input, ForkJoinPool pool) {
+    if (sequential(ranking, pool))
+      return apply(ranking, input);
+    checkLength(ranking.length, input.length);
+    double[] result = new double[input.length];
+    int n = ranking.length;
+    int chunks = ParallelUtil.chunks(pool, n);
+    ParallelUtil.forEachChunk(pool, chunks, c -> {
+      for (int i = ParallelUtil.start(n, chunks, c); i < ParallelUtil.start(n, chunks, c + 1); i++)
+        result[ranking[i]] = input[i];
+    });
+    arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  /**
+   * Parallel version of {@link #apply(int[], boolean[])}, which returns the same result.
+   * @param ranking a ranking
+   * @param input an input array
+   * @param pool the pool to run in
+   * @return the result of applying the ranking to the input
+   * @throws java.lang.IllegalArgumentException if the length of {@code input} is less than the length of {@code ranking}
+   * @see #applyParallel(int[], Object[], ForkJoinPool)
+   */
+  public static boolean[] applyParallel(int[] ranking, boolean[] input, ForkJoinPool pool) {
+    if (sequential(ranking, pool))
+      return apply(ranking, input);
+    checkLength(ranking.length, input.length);
+    boolean[] result = new boolean[input.length];
+    int n = ranking.length;
+    int chunks = ParallelUtil.chunks(pool, n);
+    ParallelUtil.forEachChunk(pool, chunks, c -> {
+      for (int i = ParallelUtil.start(n, chunks, c); i < ParallelUtil.start(n, chunks, c + 1); i++)
+        result[ranking[i]] = input[i];
+    });
+    arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  /**
+   * Parallel version of {@link #apply(int[], char[])}, which returns the same result.
+   * @param ranking a ranking
+   * @param input an input array
+   * @param pool the pool to run in
+   * @return the result of applying the ranking to the input
+   * @throws java.lang.IllegalArgumentException if the length of {@code input} is less than the length of {@code ranking}
+   * @see #applyParallel(int[], Object[], ForkJoinPool)
+   */
+  public static char[] applyParallel(int[] ranking, char[] input, ForkJoinPool pool) {
+    if (sequential(ranking, pool))
+      return apply(ranking, input);
+    checkLength(ranking.length, input.length);
+    char[] result = new char[input.length];
+    int n = ranking.length;
+    int chunks = ParallelUtil.chunks(pool, n);
+    ParallelUtil.forEachChunk(pool, chunks, c -> {
+      for (int i = ParallelUtil.start(n, chunks, c); i < ParallelUtil.start(n, chunks, c + 1); i++)
+        result[ranking[i]] = input[i];
+    });
+    arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  /**
+   * Parallel version of {@link #apply(int[], List)}, which returns the same result.
+   * The input list is copied to an array first, so this is also fast for lists without random access.
+   * @param ranking a ranking
+   * @param input an input list
+   * @param pool the pool to run in
+   * @return the result of applying the ranking to the input
+   * @throws java.lang.IllegalArgumentException if the length of {@code input} is less than the length of {@code ranking}
+   * @see #applyParallel(int[], Object[], ForkJoinPool)
+   */
+  public static <E> List<E> applyParallel(int[] ranking, List<E> input, ForkJoinPool pool) {
+    if (sequential(ranking, pool))
+      return apply(ranking, input);
+    @SuppressWarnings("unchecked")
+    E[] result = (E[]) applyParallel(ranking, input.toArray(), pool);
+    return new ArrayList<>(Arrays.asList(result));
+  }
+
+  /* ================= apply engines ================= */
+
+  /* the destination blocks of applyBlocked hold 2^BLOCK_BITS elements */
+  private static final int BLOCK_BITS = 16;
+
+  /**
+   * Apply a ranking, given its inverse. This returns the same result as {@link #apply(int[], Object[])},
+   * but the elements are fetched rather than moved: {@code result[j] = input[inverse[j]]}.
+   * The writes are sequential, which is faster than {@code apply} on arrays that do not fit in the cache.
+   * This method does not check that the first argument is indeed a ranking.
+   * @param inverse the inverse of a ranking
+   * @param input an input array
+   * @return the result of applying the inverse of {@code inverse} to the input
+   * @throws java.lang.IllegalArgumentException if the length of {@code input} is less than the length of {@code inverse}
+   * @see ApplyEngine#GATHER
+   */
+  public static <T> T[] gather(int[] inverse, T[] input) {
+    checkLength(inverse.length, input.length);
+    @SuppressWarnings("unchecked")
+    T[] result = (T[]) Array.newInstance(input.getClass().getComponentType(), input.length);
+    for (int j = 0; j < inverse.length; j++)
+      result[j] = input[inverse[j]];
+    arraycopy(input, inverse.length, result, inverse.length, input.length - inverse.length);
+    return result;
+  }
+
+  /**
+   * Apply a ranking, given its inverse.
+   * @param inverse the inverse of a ranking
+   * @param input an input array
+   * @return the result of applying the inverse of {@code inverse} to the input
+   * @throws java.lang.IllegalArgumentException if the length of {@code input} is less than the length of {@code inverse}
+   * @see #gather(int[], Object[])
+   */
+  public static int[] gather(int[] inverse, int[] input) {
+    checkLength(inverse.length, input.length);
+    int[] result = new int[input.length];
+    for (int j = 0; j < inverse.length; j++)
+      result[j] = input[inverse[j]];
+    arraycopy(input, inverse.length, result, inverse.length, input.length - inverse.length);
+    return result;
+  }
+
+  /**
+   * Apply a ranking, given its inverse.
+   * @param inverse the inverse of a ranking
+   * @param input an input array
+   * @return the result of applying the inverse of {@code inverse} to the input
+   * @throws java.lang.IllegalArgumentException if the length of {@code input} is less than the length of {@code inverse}
+   * @see #gather(int[], Object[])
+   */
+  public static long[] gather(int[] inverse, long[] input) {
+    checkLength(inverse.length, input.length);
+    long[] result = new long[input.length];
+    for (int j = 0; j < inverse.length; j++)
+      result[j] = input[inverse[j]];
+    arraycopy(input, inverse.length, result, inverse.length, input.length - inverse.length);
+    return result;
+  }
+
+  /**
+   * Apply a ranking, given its inverse.
+   * @param inverse the inverse of a ranking
+   * @param input an input array
+   * @return the result of applying the inverse of {@code inverse} to the input
+   * @throws java.lang.IllegalArgumentException if the length of {@code input} is less than the length of {@code inverse}
+   * @see #gather(int[], Object[])
+   */
+  public static double[] gather(int[] inverse, double[] input) {
+    checkLength(inverse.length, input.length);
+    double[] result = new double[input.length];
+    for (int j = 0; j < inverse.length; j++)
+      result[j] = input[inverse[j]];
+    arraycopy(input, inverse.length, result, inverse.length, input.length - inverse.length);
+    return result;
+  }
+
+  /**
+   * Apply a ranking, given its inverse.
+   * @param inverse the inverse of a ranking
+   * @param input an input array
+   * @return the result of applying the inverse of {@code inverse} to the input
+   * @throws java.lang.IllegalArgumentException if the length of {@code input} is less than the length of {@code inverse}
+   * @see #gather(int[], Object[])
+   */
+  public static byte[] gather(int[] inverse, byte[] input) {
+    checkLength(inverse.length, input.length);
+    byte[] result = new byte[input.length];
+    for (int j = 0; j < inverse.length; j++)
+      result[j] = input[inverse[j]];
+    arraycopy(input, inverse.length, result, inverse.length, input.length - inverse.length);
+    return result;
+  }
+
+  /**
+   * Apply a ranking, given its inverse.
+   * @param inverse the inverse of a ranking
+   * @param input an input array
+   * @return the result of applying the inverse of {@code inverse} to the input
+   * @throws java.lang.IllegalArgumentException if the length of {@code input} is less than the length of {@code inverse}
+   * @see #gather(int[], Object[])
+   */
+  public static short[] gather(int[] inverse, short[] input) {
+    checkLength(inverse.length, input.length);
+    short[] result = new short[input.length];
+    for (int j = 0; j < inverse.length; j++)
+      result[j] = input[inverse[j]];
+    arraycopy(input, inverse.length, result, inverse.length, input.length - inverse.length);
+    return result;
+  }
+
+  /**
+   * Apply a ranking, given its inverse.
+   * @param inverse the inverse of a ranking
+   * @param input an input array
+   * @return the result of applying the inverse of {@code inverse} to the input
+   * @throws java.lang.IllegalArgumentException if the length of {@code input} is less than the length of {@code inverse}
+   * @see #gather(int[], Object[])
+   */
+  public static float[] gather(int[] inverse, float[] input) {
+    checkLength(inverse.length, input.length);
+    float[] result = new float[input.length];
+    for (int j = 0; j < inverse.length; j++)
+      result[j] = input[inverse[j]];
+    arraycopy(input, inverse.length, result, inverse.length, input.length - inverse.length);
+    return result;
+  }
+
+  /**
+   * Apply a ranking, given its inverse.
+   * @param inverse the inverse of a ranking
+   * @param input an input array
+   * @return the result of applying the inverse of {@code inverse} to the input
+   * @throws java.lang.IllegalArgumentException if the length of {@code input} is less than the length of {@code inverse}
+   * @see #gather(int[], Object[])
+   */
+  public static boolean[] gather(int[] inverse, boolean[] input) {
+    checkLength(inverse.length, input.length);
+    boolean[] result = new boolean[input.length];
+    for (int j = 0; j < inverse.length; j++)
+      result[j] = input[inverse[j]];
+    arraycopy(input, inverse.length, result, inverse.length, input.length - inverse.length);
+    return result;
+  }
+
+  /**
+   * Apply a ranking, given its inverse.
+   * @param inverse the inverse of a ranking
+   * @param input an input array
+   * @return the result of applying the inverse of {@code inverse} to the input
+   * @throws java.lang.IllegalArgumentException if the length of {@code input} is less than the length of {@code inverse}
+   * @see #gather(int[], Object[])
+   */
+  public static char[] gather(int[] inverse, char[] input) {
+    checkLength(inverse.length, input.length);
+    char[] result = new char[input.length];
+    for (int j = 0; j < inverse.length; j++)
+      result[j] = input[inverse[j]];
+    arraycopy(input, inverse.length, result, inverse.length, input.length - inverse.length);
+    return result;
+  }
+
+  /**
+   * Gather into a given array: {@code dst[j] = src[inverse[j]]}. This writes the same result as
+   * {@link #gather(int[], Object[])} to {@code dst}, and does not allocate anything.
+   * This method does not check that the first argument is indeed a ranking.
+   * @param inverse the inverse of a ranking
+   * @param src the source array, which is not modified
+   * @param dst the destination array, which must not be {@code src}
+   * @throws java.lang.IllegalArgumentException if the length of {@code src} is less than the length of {@code inverse},
+   *                                            or if {@code src == dst}
+   * @throws java.lang.ArrayIndexOutOfBoundsException if {@code dst} is shorter than {@code src}
+   * @throws java.lang.ArrayStoreException if an element of {@code src} can not be stored in {@code dst}
+   */
+  public static void gatherTo(int[] inverse, Object[] src, Object[] dst) {
+    checkApplyTo(inverse.length, src, src.length, 0, dst, dst.length, 0, src.length);
+    for (int j = 0; j < inverse.length; j++)
+      dst[j] = src[inverse[j]];
+    arraycopy(src, inverse.length, dst, inverse.length, src.length - inverse.length);
+  }
+
+  /**
+   * Gather into a given array.
+   * @param inverse the inverse of a ranking
+   * @param src the source array, which is not modified
+   * @param dst the destination array, which must not be {@code src}
+   * @throws java.lang.IllegalArgumentException if the length of {@code src} is less than the length of {@code inverse},
+   *                                            or if {@code src == dst}
+   * @throws java.lang.ArrayIndexOutOfBoundsException if {@code dst} is shorter than {@code src}
+   * @see #gatherTo(int[], Object[], Object[])
+   */
+  public static void gatherTo(int[] inverse, byte[] src, byte[] dst) {
+    checkApplyTo(inverse.length, src, src.length, 0, dst, dst.length, 0, src.length);
+    for (int j = 0; j < inverse.length; j++)
+      dst[j] = src[inverse[j]];
+    arraycopy(src, inverse.length, dst, inverse.length, src.length - inverse.length);
+  }
+
+  /**
+   * Gather into a given array.
+   * @param inverse the inverse of a ranking
+   * @param src the source array, which is not modified
+   * @param dst the destination array, which must not be {@code src}
+   * @throws java.lang.IllegalArgumentException if the length of {@code src} is less than the length of {@code inverse},
+   *                                            or if {@code src == dst}
+   * @throws java.lang.ArrayIndexOutOfBoundsException if {@code dst} is shorter than {@code src}
+   * @see #gatherTo(int[], Object[], Object[])
+   */
+  public static void gatherTo(int[] inverse, short[] src, short[] dst) {
+    checkApplyTo(inverse.length, src, src.length, 0, dst, dst.length, 0, src.length);
+    for (int j = 0; j < inverse.length; j++)
+      dst[j] = src[inverse[j]];
+    arraycopy(src, inverse.length, dst, inverse.length, src.length - inverse.length);
+  }
+
+  /**
+   * Gather into a given array.
+   * @param inverse the inverse of a ranking
+   * @param src the source array, which is not modified
+   * @param dst the destination array, which must not be {@code src}
+   * @throws java.lang.IllegalArgumentException if the length of {@code src} is less than the length of {@code inverse},
+   *                                            or if {@code src == dst}
+   * @throws java.lang.ArrayIndexOutOfBoundsException if {@code dst} is shorter than {@code src}
+   * @see #gatherTo(int[], Object[], Object[])
+   */
+  public static void gatherTo(int[] inverse, int[] src, int[] dst) {
+    checkApplyTo(inverse.length, src, src.length, 0, dst, dst.length, 0, src.length);
+    for (int j = 0; j < inverse.length; j++)
+      dst[j] = src[inverse[j]];
+    arraycopy(src, inverse.length, dst, inverse.length, src.length - inverse.length);
+  }
+
+  /**
+   * Gather into a given array.
+   * @param inverse the inverse of a ranking
+   * @param src the source array, which is not modified
+   * @param dst the destination array, which must not be {@code src}
+   * @throws java.lang.IllegalArgumentException if the length of {@code src} is less than the length of {@code inverse},
+   *                                            or if {@code src == dst}
+   * @throws java.lang.ArrayIndexOutOfBoundsException if {@code dst} is shorter than {@code src}
+   * @see #gatherTo(int[], Object[], Object[])
+   */
+  public static void gatherTo(int[] inverse, long[] src, long[] dst) {
+    checkApplyTo(inverse.length, src, src.length, 0, dst, dst.length, 0, src.length);
+    for (int j = 0; j < inverse.length; j++)
+      dst[j] = src[inverse[j]];
+    arraycopy(src, inverse.length, dst, inverse.length, src.length - inverse.length);
+  }
+
+  /**
+   * Gather into a given array.
+   * @param inverse the inverse of a ranking
+   * @param src the source array, which is not modified
+   * @param dst the destination array, which must not be {@code src}
+   * @throws java.lang.IllegalArgumentException if the length of {@code src} is less than the length of {@code inverse},
+   *                                            or if {@code src == dst}
+   * @throws java.lang.ArrayIndexOutOfBoundsException if {@code dst} is shorter than {@code src}
+   * @see #gatherTo(int[], Object[], Object[])
+   */
+  public static void gatherTo(int[] inverse, float[] src, float[] dst) {
+    checkApplyTo(inverse.length, src, src.length, 0, dst, dst.length, 0, src.length);
+    for (int j = 0; j < inverse.length; j++)
+      dst[j] = src[inverse[j]];
+    arraycopy(src, inverse.length, dst, inverse.length, src.length - inverse.length);
+  }
+
+  /**
+   * Gather into a given array.
+   * @param inverse the inverse of a ranking
+   * @param src the source array, which is not modified
+   * @param dst the destination array, which must not be {@code src}
+   * @throws java.lang.IllegalArgumentException if the length of {@code src} is less than the length of {@code inverse},
+   *                                            or if {@code src == dst}
+   * @throws java.lang.ArrayIndexOutOfBoundsException if {@code dst} is shorter than {@code src}
+   * @see #gatherTo(int[], Object[], Object[])
+   */
+  public static void gatherTo(int[] inverse, double[] src, double[] dst) {
+    checkApplyTo(inverse.length, src, src.length, 0, dst, dst.length, 0, src.length);
+    for (int j = 0; j < inverse.length; j++)
+      dst[j] = src[inverse[j]];
+    arraycopy(src, inverse.length, dst, inverse.length, src.length - inverse.length);
+  }
+
+  /**
+   * Gather into a given array.
+   * @param inverse the inverse of a ranking
+   * @param src the source array, which is not modified
+   * @param dst the destination array, which must not be {@code src}
+   * @throws java.lang.IllegalArgumentException if the length of {@code src} is less than the length of {@code inverse},
+   *                                            or if {@code src == dst}
+   * @throws java.lang.ArrayIndexOutOfBoundsException if {@code dst} is shorter than {@code src}
+   * @see #gatherTo(int[], Object[], Object[])
+   */
+  public static void gatherTo(int[] inverse, boolean[] src, boolean[] dst) {
+    checkApplyTo(inverse.length, src, src.length, 0, dst, dst.length, 0, src.length);
+    for (int j = 0; j < inverse.length; j++)
+      dst[j] = src[inverse[j]];
+    arraycopy(src, inverse.length, dst, inverse.length, src.length - inverse.length);
+  }
+
+  /**
+   * Gather into a given array.
+   * @param inverse the inverse of a ranking
+   * @param src the source array, which is not modified
+   * @param dst the destination array, which must not be {@code src}
+   * @throws java.lang.IllegalArgumentException if the length of {@code src} is less than the length of {@code inverse},
+   *                                            or if {@code src == dst}
+   * @throws java.lang.ArrayIndexOutOfBoundsException if {@code dst} is shorter than {@code src}
+   * @see #gatherTo(int[], Object[], Object[])
+   */
+  public static void gatherTo(int[] inverse, char[] src, char[] dst) {
+    checkApplyTo(inverse.length, src, src.length, 0, dst, dst.length, 0, src.length);
+    for (int j = 0; j < inverse.length; j++)
+      dst[j] = src[inverse[j]];
+    arraycopy(src, inverse.length, dst, inverse.length, src.length - inverse.length);
+  }
+
+  /**
+   * Apply the ranking to the input array. This returns the same result as {@link #apply(int[], Object[])}.
+   * The elements are first partitioned by the block of {@code 2^16} indexes that they are moved to,
+   * and then moved, one block at a time. This keeps the writes of the second pass within a small
+   * region of the result, at the cost of two temporary arrays of length {@code ranking.length}.
+   * This method does not check that the first argument is indeed a ranking.
+   * @param ranking a ranking
+   * @param input an input array
+   * @return the result of applying the ranking to the input
+   * @throws java.lang.IllegalArgumentException if the length of {@code input} is less than the length of {@code ranking}
+   * @see ApplyEngine#BLOCKED
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> T[] applyBlocked(int[] ranking, T[] input) {
+    checkLength(ranking.length, input.length);
+    T[] result = (T[]) Array.newInstance(input.getClass().getComponentType(), input.length);
+    int n = ranking.length;
+    int[] offsets = blockOffsets(ranking);
+    int[] dest = new int[n];
+    Object[] values = new Object[n];
+    for (int i = 0; i < n; i++) {
+      int k = offsets[ranking[i] >>> BLOCK_BITS]++;
+      dest[k] = ranking[i];
+      values[k] = input[i];
+    }
+    for (int k = 0; k < n; k++)
+      result[dest[k]] = (T) values[k];
+    arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  /**
+   * Apply the ranking to the input array, one destination block at a time.
+   * @param ranking a ranking
+   * @param input an input array
+   * @return the result of applying the ranking to the input
+   * @throws java.lang.IllegalArgumentException if the length of {@code input} is less than the length of {@code ranking}
+   * @see #applyBlocked(int[], Object[])
+   */
+  public static int[] applyBlocked(int[] ranking, int[] input) {
+    checkLength(ranking.length, input.length);
+    int[] result = new int[input.length];
+    int n = ranking.length;
+    int[] offsets = blockOffsets(ranking);
+    int[] dest = new int[n];
+    int[] values = new int[n];
+    for (int i = 0; i < n; i++) {
+      int k = offsets[ranking[i] >>> BLOCK_BITS]++;
+      dest[k] = ranking[i];
+      values[k] = input[i];
+    }
+    for (int k = 0; k < n; k++)
+      result[dest[k]] = values[k];
+    arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  /**
+   * Apply the ranking to the input array, one destination block at a time.
+   * @param ranking a ranking
+   * @param input an input array
+   * @return the result of applying the ranking to the input
+   * @throws java.lang.IllegalArgumentException if the length of {@code input} is less than the length of {@code ranking}
+   * @see #applyBlocked(int[], Object[])
+   */
+  public static long[] applyBlocked(int[] ranking, long[] input) {
+    checkLength(ranking.length, input.length);
+    long[] result = new long[input.length];
+    int n = ranking.length;
+    int[] offsets = blockOffsets(ranking);
+    int[] dest = new int[n];
+    long[] values = new long[n];
+    for (int i = 0; i < n; i++) {
+      int k = offsets[ranking[i] >>> BLOCK_BITS]++;
+      dest[k] = ranking[i];
+      values[k] = input[i];
+    }
+    for (int k = 0; k < n; k++)
+      result[dest[k]] = values[k];
+    arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  /**
+   * Apply the ranking to the input array, one destination block at a time.
+   * @param ranking a ranking
+   * @param input an input array
+   * @return the result of applying the ranking to the input
+   * @throws java.lang.IllegalArgumentException if the length of {@code input} is less than the length of {@code ranking}
+   * @see #applyBlocked(int[], Object[])
+   */
+  public static double[] applyBlocked(int[] ranking, double[] input) {
+    checkLength(ranking.length, input.length);
+    double[] result = new double[input.length];
+    int n = ranking.length;
+    int[] offsets = blockOffsets(ranking);
+    int[] dest = new int[n];
+    double[] values = new double[n];
+    for (int i = 0; i < n; i++) {
+      int k = offsets[ranking[i] >>> BLOCK_BITS]++;
+      dest[k] = ranking[i];
+      values[k] = input[i];
+    }
+    for (int k = 0; k < n; k++)
+      result[dest[k]] = values[k];
+    arraycopy(input, n, result, n, input.length - n);
+    return result;
+  }
+
+  /* the start of each destination block in the partitioned order */
+  private static int[] blockOffsets(int[] ranking) {
+    int[] offsets = new int[((ranking.length + (1 << BLOCK_BITS) - 1) >>> BLOCK_BITS) + 1];
+    for (int i : ranking)
+      offsets[(i >>> BLOCK_BITS) + 1]++;
+    for (int b = 1; b < offsets.length; b++)
+      offsets[b] += offsets[b - 1];
+    return offsets;
+  }
+
+  /* ================= sorts ================= */
+
+  /**
+   * Check if the input ranking will sort the input array when applied to it.
+   * This method does not check if the first argument is indeed a valid ranking, and will have unexpected results otherwise.
+   * @param a an array
+   * @param ranking a ranking
+   * @return true if the return value of {@code apply(ranking, a)} is a sorted array
+   * @see #isValid
+   */
+  public static boolean sorts(int[] ranking, int[] a) {
+    if (a.length < ranking.length)
+      lengthFailure();
+    if (a.length < 2)
+      return true;
+    int idx = apply(ranking, 0);
+    int test = a[0];
+    for (int i = 1; i < a.length; i++) {
+      int idx2 = apply(ranking, i);
+      int test2 = a[i];
+      if (idx2 > idx) {
+        if (test > test2)
+          return false;
+      } else if (test < test2)
+        return false;
+      idx = idx2;
+      test = test2;
+    }
+    return true;
+  }
+
+  /**
+   * Check if the input ranking will sort the input array when applied to it.
+   * This method does not check if the first argument is indeed a valid ranking, and will have unexpected results otherwise.
+   * @param a an array
+   * @param ranking a ranking
+   * @return true if the return value of {@code apply(ranking, a)} is a sorted array
+   * @see #isValid
+   */
+  public static boolean sorts(int[] ranking, byte[] a) {
+    if (a.length < ranking.length)
+      lengthFailure();
+    if (a.length < 2)
+      return true;
+    int idx = apply(ranking, 0);
+    byte test = a[0];
+    for (int i = 1; i < a.length; i++) {
+      int idx2 = apply(ranking, i);
+      byte test2 = a[i];
+      if (idx2 > idx) {
+        if (test > test2)
+          return false;
+      } else if (test < test2)
+        return false;
+      idx = idx2;
+      test = test2;
+    }
+    return true;
+  }
+
+  /**
+   * Check if the input ranking will sort the input array when applied to it.
+   * This method does not check if the first argument is indeed a valid ranking, and will have unexpected results otherwise.
+   * @param a an array
+   * @param ranking a ranking
+   * @return true if the return value of {@code apply(ranking, a)} is a sorted array
+   * @see #isValid
+   */
+  public static boolean sorts(int[] ranking, short[] a) {
+    if (a.length < ranking.length)
+      lengthFailure();
+    if (a.length < 2)
+      return true;
+    int idx = apply(ranking, 0);
+    short test = a[0];
+    for (int i = 1; i < a.length; i++) {
+      int idx2 = apply(ranking, i);
+      short test2 = a[i];
+      if (idx2 > idx) {
+        if (test > test2)
+          return false;
+      } else if (test < test2)
+        return false;
+      idx = idx2;
+      test = test2;
+    }
+    return true;
+  }
+
+  /**
+   * Check if the input ranking will sort the input array when applied to it.
+   * This method does not check if the first argument is indeed a valid ranking, and will have unexpected results otherwise.
+   * @param a an array
+   * @param ranking a ranking
+   * @return true if the return value of {@code apply(ranking, a)} is a sorted array
+   * @see #isValid
+   */
+  public static boolean sorts(int[] ranking, long[] a) {
+    if (a.length < ranking.length)
+      lengthFailure();
+    if (a.length < 2)
+      return true;
+    int idx = apply(ranking, 0);
+    long test = a[0];
+    for (int i = 1; i < a.length; i++) {
+      int idx2 = apply(ranking, i);
+      long test2 = a[i];
+      if (idx2 > idx) {
+        if (test > test2)
+          return false;
+      } else if (test < test2)
+        return false;
+      idx = idx2;
+      test = test2;
+    }
+    return true;
+  }
+
+  /**
+   * Check if the input ranking will sort the input array when applied to it.
+   * This method does not check if the first argument is indeed a valid ranking, and will have unexpected results otherwise.
+   * @param a an array
+   * @param ranking a ranking
+   * @return true if the return value of {@code apply(ranking, a)} is a sorted array
+   * @see #isValid
+   */
+  public static boolean sorts(int[] ranking, char[] a) {
+    if (a.length < ranking.length)
+      lengthFailure();
+    if (a.length < 2)
+      return true;
+    int idx = apply(ranking, 0);
+    char test = a[0];
+    for (int i = 1; i < a.length; i++) {
+      int idx2 = apply(ranking, i);
+      char test2 = a[i];
+      if (idx2 > idx) {
+        if (test > test2)
+          return false;
+      } else if (test < test2)
+        return false;
+      idx = idx2;
+      test = test2;
+    }
+    return true;
+  }
+
+  /**
+   * Check if the input ranking will sort the input array when applied to it.
+   * This method does not check if the first argument is indeed a valid ranking, and will have unexpected results otherwise.
+   * @param a an array
+   * @param ranking a ranking
+   * @return true if the return value of {@code apply(ranking, a)} is a sorted array
+   * @see #isValid
+   */
+  public static boolean sorts(int[] ranking, float[] a) {
+    if (a.length < ranking.length)
+      lengthFailure();
     if (a.length < 2)
       return true;
     int idx = apply(ranking, 0);
@@ -1536,59 +2815,352 @@ public final class Rankings {
     return true;
   }
 
-  private static final class State {
-    private final int[] prefix;
-    private final int[] suffix;
+  /**
+   * The largest {@code n} such that {@code n!} fits in a {@code long}.
+   */
+  static final int MAX_LONG_FACTORIAL = 20;
 
-    private State(int[] prefix, int[] suffix) {
-      this.prefix = prefix;
-      this.suffix = suffix;
+  /**
+   * Rearrange the input ranking into the lexicographically next ranking, in place.
+   * Each step takes amortized constant time and does not allocate.
+   * @param ranking a ranking, which will be modified
+   * @return {@code false} if the input was the last ranking in lexicographic order, in which case
+   * it is left unchanged
+   */
+  public static boolean nextPermutation(int[] ranking) {
+    int i = ranking.length - 2;
+    while (i >= 0 && ranking[i] > ranking[i + 1])
+      i--;
+    if (i < 0)
+      return false;
+    int j = ranking.length - 1;
+    while (ranking[j] < ranking[i])
+      j--;
+    int tmp = ranking[i];
+    ranking[i] = ranking[j];
+    ranking[j] = tmp;
+    for (int lo = i + 1, hi = ranking.length - 1; lo < hi; lo++, hi--) {
+      tmp = ranking[lo];
+      ranking[lo] = ranking[hi];
+      ranking[hi] = tmp;
     }
+    return true;
   }
 
+  /**
+   * Visit all rankings of length {@code n} in lexicographic order, starting with the identity.
+   * The same array is passed to each call of the {@code action}, and then modified in place,
+   * so no memory is allocated per ranking. The {@code action} must not modify the array,
+   * and must copy it if it needs to keep it.
+   * @param n length of rankings to generate
+   * @param action an action to perform on each ranking
+   */
+  public static void forEachPermutation(int n, Consumer<int[]> action) {
+    int[] ranking = ArrayUtil.range(n);
+    do {
+      action.accept(ranking);
+    } while (nextPermutation(ranking));
+  }
 
   /**
-   * Returns all possible permutations of given length
+   * Returns all possible permutations of given length, in lexicographic order.
+   * For {@code n <= 20} the stream is sized and splits into ranges of lexicographic ranks,
+   * so it can be processed in parallel.
    * @param n length of permutations to generate
    * @return all possible permutations of length {@code n}; this will contain {@code n!}
    * different permutations
+   * @see #forEachPermutation(int, Consumer)
    */
   public static Stream<int[]> symmetricGroup(int n) {
-    int[] start = new int[n];
-    for (int i = 0; i < n; i += 1) {
-      start[i] = i + 1;
+    return StreamSupport.stream(new SymmetricGroupSpliterator(n), false);
+  }
+
+  private static final class SymmetricGroupSpliterator implements Spliterator<int[]> {
+
+    /* splitting off less than this many permutations is not worth the unranking */
+    private static final long MIN_SPLIT = 64;
+
+    /* the next permutation to emit */
+    private int[] current;
+    /* the lexicographic rank of current; unused if n > MAX_LONG_FACTORIAL */
+    private long index;
+    /* the rank where this spliterator stops, or -1 if n > MAX_LONG_FACTORIAL */
+    private final long fence;
+
+    private SymmetricGroupSpliterator(int n) {
+      this(ArrayUtil.range(n), 0, n <= MAX_LONG_FACTORIAL ? factorial(n) : -1);
     }
-    Stack<State> stack = new Stack<>();
-    stack.push(new State(new int[0], start));
-    Iterable<int[]> it = () -> new Iterator<int[]>() {
 
-      @Override
-      public boolean hasNext() {
-        return !stack.isEmpty();
+    private SymmetricGroupSpliterator(int[] current, long index, long fence) {
+      this.current = current;
+      this.index = index;
+      this.fence = fence;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super int[]> action) {
+      if (current == null)
+        return false;
+      action.accept(current.clone());
+      advance();
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super int[]> action) {
+      while (current != null) {
+        action.accept(current.clone());
+        advance();
       }
+    }
 
-      @Override
-      public int[] next() {
-        State state = stack.pop();
-        while (state.suffix.length > 0) {
-          for (int i = 0; i < state.suffix.length; i += 1) {
-            int[] newPrefix = new int[state.prefix.length + 1];
-            arraycopy(state.prefix, 0, newPrefix, 0, state.prefix.length);
-            newPrefix[state.prefix.length] = state.suffix[i];
-            int[] newSuffix = new int[state.suffix.length - 1];
-            if (i != 0)
-              arraycopy(state.suffix, 0, newSuffix, 0, i);
-            if (i < state.suffix.length - 1)
-              arraycopy(state.suffix, i + 1, newSuffix, i, state.suffix.length - 1 - i);
-            stack.push(new State(newPrefix, newSuffix));
-          }
-          state = stack.pop();
-        }
-        return ArrayUtil.add(state.prefix, -1);
+    private void advance() {
+      if (fence < 0) {
+        if (!nextPermutation(current))
+          current = null;
+      } else if (++index < fence) {
+        nextPermutation(current);
+      } else {
+        current = null;
       }
-    };
-    return StreamSupport.stream(it.spliterator(), false);
+    }
+
+    @Override
+    public Spliterator<int[]> trySplit() {
+      if (current == null || fence < 0 || fence - index < 2 * MIN_SPLIT)
+        return null;
+      long mid = index + (fence - index) / 2;
+      Spliterator<int[]> prefix = new SymmetricGroupSpliterator(current, index, mid);
+      current = unrank(current.length, mid);
+      index = mid;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      if (current == null)
+        return 0;
+      return fence < 0 ? Long.MAX_VALUE : fence - index;
+    }
+
+    @Override
+    public int characteristics() {
+      int characteristics = ORDERED | DISTINCT | NONNULL | IMMUTABLE;
+      return fence < 0 ? characteristics : characteristics | SIZED | SUBSIZED;
+    }
+  }
+
+  static long factorial(int n) {
+    long result = 1;
+    for (int i = 2; i <= n; i++)
+      result *= i;
+    return result;
+  }
+
+  /**
+   * Compute the lexicographic rank of a ranking, among all rankings of the same length.
+   * The identity has rank {@code 0}, and the reverse ranking has rank {@code n! - 1}.
+   * Runs in {@code O(n log n)}.
+   * @param ranking a ranking
+   * @return the lexicographic rank of {@code ranking}
+   * @throws java.lang.ArithmeticException if the rank does not fit in a {@code long}
+   * @see #unrank(int, long)
+   * @see #bigRank(int[])
+   */
+  public static long rank(int[] ranking) {
+    int[] code = lehmerCode(ranking);
+    int n = code.length;
+    long result = 0;
+    for (int i = 0; i < n; i++)
+      result = Math.addExact(Math.multiplyExact(result, n - i), code[i]);
+    return result;
+  }
+
+  /**
+   * Compute the lexicographic rank of a ranking, among all rankings of the same length.
+   * Unlike {@link #rank(int[])}, this method does not fail if the rank is very large.
+   * @param ranking a ranking
+   * @return the lexicographic rank of {@code ranking}
+   * @see #unrank(int, BigInteger)
+   */
+  public static BigInteger bigRank(int[] ranking) {
+    int[] code = lehmerCode(ranking);
+    int n = code.length;
+    BigInteger result = BigInteger.ZERO;
+    // do as many steps as possible in long arithmetic: (r * m1 + d1) * m2 + d2 = r * m1 * m2 + (d1 * m2 + d2)
+    long multiplier = 1;
+    long addend = 0;
+    for (int i = 0; i < n; i++) {
+      long base = n - i;
+      if (multiplier > Long.MAX_VALUE / base) {
+        result = result.multiply(BigInteger.valueOf(multiplier)).add(BigInteger.valueOf(addend));
+        multiplier = 1;
+        addend = 0;
+      }
+      multiplier *= base;
+      addend = addend * base + code[i];
+    }
+    return result.multiply(BigInteger.valueOf(multiplier)).add(BigInteger.valueOf(addend));
+  }
+
+  /**
+   * Find the ranking of length {@code n} that has the given lexicographic rank.
+   * Runs in {@code O(n log n)}.
+   * @param n a non-negative number
+   * @param rank a number between {@code 0} (inclusive) and {@code n!} (exclusive)
+   * @return the ranking of length {@code n} with lexicographic rank {@code rank}
+   * @throws java.lang.IllegalArgumentException if {@code n} is negative or {@code rank} is out of range
+   * @see #rank(int[])
+   */
+  public static int[] unrank(int n, long rank) {
+    if (n < 0)
+      negativeFailure();
+    if (rank < 0)
+      throw new IllegalArgumentException("negative rank: " + rank);
+    int[] code = new int[n];
+    for (int i = n - 1; i >= 0 && rank != 0; i--) {
+      int base = n - i;
+      code[i] = (int) (rank % base);
+      rank /= base;
+    }
+    if (rank != 0)
+      throw new IllegalArgumentException("rank out of range");
+    return fromLehmerCode(code);
+  }
+
+  /**
+   * Find the ranking of length {@code n} that has the given lexicographic rank.
+   * @param n a non-negative number
+   * @param rank a number between {@code 0} (inclusive) and {@code n!} (exclusive)
+   * @return the ranking of length {@code n} with lexicographic rank {@code rank}
+   * @throws java.lang.IllegalArgumentException if {@code n} is negative or {@code rank} is out of range
+   * @see #bigRank(int[])
+   */
+  public static int[] unrank(int n, BigInteger rank) {
+    if (rank.bitLength() < 64)
+      return unrank(n, rank.longValue());
+    if (n < 0)
+      negativeFailure();
+    if (rank.signum() < 0)
+      throw new IllegalArgumentException("negative rank: " + rank);
+    int[] code = new int[n];
+    int i = n - 1;
+    while (i >= 0 && rank.signum() != 0) {
+      // divide by as many consecutive bases as fit in a long, then split the remainder
+      int end = i;
+      long divisor = 1;
+      while (end >= 0 && divisor <= Long.MAX_VALUE / (n - end))
+        divisor *= n - end--;
+      BigInteger[] qr = rank.divideAndRemainder(BigInteger.valueOf(divisor));
+      long remainder = qr[1].longValue();
+      for (; i > end; i--) {
+        int base = n - i;
+        code[i] = (int) (remainder % base);
+        remainder /= base;
+      }
+      rank = qr[0];
+    }
+    if (rank.signum() != 0)
+      throw new IllegalArgumentException("rank out of range");
+    return fromLehmerCode(code);
+  }
+
+  /**
+   * Compute the rank of a ranking in the order of Myrvold and Ruskey.
+   * This is a bijection between the rankings of length {@code n} and the numbers
+   * from {@code 0} to {@code n! - 1}, like the lexicographic rank, but it can be computed in linear time.
+   * @param ranking a ranking
+   * @return the Myrvold-Ruskey rank of {@code ranking}
+   * @throws java.lang.ArithmeticException if the rank does not fit in a {@code long}
+   * @see #unrankMyrvoldRuskey(int, long)
+   */
+  public static long rankMyrvoldRuskey(int[] ranking) {
+    int n = ranking.length;
+    int[] a = Arrays.copyOf(ranking, n);
+    int[] inverse = invert(ranking);
+    int[] digits = new int[n + 1];
+    for (int k = n; k > 1; k--) {
+      int value = a[k - 1];
+      int j = inverse[k - 1];
+      digits[k] = value;
+      a[j] = value;
+      a[k - 1] = k - 1;
+      inverse[value] = j;
+      inverse[k - 1] = k - 1;
+    }
+    long result = 0;
+    for (int k = 2; k <= n; k++)
+      result = Math.addExact(Math.multiplyExact(result, k), digits[k]);
+    return result;
+  }
+
+  /**
+   * Find the ranking of length {@code n} that has the given rank in the order of Myrvold and Ruskey.
+   * Runs in linear time.
+   * @param n a non-negative number
+   * @param rank a number between {@code 0} (inclusive) and {@code n!} (exclusive)
+   * @return the ranking of length {@code n} with Myrvold-Ruskey rank {@code rank}
+   * @throws java.lang.IllegalArgumentException if {@code n} is negative or {@code rank} is out of range
+   * @see #rankMyrvoldRuskey(int[])
+   */
+  public static int[] unrankMyrvoldRuskey(int n, long rank) {
+    if (n < 0)
+      negativeFailure();
+    if (rank < 0)
+      throw new IllegalArgumentException("negative rank: " + rank);
+    int[] result = ArrayUtil.range(n);
+    for (int k = n; k > 1; k--) {
+      int j = (int) (rank % k);
+      int tmp = result[k - 1];
+      result[k - 1] = result[j];
+      result[j] = tmp;
+      rank /= k;
+    }
+    if (rank != 0)
+      throw new IllegalArgumentException("rank out of range");
+    return result;
   }
 
+  /* code[i] is the number of j > i with ranking[j] < ranking[i]; counted with a Fenwick tree */
+  private static int[] lehmerCode(int[] ranking) {
+    int n = ranking.length;
+    int[] tree = new int[n + 1];
+    int[] code = new int[n];
+    for (int i = n - 1; i >= 0; i--) {
+      int count = 0;
+      for (int k = ranking[i]; k > 0; k -= k & -k)
+        count += tree[k];
+      code[i] = count;
+      for (int k = ranking[i] + 1; k <= n; k += k & -k)
+        tree[k]++;
+    }
+    return code;
+  }
+
+  /* inverse of lehmerCode; the Fenwick tree counts the values that have not been used yet */
+  private static int[] fromLehmerCode(int[] code) {
+    int n = code.length;
+    int[] tree = new int[n + 1];
+    for (int k = 1; k <= n; k++)
+      tree[k] = k & -k;
+    int top = Integer.highestOneBit(n);
+    int[] ranking = new int[n];
+    for (int i = 0; i < n; i++) {
+      // find the smallest unused value that has code[i] unused values below it
+      int remaining = code[i];
+      int pos = 0;
+      for (int step = top; step > 0; step >>>= 1) {
+        int next = pos + step;
+        if (next <= n && tree[next] <= remaining) {
+          pos = next;
+          remaining -= tree[next];
+        }
+      }
+      ranking[i] = pos;
+      for (int k = pos + 1; k <= n; k += k & -k)
+        tree[k]--;
+    }
+    return ranking;
+  }
 
 }
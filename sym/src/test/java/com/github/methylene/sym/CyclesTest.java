@@ -2,6 +2,11 @@ package com.github.methylene.sym;
 
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
@@ -30,4 +35,125 @@ public class CyclesTest {
     Permutation compose = p.compose(q);
   }
 
+  @Test
+  public void testApplyIndex() {
+    for (int n : new int[]{0, 1, 2, 10, 1000}) {
+      Permutation p = Permutation.random(n);
+      Cycles c = p.toCycles();
+      for (int i = -1; i <= n + 1; i++) {
+        int j = i < 0 ? i : p.apply(i);
+        assertEquals(j, c.apply(i));
+        assertEquals(i, c.unApply(j));
+        assertEquals(i < 0 ? 1 : p.orbit(i).length, c.orbitLength(i));
+      }
+    }
+  }
+
+  /* n / 2 transpositions */
+  @Test
+  public void testInvolution() {
+    int[] ranking = new int[100];
+    for (int i = 0; i < ranking.length; i++)
+      ranking[i] = i ^ 1;
+    Cycles c = Permutation.define(ranking).toCycles();
+    assertEquals(50, c.numCycles());
+    assertEquals(100, c.length());
+    assertEquals(1, c.signature());
+    for (int k = 0; k < c.numCycles(); k++) {
+      assertEquals(2, c.cycleLength(k));
+      assertArrayEquals(new int[]{2 * k, 2 * k + 1}, c.getCycle(k));
+      assertEquals(2 * k + 1, c.getCycleElement(k, 1));
+    }
+    assertEquals("(0 1) (2 3)", Permutation.define(1, 0, 3, 2).toCycles().toString());
+    assertEquals(Permutation.identity(), c.pow(2).toPermutation());
+    assertEquals(Permutation.define(ranking), c.toPermutation());
+  }
+
+  @Test(expected = ArrayIndexOutOfBoundsException.class)
+  public void testGetCycleElementOutOfBounds() {
+    Permutation.define(1, 0, 3, 2).toCycles().getCycleElement(0, 2);
+  }
+
+  @Test
+  public void testPow() {
+    Permutation p = Permutation.random(200);
+    for (int k = -5; k < 20; k++)
+      assertEquals(p.pow(k), p.toCycles().pow(k).toPermutation());
+  }
+
+  @Test
+  public void testClobberAllTypes() {
+    for (int n : new int[]{2, 3, 10, 1000}) {
+      Permutation p = Permutation.random(n);
+      Cycles c = p.toCycles();
+      int[] ints = ArrayUtil.randomNumbers(1000, n);
+      byte[] bytes = new byte[n];
+      short[] shorts = new short[n];
+      char[] chars = new char[n];
+      long[] longs = new long[n];
+      float[] floats = new float[n];
+      double[] doubles = new double[n];
+      Integer[] boxed = new Integer[n];
+      for (int i = 0; i < n; i++) {
+        bytes[i] = (byte) ints[i];
+        shorts[i] = (short) ints[i];
+        chars[i] = (char) ints[i];
+        longs[i] = ints[i];
+        floats[i] = ints[i];
+        doubles[i] = ints[i];
+        boxed[i] = ints[i];
+      }
+      assertArrayEquals(p.apply(ints), c.apply(ints));
+      assertArrayEquals(p.apply(bytes), c.apply(bytes));
+      assertArrayEquals(p.apply(shorts), c.apply(shorts));
+      assertArrayEquals(p.apply(chars), c.apply(chars));
+      assertArrayEquals(p.apply(longs), c.apply(longs));
+      assertArrayEquals(p.apply(floats), c.apply(floats), 0f);
+      assertArrayEquals(p.apply(doubles), c.apply(doubles), 0d);
+      assertArrayEquals(p.apply(boxed), c.apply(boxed));
+      List<Integer> list = new LinkedList<>(Arrays.asList(boxed));
+      assertEquals(p.apply(list), c.apply(list));
+      c.clobber(list);
+      c.unclobber(list);
+      assertEquals(Arrays.asList(boxed), list);
+      long[] copy = longs.clone();
+      c.clobber(copy);
+      c.unclobber(copy);
+      assertArrayEquals(longs, copy);
+    }
+  }
+
+  @Test
+  public void testToCyclesParallel() {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      int n = 200000;
+      int[] involution = new int[n];
+      for (int i = 0; i < n; i++)
+        involution[i] = i ^ 1;
+      // a long cycle, followed by short ones
+      int[] mixed = ArrayUtil.range(n);
+      for (int i = 0; i < 5000; i++)
+        mixed[i] = (i + 1) % 5000;
+      for (int i = 5000; i + 3 <= n; i += 3) {
+        mixed[i] = i + 2;
+        mixed[i + 2] = i;
+      }
+      for (int[] ranking : new int[][]{Permutation.random(n).getRanking(), involution, mixed, ArrayUtil.range(n)}) {
+        Cycles expected = CycleUtil.toCycles(ranking);
+        Cycles actual = Permutation.define(ranking).toCyclesParallel(pool);
+        int[][] orbits = CycleUtil.toOrbits(ranking);
+        assertEquals(expected.numCycles(), actual.numCycles());
+        assertEquals(expected.numCycles(), orbits.length);
+        for (int c = 0; c < expected.numCycles(); c++) {
+          assertArrayEquals(expected.getCycle(c), actual.getCycle(c));
+          assertArrayEquals(expected.getCycle(c), orbits[c]);
+        }
+        assertEquals(Permutation.define(ranking), actual.toPermutation());
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
 }
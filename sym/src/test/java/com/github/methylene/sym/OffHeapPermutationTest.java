@@ -0,0 +1,87 @@
+package com.github.methylene.sym;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class OffHeapPermutationTest {
+
+  @Test
+  public void testSameAsPermutation() {
+    for (int n : new int[]{0, 1, 10, 1000, 100000}) {
+      Permutation p = Permutation.random(n);
+      Permutation q = Permutation.random(n / 2);
+      try (OffHeapPermutation a = OffHeapPermutation.copyOf(pad(p, n));
+           OffHeapPermutation b = OffHeapPermutation.copyOf(q);
+           OffHeapPermutation inverse = a.invert();
+           OffHeapPermutation product = a.compose(b);
+           OffHeapPermutation product2 = b.compose(a)) {
+        assertEquals(n, a.length());
+        assertEquals(p, a.toPermutation());
+        assertEquals(p.invert(), inverse.toPermutation());
+        assertEquals(p.compose(q), product.toPermutation());
+        assertEquals(q.compose(p), product2.toPermutation());
+        assertEquals(p.toCycles().toPermutation(), a.toCycles().toPermutation());
+        int[] ints = ArrayUtil.randomNumbers(1000, n + 3);
+        long[] longs = new long[ints.length];
+        for (int i = 0; i < ints.length; i++)
+          longs[i] = ints[i] * 7L;
+        assertArrayEquals(p.apply(ints), a.apply(ints));
+        assertArrayEquals(p.apply(longs), a.apply(longs));
+        for (int i = 0; i < n + 3; i++)
+          assertEquals(p.apply(i), a.apply(i));
+      }
+    }
+  }
+
+  private static int[] pad(Permutation p, int n) {
+    int[] result = ArrayUtil.range(n);
+    System.arraycopy(p.getRanking(), 0, result, 0, p.length());
+    return result;
+  }
+
+  @Test
+  public void testChunks() {
+    int[] ranking = Rankings.random(1000);
+    int[] other = Rankings.random(990);
+    Permutation p = Permutation.define(ranking);
+    try (OffHeapPermutation a = OffHeapPermutation.copyOf(ranking, 4);
+         OffHeapPermutation b = OffHeapPermutation.copyOf(other, 5);
+         OffHeapPermutation inverse = a.invert();
+         OffHeapPermutation product = a.compose(b)) {
+      assertEquals(p, a.toPermutation());
+      assertEquals(p.invert(), inverse.toPermutation());
+      assertEquals(p.compose(Permutation.define(other)), product.toPermutation());
+      assertEquals(p.toCycles().toPermutation(), a.toCycles().toPermutation());
+      for (int i = 0; i < ranking.length; i++)
+        assertEquals(ranking[i], a.apply(i));
+    }
+  }
+
+  @Test
+  public void testRandom() {
+    try (OffHeapPermutation a = OffHeapPermutation.random(10000, new Random(1));
+         OffHeapPermutation b = OffHeapPermutation.identity(10000)) {
+      assertFalse(a.toPermutation().isIdentity());
+      assertTrue(b.toPermutation().isIdentity());
+    }
+  }
+
+  @Test
+  public void testClose() {
+    OffHeapPermutation a = OffHeapPermutation.identity(10);
+    assertFalse(a.isClosed());
+    a.close();
+    a.close();
+    assertTrue(a.isClosed());
+    try {
+      a.apply(0);
+      fail();
+    } catch (IllegalStateException e) {
+      // expected
+    }
+  }
+
+}
@@ -0,0 +1,91 @@
+package com.github.methylene.sym;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class PermutationExpressionTest {
+
+  private static Permutation random() {
+    return Permutation.random((int) (Math.random() * 50));
+  }
+
+  /* the expression must agree with the eager operations, both pointwise and when evaluated */
+  private static void check(Permutation expected, PermutationExpression expression) {
+    assertEquals(expected, expression.evaluate());
+    for (int i = 0; i < expected.length() + 5; i++)
+      assertEquals(expected.apply(i), expression.apply(i));
+  }
+
+  @Test
+  public void testProduct() {
+    for (int __ = 0; __ < 100; __++) {
+      List<Permutation> list = new ArrayList<>();
+      Permutation expected = Permutation.identity();
+      for (int k = 0; k < 5; k++) {
+        Permutation p = random();
+        list.add(p);
+        expected = expected.compose(p);
+      }
+      check(expected, PermutationExpression.product(list));
+      assertEquals(expected, Permutation.product(list));
+      assertEquals(expected, Permutation.product(list.toArray(new Permutation[list.size()])));
+    }
+    assertEquals(Permutation.identity(), Permutation.product(new ArrayList<Permutation>()));
+  }
+
+  @Test
+  public void testOperations() {
+    for (int __ = 0; __ < 100; __++) {
+      Permutation p = random();
+      Permutation q = random();
+      int n = (int) (Math.random() * 10);
+      check(p.compose(q), p.lazy().compose(q));
+      check(p.invert(), p.lazy().invert());
+      check(p.compose(q).invert(), p.lazy().compose(q).invert());
+      check(p.shift(n), p.lazy().shift(n));
+      check(p.shift(n).compose(q), p.lazy().shift(n).compose(q));
+      check(p.shift(n).invert().compose(q.shift(2)), p.lazy().shift(n).invert().compose(q.lazy().shift(2)));
+      check(p.compose(q).pow(n), p.lazy().compose(q).pow(n));
+      check(p.compose(q).pow(-n), p.lazy().compose(q).pow(-n));
+      check(p.compose(q).pow(1000), p.lazy().compose(q).pow(1000));
+      check(p.compose(q).shift(n).compose(p), p.lazy().compose(q).shift(n).compose(p));
+    }
+  }
+
+  @Test
+  public void testCachingDisabled() {
+    Permutation.setCaching(false);
+    try {
+      for (int __ = 0; __ < 20; __++) {
+        Permutation p = random();
+        Permutation q = random();
+        check(p.compose(q.invert()), p.lazy().compose(q.lazy().invert()));
+      }
+    } finally {
+      Permutation.setCaching(true);
+    }
+  }
+
+  @Test
+  public void testIdentity() {
+    Permutation p = Permutation.define(1, 0);
+    assertSame(PermutationExpression.identity(), Permutation.identity().lazy());
+    assertSame(p, p.lazy().evaluate());
+    assertSame(p.invert(), p.lazy().invert().evaluate());
+    assertEquals(0, p.lazy().pow(0).numFactors());
+    assertEquals(2, p.lazy().pow(2).numFactors());
+    assertEquals(Permutation.identity(), p.lazy().pow(2).evaluate());
+    assertEquals(4, p.lazy().shift(2).length());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testApplyNegative() {
+    Permutation.define(1, 0).lazy().apply(-1);
+  }
+
+}
@@ -0,0 +1,108 @@
+package com.github.methylene.sym;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PermutationFileTest {
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    Path path = Files.createTempFile("sym", ".perm");
+    try {
+      for (int n : new int[]{0, 1, 2, 1000, 100000}) {
+        Permutation p = Permutation.random(n);
+        p.write(path);
+        assertEquals(PermutationFile.HEADER_SIZE + 4L * p.length(), Files.size(path));
+        Permutation q = Permutation.map(path);
+        assertEquals(p, q);
+        assertEquals(p.hashCode(), q.hashCode());
+        assertEquals(p.invert(), q.invert());
+        for (int i = 0; i < n; i++)
+          assertEquals(p.apply(i), q.apply(i));
+        int[] ints = ArrayUtil.randomNumbers(1000, n);
+        assertArrayEquals(p.apply(ints), q.apply(ints));
+        String[] symbols = TestUtil.symbols(n);
+        assertArrayEquals(p.apply(symbols), q.apply(symbols));
+        assertArrayEquals(p.apply(ints), q.applyParallel(ints));
+        assertArrayEquals(p.apply(symbols), q.applyParallel(symbols));
+        int[] dst = new int[n + 2];
+        q.applyTo(ints, 0, dst, 2, n);
+        assertArrayEquals(p.apply(ints), Arrays.copyOfRange(dst, 2, n + 2));
+        List<String> list = new ArrayList<>(Arrays.asList(new String[n]));
+        q.applyTo(Arrays.asList(symbols), list);
+        assertEquals(p.apply(Arrays.asList(symbols)), list);
+      }
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  /* the inverse is applied by reading the mapping, as the permutation itself is */
+  @Test
+  public void testApplyInverse() throws IOException {
+    Path path = Files.createTempFile("sym", ".perm");
+    try {
+      for (int n : new int[]{1, 2, 1000, 100000}) {
+        Permutation p = Permutation.random(n);
+        p.write(path);
+        Permutation q = Permutation.map(path);
+        int[] ints = ArrayUtil.randomNumbers(1000, n + 3);
+        assertArrayEquals(p.invert().apply(ints), q.applyInverse(ints));
+        assertArrayEquals(ints, q.applyInverse(q.apply(ints)));
+        String[] symbols = TestUtil.symbols(n);
+        assertArrayEquals(p.invert().apply(symbols), q.applyInverse(symbols));
+        int[] dst = new int[n + 3];
+        q.applyInverseTo(ints, dst);
+        assertArrayEquals(p.invert().apply(ints), dst);
+        // without a cached inverse, each index walks its cycle, so only some of them are checked
+        for (int i = 0; i < n; i += 1 + n / 100)
+          assertEquals(p.invert().apply(i), q.applyInverse(i));
+      }
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  /* a mapped permutation is serialized as an ordinary one */
+  @Test
+  public void testSerialize() throws Exception {
+    Path path = Files.createTempFile("sym", ".perm");
+    try {
+      Permutation p = Permutation.random(1000);
+      p.write(path);
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+        out.writeObject(Permutation.map(path));
+      }
+      try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+        assertEquals(p, in.readObject());
+      }
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testNotAPermutation() throws IOException {
+    Path path = Files.createTempFile("sym", ".perm");
+    try {
+      Files.write(path, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16});
+      Permutation.map(path);
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+}
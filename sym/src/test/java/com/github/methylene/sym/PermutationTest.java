@@ -10,11 +10,19 @@ import static org.junit.Assert.assertThat;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 /**
@@ -351,7 +359,7 @@ public class PermutationTest {
   public void testCyclesAndTranspositions() {
     int sign = 0;
     for (Permutation p : Permutation.symmetricGroup(5).collect(Collectors.toList())) {
-      int order = p.order();
+      long order = p.order();
       sign += p.toCycles().signature();
       Cycles cycles = p.toCycles();
 //      assertEquals(p, CompiledPermutation.product(cycles));
@@ -378,6 +386,122 @@ public class PermutationTest {
     assertEquals(0, sign);
   }
 
+  /* check the order against repeated composition */
+  @Test
+  public void testOrder() {
+    assertEquals(1, identity().order());
+    for (int __ = 0; __ < 100; __++) {
+      Permutation p = Permutation.random(12);
+      int expected = 1;
+      for (Permutation q = p; !q.isIdentity(); q = q.compose(p))
+        expected++;
+      assertEquals(expected, p.order());
+      assertEquals(BigInteger.valueOf(expected), p.bigOrder());
+      assertTrue(p.pow(expected).isIdentity());
+    }
+  }
+
+  /* check pow against repeated composition */
+  @Test
+  public void testPow() {
+    for (int __ = 0; __ < 20; __++) {
+      Permutation p = Permutation.random(30);
+      Permutation expected = identity();
+      for (int k = 0; k < 50; k++) {
+        assertEquals(expected, p.pow(k));
+        assertEquals(expected, p.pow((long) k));
+        assertEquals(expected, p.pow(BigInteger.valueOf(k)));
+        assertEquals(expected.invert(), p.pow(-k));
+        assertEquals(expected, p.toCycles().pow(k).toPermutation());
+        assertEquals(expected.invert(), p.toCycles().pow(-k).toPermutation());
+        expected = expected.compose(p);
+      }
+    }
+  }
+
+  @Test
+  public void testBigPow() {
+    Permutation p = Permutation.random(200);
+    BigInteger k = BigInteger.valueOf(3).pow(100).add(BigInteger.valueOf(7));
+    long reduced = k.mod(p.bigOrder()).longValue();
+    assertEquals(p.pow(reduced), p.pow(k));
+    assertEquals(p.pow(reduced).invert(), p.pow(k.negate()));
+    assertEquals(p.pow(reduced), p.toCycles().pow(k).toPermutation());
+    assertEquals(p.pow(Long.MAX_VALUE % p.order()), p.pow(Long.MAX_VALUE));
+  }
+
+  /* disjoint cycles of prime length, such that the order exceeds Long.MAX_VALUE */
+  @Test
+  public void testBigOrder() {
+    int[] primes = {2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41, 43, 47, 53, 59};
+    Permutation p = identity();
+    BigInteger expected = BigInteger.ONE;
+    int offset = 0;
+    for (int prime : primes) {
+      p = p.compose(defineCycle(ArrayUtil.range(offset, offset + prime)));
+      offset += prime;
+      expected = expected.multiply(BigInteger.valueOf(prime));
+    }
+    assertTrue(expected.bitLength() > 63);
+    assertEquals(expected, p.bigOrder());
+    try {
+      p.order();
+      fail();
+    } catch (ArithmeticException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testRank() {
+    for (int n = 0; n < 7; n++) {
+      List<Permutation> all = symmetricGroup(n).collect(Collectors.toList());
+      for (int k = 0; k < all.size(); k++) {
+        Permutation p = all.get(k);
+        assertEquals(k, p.rank(n));
+        assertEquals(BigInteger.valueOf(k), p.bigRank(n));
+        assertEquals(p, unrank(n, k));
+        assertEquals(p, unrank(n, BigInteger.valueOf(k)));
+      }
+      try {
+        unrank(n, all.size());
+        fail();
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+    }
+    assertEquals(1, define(1, 0).rank());
+    assertEquals(2, define(1, 0).rank(3));
+    assertEquals(Rankings.factorial(20) - 1, reverse(20).rank());
+    try {
+      reverse(21).rank();
+      fail();
+    } catch (ArithmeticException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testBigRank() {
+    for (int n : new int[]{21, 100, 1000}) {
+      BigInteger factorial = BigInteger.ONE;
+      for (int i = 2; i <= n; i++)
+        factorial = factorial.multiply(BigInteger.valueOf(i));
+      assertEquals(factorial.subtract(BigInteger.ONE), reverse(n).bigRank());
+      assertEquals(reverse(n), unrank(n, factorial.subtract(BigInteger.ONE)));
+      for (int __ = 0; __ < 20; __++) {
+        Permutation p = random(n);
+        assertEquals(p, unrank(n, p.bigRank(n)));
+      }
+      try {
+        unrank(n, factorial);
+        fail();
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+    }
+  }
+
   /* check edge cases */
   @Test
   public void testZero() {
@@ -402,6 +526,26 @@ public class PermutationTest {
     assertEquals("Hello world!", product(Arrays.asList(c0, c1, c2)).invert().apply(" !Hdellloorw"));
   }
 
+  @Test
+  public void testParallelProduct() {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      for (int m : new int[]{0, 1, 2, 3, 100, 1001}) {
+        List<Permutation> list = new ArrayList<>();
+        Permutation expected = Permutation.identity();
+        for (int k = 0; k < m; k++) {
+          Permutation p = Permutation.random((int) (Math.random() * 300));
+          list.add(p);
+          expected = expected.compose(p);
+        }
+        assertEquals(expected, Permutation.parallelProduct(list, pool));
+        assertEquals(expected, Permutation.parallelProduct(list));
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
   /* making sure sorting does what we think it does */
   @Test
   public void testDegenerate() {
@@ -493,5 +637,278 @@ public class PermutationTest {
     assertThat(Permutation.symmetricGroup(9).count(), is(TestUtil.factorial(9)));
   }
 
-}
+  @Test
+  public void testApplyEngines() {
+    for (int n : new int[]{1, 10, 1000, ApplyEngine.LARGE + 1}) {
+      Permutation p = Permutation.random(n);
+      int[] ranking = p.getRanking();
+      int[] ints = randomNumbers(Integer.MAX_VALUE, n + 5);
+      long[] longs = new long[ints.length];
+      double[] doubles = new double[ints.length];
+      MyInt[] boxed = box(ints);
+      for (int i = 0; i < ints.length; i++) {
+        longs[i] = ints[i] * 3L;
+        doubles[i] = ints[i] / 3d;
+      }
+      for (ApplyEngine engine : ApplyEngine.values()) {
+        assertArrayEquals(Rankings.apply(ranking, ints), p.apply(ints, engine));
+        assertArrayEquals(Rankings.apply(ranking, longs), p.apply(longs, engine));
+        assertArrayEquals(Rankings.apply(ranking, doubles), p.apply(doubles, engine), 0d);
+        assertArrayEquals(Rankings.apply(ranking, boxed), p.apply(boxed, engine));
+      }
+      assertArrayEquals(Rankings.apply(ranking, ints), p.apply(ints));
+      assertArrayEquals(Rankings.apply(ranking, longs), p.apply(longs));
+    }
+  }
+
+  @Test
+  public void testSelectEngine() {
+    assertThat(ApplyEngine.select(1000, 4, true), is(ApplyEngine.SCATTER));
+    assertThat(ApplyEngine.select(ApplyEngine.LARGE, 1, true), is(ApplyEngine.SCATTER));
+    assertThat(ApplyEngine.select(ApplyEngine.LARGE, 8, true), is(ApplyEngine.GATHER));
+    assertThat(ApplyEngine.select(ApplyEngine.LARGE, 4, true), is(ApplyEngine.GATHER));
+    assertThat(ApplyEngine.select(ApplyEngine.LARGE, 4, false), is(ApplyEngine.SCATTER));
+    assertThat(ApplyEngine.select(ApplyEngine.LARGE, 8, false), is(ApplyEngine.SCATTER));
+  }
+
+  @Test
+  public void testApplyTo() {
+    for (int n : new int[]{0, 10, 300, 1000, 70000}) {
+      Permutation p = Permutation.random(n);
+      TestUtil.TypedArrays a = new TestUtil.TypedArrays(n + 5);
+      int[] intsTo = new int[a.ints.length];
+      p.applyTo(a.ints, intsTo);
+      assertArrayEquals(p.apply(a.ints), intsTo);
+      byte[] bytesTo = new byte[a.ints.length];
+      p.applyTo(a.bytes, bytesTo);
+      assertArrayEquals(p.apply(a.bytes), bytesTo);
+      short[] shortsTo = new short[a.ints.length];
+      p.applyTo(a.shorts, shortsTo);
+      assertArrayEquals(p.apply(a.shorts), shortsTo);
+      char[] charsTo = new char[a.ints.length];
+      p.applyTo(a.chars, charsTo);
+      assertArrayEquals(p.apply(a.chars), charsTo);
+      long[] longsTo = new long[a.ints.length];
+      p.applyTo(a.longs, longsTo);
+      assertArrayEquals(p.apply(a.longs), longsTo);
+      float[] floatsTo = new float[a.ints.length];
+      p.applyTo(a.floats, floatsTo);
+      assertArrayEquals(p.apply(a.floats), floatsTo, 0f);
+      double[] doublesTo = new double[a.ints.length];
+      p.applyTo(a.doubles, doublesTo);
+      assertArrayEquals(p.apply(a.doubles), doublesTo, 0d);
+      boolean[] booleansTo = new boolean[a.ints.length];
+      p.applyTo(a.booleans, booleansTo);
+      assertTrue(Arrays.equals(p.apply(a.booleans), booleansTo));
+      Object[] boxedTo = new Object[a.ints.length];
+      p.applyTo(a.boxed, boxedTo);
+      assertArrayEquals(p.apply(a.boxed), boxedTo);
+      List<MyInt> listTo = new ArrayList<>(Collections.nCopies(a.ints.length, (MyInt) null));
+      p.applyTo(Arrays.asList(a.boxed), listTo);
+      assertEquals(p.apply(Arrays.asList(a.boxed)), listTo);
+      List<MyInt> linkedTo = new LinkedList<>(Collections.nCopies(a.ints.length, (MyInt) null));
+      p.applyTo(new LinkedList<>(Arrays.asList(a.boxed)), linkedTo);
+      assertEquals(p.apply(Arrays.asList(a.boxed)), linkedTo);
+    }
+  }
+
+  @Test
+  public void testApplyToRange() {
+    Permutation p = Permutation.random(100);
+    int[] a = randomNumbers(1000, 300);
+    int[] expected = p.apply(Arrays.copyOfRange(a, 20, 140));
+    p.applyTo(a, 20, a, 150, 120);
+    assertArrayEquals(expected, Arrays.copyOfRange(a, 150, 270));
+  }
 
+  @Test(expected = IllegalArgumentException.class)
+  public void testApplyToOverlap() {
+    int[] a = new int[20];
+    Permutation.define(1, 0).applyTo(a, 0, a, 5, 10);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testApplyToShortRange() {
+    Permutation.random(10).shift(5).applyTo(new int[20], 0, new int[20], 0, 10);
+  }
+
+  @Test(expected = ArrayIndexOutOfBoundsException.class)
+  public void testApplyToOutOfBounds() {
+    Permutation.define(1, 0).applyTo(new int[20], new int[19]);
+  }
+
+  @Test
+  public void testApplyInverse() {
+    for (int n : new int[]{0, 10, 300, 1000, 70000}) {
+      Permutation p = Permutation.random(n);
+      Permutation inverse = p.invert();
+      for (int i = 0; i < n + 5; i++) {
+        assertEquals(inverse.apply(i), p.applyInverse(i));
+        assertEquals(i, p.applyInverse(p.apply(i)));
+      }
+      TestUtil.TypedArrays a = new TestUtil.TypedArrays(n + 5);
+      assertArrayEquals(a.ints, p.applyInverse(p.apply(a.ints)));
+      assertArrayEquals(inverse.apply(a.ints), p.applyInverse(a.ints));
+      assertArrayEquals(inverse.apply(a.bytes), p.applyInverse(a.bytes));
+      assertArrayEquals(inverse.apply(a.shorts), p.applyInverse(a.shorts));
+      assertArrayEquals(inverse.apply(a.chars), p.applyInverse(a.chars));
+      assertArrayEquals(inverse.apply(a.longs), p.applyInverse(a.longs));
+      assertArrayEquals(inverse.apply(a.floats), p.applyInverse(a.floats), 0f);
+      assertArrayEquals(inverse.apply(a.doubles), p.applyInverse(a.doubles), 0d);
+      assertTrue(Arrays.equals(inverse.apply(a.booleans), p.applyInverse(a.booleans)));
+      assertArrayEquals(inverse.apply(a.boxed), p.applyInverse(a.boxed));
+      int[] intsTo = new int[a.ints.length];
+      p.applyInverseTo(a.ints, intsTo);
+      assertArrayEquals(inverse.apply(a.ints), intsTo);
+      byte[] bytesTo = new byte[a.ints.length];
+      p.applyInverseTo(a.bytes, bytesTo);
+      assertArrayEquals(inverse.apply(a.bytes), bytesTo);
+      short[] shortsTo = new short[a.ints.length];
+      p.applyInverseTo(a.shorts, shortsTo);
+      assertArrayEquals(inverse.apply(a.shorts), shortsTo);
+      char[] charsTo = new char[a.ints.length];
+      p.applyInverseTo(a.chars, charsTo);
+      assertArrayEquals(inverse.apply(a.chars), charsTo);
+      long[] longsTo = new long[a.ints.length];
+      p.applyInverseTo(a.longs, longsTo);
+      assertArrayEquals(inverse.apply(a.longs), longsTo);
+      float[] floatsTo = new float[a.ints.length];
+      p.applyInverseTo(a.floats, floatsTo);
+      assertArrayEquals(inverse.apply(a.floats), floatsTo, 0f);
+      double[] doublesTo = new double[a.ints.length];
+      p.applyInverseTo(a.doubles, doublesTo);
+      assertArrayEquals(inverse.apply(a.doubles), doublesTo, 0d);
+      boolean[] booleansTo = new boolean[a.ints.length];
+      p.applyInverseTo(a.booleans, booleansTo);
+      assertTrue(Arrays.equals(inverse.apply(a.booleans), booleansTo));
+      MyInt[] boxedTo = new MyInt[a.ints.length];
+      p.applyInverseTo(a.boxed, boxedTo);
+      assertArrayEquals(inverse.apply(a.boxed), boxedTo);
+    }
+  }
+
+  @Test
+  public void testCycleStats() {
+    CycleStats stats = define(1, 2, 0, 4, 3, 5).cycleStats(8);
+    assertEquals(8, stats.length());
+    assertArrayEquals(new int[]{0, 3, 1, 1}, stats.cycleType());
+    assertEquals(5, stats.numCycles());
+    assertEquals(2, stats.numNontrivialCycles());
+    assertEquals(3, stats.fixedPoints());
+    assertEquals(3, stats.longestCycle());
+    assertEquals(-1, stats.signature());
+    assertEquals(6, stats.order());
+    assertEquals("1^3 2^1 3^1", stats.toString());
+    assertEquals(stats, define(0, 2, 1, 4, 5, 3).cycleStats(8));
+    assertEquals("()", identity().cycleStats().toString());
+    assertEquals(0, identity().cycleStats().longestCycle());
+    for (int __ = 0; __ < 100; __++) {
+      Permutation p = Permutation.random((int) (Math.random() * 100));
+      Cycles cycles = p.toCycles();
+      CycleStats s = p.cycleStats();
+      assertEquals(cycles.numCycles(), s.numNontrivialCycles());
+      assertEquals(cycles.signature(), s.signature());
+      assertEquals(p.order(), s.order());
+      assertEquals(p.bigOrder(), s.bigOrder());
+      assertEquals(p.length(), s.length());
+      int moved = 0;
+      for (int i = 0; i < p.length(); i++)
+        if (p.apply(i) != i)
+          moved++;
+      assertEquals(p.length() - moved, s.fixedPoints());
+      int longest = p.length() == 0 ? 0 : 1;
+      for (int c = 0; c < cycles.numCycles(); c++) {
+        longest = Math.max(longest, cycles.cycleLength(c));
+        assertTrue(s.count(cycles.cycleLength(c)) > 0);
+      }
+      assertEquals(longest, s.longestCycle());
+      assertEquals(p.isCycle(), s.numNontrivialCycles() <= 1);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testApplyInverseToSame() {
+    int[] a = {1, 2, 3};
+    define(1, 0).applyInverseTo(a, a);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCycleStatsTooShort() {
+    define(1, 0).cycleStats(1);
+  }
+
+  @Test
+  public void testCaching() {
+    Permutation p = Permutation.random(100);
+    assertSame(p, p.invert().invert());
+    assertSame(p.invert(), p.invert());
+    assertSame(p.toCycles(), p.toCycles());
+    assertSame(p.toCycles(), p.toCyclesParallel());
+    assertEquals(p.hashCode(), p.hashCode());
+    assertEquals(p.hashCode(), define(p.getRanking()).hashCode());
+    assertEquals(p, define(p.getRanking()));
+  }
+
+  @Test
+  public void testCachingDisabled() {
+    Permutation.setCaching(false);
+    try {
+      Permutation p = Permutation.random(100);
+      assertNotSame(p.invert(), p.invert());
+      assertEquals(p.invert(), p.invert());
+      assertEquals(p, p.invert().invert());
+      assertNotSame(p.toCycles(), p.toCycles());
+      assertEquals(p.toCycles().toString(), p.toCycles().toString());
+      assertEquals(p.hashCode(), define(p.getRanking()).hashCode());
+      int[] a = randomNumbers(100, 100);
+      assertArrayEquals(p.apply(a), p.apply(a, ApplyEngine.GATHER));
+    } finally {
+      Permutation.setCaching(true);
+    }
+    assertTrue(Permutation.isCaching());
+  }
+
+  /* Permutation.define(2, 0, 1), as serialized by the version that stored an int[] ranking */
+  private static final String SERIALIZED = "aced000573720024636f6d2e6769746875622e6d657468796c656e652e73796d2e" +
+      "5065726d75746174696f6e00000000000000010200015b000772616e6b696e677400025b497870757200025b494dba602676eab2" +
+      "a5020000787000000003000000020000000000000001";
+
+  private static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      return in.readObject();
+    }
+  }
+
+  private static byte[] serialize(Object o) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(o);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static byte[] parseHex(String hex) {
+    byte[] result = new byte[hex.length() / 2];
+    for (int i = 0; i < result.length; i++)
+      result[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+    return result;
+  }
+
+  @Test
+  public void testSerializedForm() throws Exception {
+    byte[] bytes = parseHex(SERIALIZED);
+    assertEquals(define(2, 0, 1), deserialize(bytes));
+    for (int n : new int[]{0, 10, 300, 40000, 70000}) {
+      Permutation p = random(n);
+      assertEquals(p, deserialize(serialize(p)));
+      assertEquals(p, deserialize(serialize(p.compact())));
+    }
+  }
+
+  @Test(expected = InvalidObjectException.class)
+  public void testSerializedFormNotARanking() throws Exception {
+    /* the last entry of the ranking is 0 instead of 1 */
+    deserialize(parseHex(SERIALIZED.substring(0, SERIALIZED.length() - 2) + "00"));
+  }
+
+}
@@ -0,0 +1,125 @@
+package com.github.methylene.sym;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.github.methylene.sym.ArrayUtil.randomNumbers;
+import static org.junit.Assert.*;
+
+public class RadixSortTest {
+
+  /* the radix sort must produce the same ranking as the binary search based sort */
+  @Test
+  public void testSameRanking() {
+    for (int __ = 0; __ < 100; __++) {
+      int size = (int) (Math.random() * Rankings.RADIX_SORT_THRESHOLD);
+      int max = Math.random() < 0.5 ? 10 : 100000;
+      int[] a = randomNumbers(-max, max, size);
+      byte[] bytes = new byte[size];
+      short[] shorts = new short[size];
+      char[] chars = new char[size];
+      long[] longs = new long[size];
+      float[] floats = new float[size];
+      double[] doubles = new double[size];
+      for (int i = 0; i < size; i++) {
+        bytes[i] = (byte) a[i];
+        shorts[i] = (short) a[i];
+        chars[i] = (char) a[i];
+        longs[i] = (long) a[i] * Integer.MAX_VALUE;
+        floats[i] = a[i] / 7f;
+        doubles[i] = a[i] / 7d;
+      }
+      assertArrayEquals(Rankings.sorting(a), RadixSort.sorting(a));
+      assertArrayEquals(Rankings.sorting(bytes), RadixSort.sorting(bytes));
+      assertArrayEquals(Rankings.sorting(shorts), RadixSort.sorting(shorts));
+      assertArrayEquals(Rankings.sorting(chars), RadixSort.sorting(chars));
+      assertArrayEquals(Rankings.sorting(longs), RadixSort.sorting(longs));
+      assertArrayEquals(Rankings.sorting(floats), RadixSort.sorting(floats));
+      assertArrayEquals(Rankings.sorting(doubles), RadixSort.sorting(doubles));
+    }
+  }
+
+  @Test
+  public void testLarge() {
+    for (int size : new int[]{Rankings.RADIX_SORT_THRESHOLD, 10000, 100000}) {
+      for (int max : new int[]{0, 3, 1000, Integer.MAX_VALUE}) {
+        int[] a = randomNumbers(max == Integer.MAX_VALUE ? Integer.MIN_VALUE : -max, max, size);
+        int[] ranking = Rankings.sorting(a);
+        assertTrue(Rankings.isValid(ranking));
+        assertArrayEquals(ArrayUtil.sortedCopy(a), Rankings.apply(ranking, a));
+        int[] sorted = Rankings.apply(ranking, a);
+        int[] unsort = Rankings.invert(ranking);
+        for (int el : a)
+          assertEquals(ArrayUtil.indexOf(a, el, 0), unsort[Arrays.binarySearch(sorted, el)]);
+      }
+    }
+  }
+
+  @Test
+  public void testSpecialValues() {
+    double[] specials = {Double.NaN, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, -0.0, 0.0,
+        Double.MIN_VALUE, -Double.MIN_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, 1, -1};
+    double[] doubles = new double[1000];
+    float[] floats = new float[doubles.length];
+    for (int i = 0; i < doubles.length; i++) {
+      doubles[i] = specials[(int) (Math.random() * specials.length)];
+      floats[i] = (float) doubles[i];
+    }
+    int[] ranking = RadixSort.sorting(doubles);
+    assertTrue(Rankings.isValid(ranking));
+    assertArrayEquals(ArrayUtil.sortedCopy(doubles), Rankings.apply(ranking, doubles), 0);
+    ranking = RadixSort.sorting(floats);
+    assertTrue(Rankings.isValid(ranking));
+    assertArrayEquals(ArrayUtil.sortedCopy(floats), Rankings.apply(ranking, floats), 0);
+  }
+
+  /* the parallel sort must produce the same ranking as the sequential one */
+  @Test
+  public void testParallel() {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      for (int size : new int[]{0, 1, ParallelUtil.MIN_CHUNK_SIZE * 3 + 1, 200000}) {
+        for (int max : new int[]{0, 3, 1000, Integer.MAX_VALUE}) {
+          int[] a = randomNumbers(max == Integer.MAX_VALUE ? Integer.MIN_VALUE : -max, max, size);
+          byte[] bytes = new byte[size];
+          short[] shorts = new short[size];
+          char[] chars = new char[size];
+          long[] longs = new long[size];
+          float[] floats = new float[size];
+          double[] doubles = new double[size];
+          for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) a[i];
+            shorts[i] = (short) a[i];
+            chars[i] = (char) a[i];
+            longs[i] = (long) a[i] * Integer.MAX_VALUE;
+            floats[i] = a[i] / 7f;
+            doubles[i] = a[i] / 7d;
+          }
+          assertArrayEquals(RadixSort.sorting(a), RadixSort.sortingParallel(a, pool));
+          assertArrayEquals(RadixSort.sorting(bytes), RadixSort.sortingParallel(bytes, pool));
+          assertArrayEquals(RadixSort.sorting(shorts), RadixSort.sortingParallel(shorts, pool));
+          assertArrayEquals(RadixSort.sorting(chars), RadixSort.sortingParallel(chars, pool));
+          assertArrayEquals(RadixSort.sorting(longs), RadixSort.sortingParallel(longs, pool));
+          assertArrayEquals(RadixSort.sorting(floats), RadixSort.sortingParallel(floats, pool));
+          assertArrayEquals(RadixSort.sorting(doubles), RadixSort.sortingParallel(doubles, pool));
+          assertEquals(Permutation.sorting(a), Permutation.sortingParallel(a, pool));
+          assertEquals(Permutation.sorting(doubles), Permutation.sortingParallel(doubles));
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testEdgeCases() {
+    assertArrayEquals(new int[0], RadixSort.sorting(new int[0]));
+    assertArrayEquals(new int[0], RadixSort.sorting(new double[0]));
+    assertArrayEquals(new int[]{0}, RadixSort.sorting(new long[]{5}));
+    assertArrayEquals(new int[]{1, 2, 0}, RadixSort.sorting(new int[]{7, 7, 7}));
+    assertArrayEquals(Rankings.sorting(new int[]{7, 7, 7}), RadixSort.sorting(new int[]{7, 7, 7}));
+  }
+
+}
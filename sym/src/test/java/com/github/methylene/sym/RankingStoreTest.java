@@ -0,0 +1,89 @@
+package com.github.methylene.sym;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class RankingStoreTest {
+
+  private static final int[] LENGTHS = {0, 1, 2, 255, 256, 257, 1000, 1024, 1025, 32768, 32769, 65536, 65537, 100000};
+
+  @Test
+  public void testRoundTrip() {
+    for (int n : LENGTHS) {
+      int[] ranking = Rankings.random(n);
+      RankingStore store = RankingStore.of(ranking.clone());
+      assertEquals(n, store.length());
+      assertArrayEquals(ranking, store.toArray());
+      assertArrayEquals(ranking, store.array());
+      for (int i = 0; i < n; i++)
+        assertEquals(ranking[i], store.get(i));
+      assertEquals(Arrays.hashCode(ranking), store.contentHashCode());
+      assertTrue(store.contentEquals(new RankingStore.Ints(ranking)));
+      assertTrue(new RankingStore.Ints(ranking).contentEquals(store));
+    }
+  }
+
+  @Test
+  public void testPacked() {
+    assertTrue(RankingStore.packed(Rankings.random(52)) instanceof RankingStore.Packed);
+    assertTrue(RankingStore.packed(Rankings.random(200)) instanceof RankingStore.Bytes);
+    assertTrue(RankingStore.packed(Rankings.random(32769)) instanceof RankingStore.Chars);
+    assertTrue(RankingStore.packed(Rankings.random(100000)) instanceof RankingStore.Packed);
+    for (int n : LENGTHS) {
+      int[] ranking = Rankings.random(n);
+      RankingStore store = RankingStore.packed(ranking);
+      assertArrayEquals(ranking, store.toArray());
+      for (int i = 0; i < n; i++)
+        assertEquals(ranking[i], store.get(i));
+    }
+  }
+
+  @Test
+  public void testWidth() {
+    assertTrue(RankingStore.of(Rankings.random(256)) instanceof RankingStore.Bytes);
+    assertTrue(RankingStore.of(Rankings.random(257)) instanceof RankingStore.Chars);
+    assertTrue(RankingStore.of(Rankings.random(32768)) instanceof RankingStore.Chars);
+    assertTrue(RankingStore.of(Rankings.random(65536)) instanceof RankingStore.Chars);
+    assertTrue(RankingStore.of(Rankings.random(65537)) instanceof RankingStore.Ints);
+  }
+
+  /* permutations behave the same regardless of how their rankings are stored */
+  @Test
+  public void testPermutation() {
+    for (int n : LENGTHS) {
+      int[] a = Rankings.random(n);
+      int[] b = Rankings.random(n + 300);
+      Permutation p = Permutation.define(a);
+      Permutation q = Permutation.define(b);
+      testPermutation(a, b, p, q);
+      testPermutation(a, b, p.compact(), q.compact());
+    }
+  }
+
+  private static void testPermutation(int[] a, int[] b, Permutation p, Permutation q) {
+    int n = a.length;
+    {
+      assertEquals(Rankings.trim(a).length, p.length());
+      assertArrayEquals(Rankings.trim(Rankings.comp(a, b)), p.compose(q).getRanking());
+      assertArrayEquals(Rankings.trim(Rankings.invert(a)), p.invert().getRanking());
+      assertEquals(p, Permutation.define(p.getRanking()));
+      assertEquals(Arrays.hashCode(Rankings.trim(a)), p.hashCode());
+      assertEquals(0, p.compareTo(Permutation.define(a)));
+      for (int i = 0; i < n; i++)
+        assertEquals(a[i], p.apply(i));
+      String[] symbols = TestUtil.symbols(n);
+      assertArrayEquals(Rankings.apply(a, symbols), p.apply(symbols));
+      String[] dst = new String[n];
+      p.applyTo(symbols, dst);
+      assertArrayEquals(Rankings.apply(a, symbols), dst);
+      assertArrayEquals(Rankings.trim(Rankings.shift(3, a)), p.shift(3).getRanking());
+      assertEquals(Arrays.toString(Rankings.trim(a)), p.toString());
+      assertEquals(CycleUtil.bigLcm(CycleUtil.cycleLengths(a)), p.bigOrder());
+      assertEquals(CycleUtil.toCycles(a).toString(), p.toCycles().toString());
+    }
+  }
+
+}
@@ -8,6 +8,10 @@ import static org.hamcrest.CoreMatchers.is;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 public class TestRankings {
 
@@ -113,6 +117,19 @@ public class TestRankings {
     }
   }
 
+  @Test
+  public void testInvert() {
+    for (int __ = 0; __ < 100; __++) {
+      int[] ranking = random((int) (Math.random() * 1000));
+      int[] inverted = invert(ranking);
+      assertEquals(0, trimmedLength(comp(ranking, inverted)));
+      assertEquals(0, trimmedLength(comp(inverted, ranking)));
+      assertArrayEquals(inverted, invertInPlace(Arrays.copyOf(ranking, ranking.length)));
+    }
+    assertArrayEquals(new int[0], invertInPlace(new int[0]));
+    assertArrayEquals(new int[]{2, 0, 1, 3}, invertInPlace(new int[]{1, 2, 0, 3}));
+  }
+
   @Test
   public void testNextOffset() {
     int[] sorted = {0, 0, 1, 3, 3, 3, 4, 4};
@@ -154,4 +171,184 @@ public class TestRankings {
     }
   }
 
+  @Test
+  public void testSymmetricGroupOrder() {
+    for (int n = 0; n < 7; n++) {
+      List<int[]> all = symmetricGroup(n).collect(Collectors.toList());
+      assertEquals(factorial(n), all.size());
+      assertArrayEquals(ArrayUtil.range(n), all.get(0));
+      for (int i = 1; i < all.size(); i++) {
+        assertTrue(isValid(all.get(i)));
+        assertTrue(lexicographicLess(all.get(i - 1), all.get(i)));
+      }
+    }
+  }
+
+  private static boolean lexicographicLess(int[] a, int[] b) {
+    for (int i = 0; i < a.length; i++)
+      if (a[i] != b[i])
+        return a[i] < b[i];
+    return false;
+  }
+
+  @Test
+  public void testSymmetricGroupParallel() {
+    List<int[]> sequential = symmetricGroup(8).collect(Collectors.toList());
+    List<int[]> parallel = symmetricGroup(8).parallel().collect(Collectors.toList());
+    assertEquals(sequential.size(), parallel.size());
+    for (int i = 0; i < sequential.size(); i++)
+      assertArrayEquals(sequential.get(i), parallel.get(i));
+    assertEquals(factorial(9), Permutation.symmetricGroup(9).parallel().distinct().count());
+  }
+
+  @Test
+  public void testForEachPermutation() {
+    final List<int[]> expected = symmetricGroup(6).collect(Collectors.toList());
+    final AtomicInteger count = new AtomicInteger();
+    forEachPermutation(6, a -> assertArrayEquals(expected.get(count.getAndIncrement()), a));
+    assertEquals(expected.size(), count.get());
+    int[] last = {2, 1, 0};
+    assertFalse(nextPermutation(last));
+    assertArrayEquals(new int[]{2, 1, 0}, last);
+  }
+
+  @Test
+  public void testMyrvoldRuskey() {
+    for (int n = 0; n < 8; n++) {
+      long count = factorial(n);
+      boolean[] seen = new boolean[(int) count];
+      for (long rank = 0; rank < count; rank++) {
+        int[] ranking = unrankMyrvoldRuskey(n, rank);
+        assertTrue(isValid(ranking));
+        assertEquals(rank, rankMyrvoldRuskey(ranking));
+        int lex = (int) Rankings.rank(ranking);
+        assertFalse(seen[lex]);
+        seen[lex] = true;
+      }
+    }
+    for (int __ = 0; __ < 100; __++) {
+      int[] ranking = random(20);
+      assertArrayEquals(ranking, unrankMyrvoldRuskey(20, rankMyrvoldRuskey(ranking)));
+    }
+  }
+
+  private static long naiveKendallTau(int[] a, int[] b) {
+    long count = 0;
+    for (int i = 0; i < a.length; i++)
+      for (int j = i + 1; j < a.length; j++)
+        if (Integer.signum(a[i] - a[j]) != Integer.signum(b[i] - b[j]))
+          count++;
+    return count;
+  }
+
+  @Test
+  public void testInversions() {
+    for (int __ = 0; __ < 200; __++) {
+      int[] a = random((int) (Math.random() * 300));
+      int[] b = random(a.length);
+      assertEquals(naiveKendallTau(ArrayUtil.range(a.length), a), inversions(a));
+      assertEquals(naiveKendallTau(a, b), kendallTau(a, b));
+      assertEquals(kendallTau(a, b), kendallTau(b, a));
+      assertEquals(0, kendallTau(a, a));
+    }
+    assertEquals(0, inversions(new int[0]));
+    assertEquals(4950, inversions(ArrayUtil.range(99, -1)));
+    assertEquals(2, kendallTau(new int[]{1, 0}, new int[]{0, 1, 3, 2}));
+  }
+
+  @Test
+  public void testInversionsParallel() {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      for (int n : new int[]{10, ParallelUtil.MIN_CHUNK_SIZE * 5 + 3, 300000}) {
+        int[] a = random(n);
+        int[] b = random(n);
+        assertEquals(inversions(a), inversionsParallel(a, pool));
+        assertEquals(kendallTau(a, b), kendallTauParallel(a, b, pool));
+      }
+      int[] reverse = ArrayUtil.range(299999, -1);
+      assertEquals(300000L * 299999 / 2, inversionsParallel(reverse, pool));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private static int naiveCycles(int[] a) {
+    boolean[] seen = new boolean[a.length];
+    int cycles = 0;
+    for (int i = 0; i < a.length; i++) {
+      if (seen[i])
+        continue;
+      cycles++;
+      for (int j = i; !seen[j]; j = a[j])
+        seen[j] = true;
+    }
+    return cycles;
+  }
+
+  private static int naiveLis(int[] a) {
+    int[] best = new int[a.length];
+    int result = 0;
+    for (int i = 0; i < a.length; i++) {
+      best[i] = 1;
+      for (int j = 0; j < i; j++)
+        if (a[j] < a[i])
+          best[i] = Math.max(best[i], best[j] + 1);
+      result = Math.max(result, best[i]);
+    }
+    return result;
+  }
+
+  @Test
+  public void testDistances() {
+    for (int __ = 0; __ < 200; __++) {
+      int[] a = random((int) (Math.random() * 200));
+      int[] b = random(a.length);
+      int[] s = comp(b, invert(a));
+      assertEquals(a.length - naiveCycles(s), cayleyDistance(a, b));
+      assertEquals(a.length - naiveLis(s), ulamDistance(a, b));
+      assertEquals(cayleyDistance(a, b), cayleyDistance(b, a));
+      assertEquals(ulamDistance(a, b), ulamDistance(b, a));
+      assertEquals(0, cayleyDistance(a, a));
+      assertEquals(0, ulamDistance(a, a));
+      assertEquals(0, hammingDistance(a, a));
+      assertEquals(0, spearmanFootrule(a, a));
+    }
+    int[] a = {1, 0};
+    int[] b = {0, 2, 1, 4, 3};
+    assertEquals(3, cayleyDistance(a, b));
+    assertEquals(2, ulamDistance(a, b));
+    assertEquals(5, hammingDistance(a, b));
+    assertEquals(6, spearmanFootrule(a, b));
+    assertEquals(hammingDistance(a, b), hammingDistance(b, a));
+    assertEquals(spearmanFootrule(a, b), spearmanFootrule(b, a));
+    Permutation p = Permutation.random(100);
+    assertEquals(1, p.cayleyDistance(p.compose(Permutation.define(1, 0).shift(7))));
+    assertEquals(1, p.ulamDistance(Permutation.define(1, 2, 0).shift(50).compose(p)));
+  }
+
+  @Test
+  public void testApplyParallel() {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      for (int n : new int[]{10, PARALLEL_APPLY_THRESHOLD, 200000}) {
+        Permutation p = Permutation.random(n);
+        TestUtil.TypedArrays a = new TestUtil.TypedArrays(n + 5);
+        assertArrayEquals(p.apply(a.ints), p.applyParallel(a.ints, pool));
+        assertArrayEquals(p.apply(a.bytes), p.applyParallel(a.bytes, pool));
+        assertArrayEquals(p.apply(a.shorts), p.applyParallel(a.shorts, pool));
+        assertArrayEquals(p.apply(a.chars), p.applyParallel(a.chars, pool));
+        assertArrayEquals(p.apply(a.longs), p.applyParallel(a.longs, pool));
+        assertArrayEquals(p.apply(a.floats), p.applyParallel(a.floats, pool), 0f);
+        assertArrayEquals(p.apply(a.doubles), p.applyParallel(a.doubles, pool), 0d);
+        assertTrue(Arrays.equals(p.apply(a.booleans), p.applyParallel(a.booleans, pool)));
+        assertArrayEquals(p.apply(a.boxed), p.applyParallel(a.boxed, pool));
+        assertEquals(p.apply(Arrays.asList(a.boxed)), p.applyParallel(Arrays.asList(a.boxed), pool));
+        assertArrayEquals(p.apply(a.ints), p.applyParallel(a.ints));
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
 }
@@ -279,4 +279,40 @@ public class TestUtil {
     }
   }
 
+  /**
+   * The same random numbers as arrays of every element type that a permutation can be applied to.
+   */
+  static final class TypedArrays {
+    final int[] ints;
+    final byte[] bytes;
+    final short[] shorts;
+    final char[] chars;
+    final long[] longs;
+    final float[] floats;
+    final double[] doubles;
+    final boolean[] booleans;
+    final MyInt[] boxed;
+
+    TypedArrays(int length) {
+      ints = ArrayUtil.randomNumbers(Integer.MAX_VALUE, length);
+      bytes = new byte[length];
+      shorts = new short[length];
+      chars = new char[length];
+      longs = new long[length];
+      floats = new float[length];
+      doubles = new double[length];
+      booleans = new boolean[length];
+      boxed = MyInt.box(ints);
+      for (int i = 0; i < length; i++) {
+        bytes[i] = (byte) ints[i];
+        shorts[i] = (short) ints[i];
+        chars[i] = (char) ints[i];
+        longs[i] = ints[i] * 3L;
+        floats[i] = ints[i] / 3f;
+        doubles[i] = ints[i] / 3d;
+        booleans[i] = ints[i] % 2 == 0;
+      }
+    }
+  }
+
 }